@@ -3,20 +3,19 @@ package com.neopragma.legacy.round14;
 public class AddressImpl implements Address {
 	
 	private String zipCode;
-	private String city;
-	private String state;
+	private CityState cityState;
 
 	public AddressImpl(CityStateLookup cityStateLookup, String zipCode) {
-    	CityState cityState = cityStateLookup.lookup(zipCode);
-    	city = cityState.getCity();
-    	state = cityState.getState();
-		cityState = null;
+		cityState = CityStatePool.shared().canonical(cityStateLookup.lookup(zipCode));
 		this.zipCode = zipCode;
 	}
 
 	public AddressImpl(String city, String state, String zipCode) {
-		this.city = city;
-		this.state = state;
+		this(CityStatePool.shared(), city, state, zipCode);
+	}
+
+	AddressImpl(CityStatePool pool, String city, String state, String zipCode) {
+		this.cityState = pool.canonical(city, state);
 		this.zipCode = zipCode;
 	}
 
@@ -27,12 +26,12 @@ public class AddressImpl implements Address {
 	
 	@Override
 	public String getCity() {
-		return city;
+		return cityState.getCity();
 	}
 
 	@Override
 	public String getState() {
-		return state;
+		return cityState.getState();
 	}
 
 }
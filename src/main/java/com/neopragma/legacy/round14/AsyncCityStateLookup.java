@@ -0,0 +1,13 @@
+package com.neopragma.legacy.round14;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Looks up city and state without blocking the caller.
+ * A lookup that fails completes exceptionally with CityStateLookupException.
+ */
+public interface AsyncCityStateLookup {
+
+	CompletableFuture<CityState> lookupAsync(String zipCode);
+
+}
@@ -0,0 +1,141 @@
+package com.neopragma.legacy.round14;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Looks up city and state through api.zippopotam.us on a non-blocking
+ * HTTP client. At most maxInFlightRequests lookups wait on the service at
+ * once; further lookups are queued and started as earlier ones finish,
+ * so callers never block.
+ */
+public class AsyncCityStateLookupImpl implements AsyncCityStateLookup, Closeable {
+
+	private final LookupClientConfig config;
+	private final CloseableHttpAsyncClient httpClient;
+	private final Semaphore inFlight;
+	private final Queue<PendingLookup> pending = new ConcurrentLinkedQueue<>();
+
+	public AsyncCityStateLookupImpl() {
+		this(new LookupClientConfig());
+	}
+
+	public AsyncCityStateLookupImpl(LookupClientConfig config) {
+		this.config = config;
+		this.inFlight = new Semaphore(config.getMaxInFlightRequests());
+		httpClient = HttpAsyncClients.custom()
+				.setMaxConnTotal(config.getMaxTotalConnections())
+				.setMaxConnPerRoute(config.getMaxConnectionsPerRoute())
+				.setDefaultRequestConfig(config.requestConfig())
+				.setKeepAliveStrategy(config.keepAliveStrategy())
+				.setDefaultIOReactorConfig(IOReactorConfig.custom()
+						.setConnectTimeout(config.getConnectTimeoutMillis())
+						.setSoTimeout(config.getReadTimeoutMillis())
+						.build())
+				.build();
+		httpClient.start();
+	}
+
+	@Override
+	public CompletableFuture<CityState> lookupAsync(String zipCode) {
+		PendingLookup lookup = new PendingLookup(zipCode);
+		pending.add(lookup);
+		startPending();
+		return lookup.result;
+	}
+
+	/**
+	 * @return number of lookups queued behind the in-flight limit
+	 */
+	public int getQueuedCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Stops the HTTP client. Lookups still queued complete exceptionally.
+	 */
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+		PendingLookup lookup;
+		while ((lookup = pending.poll()) != null) {
+			lookup.result.completeExceptionally(
+					new CityStateLookupException(new CancellationException("Lookup closed")));
+		}
+	}
+
+	/**
+	 * Starts queued lookups while permits are free. Called after every
+	 * enqueue and every completion, so a lookup queued just as a permit is
+	 * released is still picked up.
+	 */
+	private void startPending() {
+		while (!pending.isEmpty() && inFlight.tryAcquire()) {
+			PendingLookup lookup = pending.poll();
+			if (lookup == null) {
+				inFlight.release();
+				return;
+			}
+			start(lookup);
+		}
+	}
+
+	private void start(PendingLookup lookup) {
+		try {
+			httpClient.execute(new HttpGet(config.uriFor(lookup.zipCode)), new FutureCallback<HttpResponse>() {
+				@Override
+				public void completed(HttpResponse response) {
+					try {
+						lookup.result.complete(ZipServiceResponse.parse(response));
+					} catch (Exception e) {
+						lookup.result.completeExceptionally(new CityStateLookupException(e));
+					}
+					finished();
+				}
+
+				@Override
+				public void failed(Exception e) {
+					lookup.result.completeExceptionally(new CityStateLookupException(e));
+					finished();
+				}
+
+				@Override
+				public void cancelled() {
+					lookup.result.completeExceptionally(
+							new CityStateLookupException(new CancellationException("Lookup cancelled")));
+					finished();
+				}
+			});
+		} catch (Exception e) {
+			lookup.result.completeExceptionally(new CityStateLookupException(e));
+			finished();
+		}
+	}
+
+	private void finished() {
+		inFlight.release();
+		startPending();
+	}
+
+	private static class PendingLookup {
+		final String zipCode;
+		final CompletableFuture<CityState> result = new CompletableFuture<>();
+
+		PendingLookup(String zipCode) {
+			this.zipCode = zipCode;
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.neopragma.legacy.round14;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Looks up many zip codes at once on top of another CityStateLookup.
+ * Zip codes are normalized to 5 digits and each distinct one is looked
+ * up only once. Threads that ask for a zip code while a lookup for it is
+ * already running share that lookup (single-flight) instead of sending
+ * their own request.
+ */
+public class BatchCityStateLookup implements CityStateLookup {
+
+	private static final Executor CALLING_THREAD = Runnable::run;
+
+	private final CityStateLookup delegate;
+	private final Executor executor;
+	private final ConcurrentMap<String, CompletableFuture<CityState>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Batches are looked up one zip code at a time on the calling thread.
+	 */
+	public BatchCityStateLookup(CityStateLookup delegate) {
+		this(delegate, CALLING_THREAD);
+	}
+
+	/**
+	 * @param delegate - lookup that does the actual work
+	 * @param executor - runs the lookups of a batch, so they can overlap
+	 */
+	public BatchCityStateLookup(CityStateLookup delegate, Executor executor) {
+		this.delegate = delegate;
+		this.executor = executor;
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		return await(shared(ZipCodes.normalize(zipCode), CALLING_THREAD));
+	}
+
+	/**
+	 * @param zipCodes - 5-digit or 9-digit zip codes, duplicates allowed
+	 * @return city and state for every zip code that was found, keyed on the
+	 *         normalized 5-digit zip code
+	 */
+	public Map<String, CityState> lookupAll(Collection<String> zipCodes) {
+		return lookupAll(zipCodes, new LinkedHashMap<String, CityStateLookupException>());
+	}
+
+	/**
+	 * @param zipCodes - 5-digit or 9-digit zip codes, duplicates allowed
+	 * @param failures - receives the exception for each zip code that could
+	 *                 not be looked up, keyed on the normalized zip code, or
+	 *                 on the value as given when it is not a zip code at all
+	 * @return city and state for every zip code that was found, keyed on the
+	 *         normalized 5-digit zip code
+	 */
+	public Map<String, CityState> lookupAll(Collection<String> zipCodes,
+			Map<String, CityStateLookupException> failures) {
+		Map<String, CompletableFuture<CityState>> lookups = new LinkedHashMap<>();
+		for (String zipCode : zipCodes) {
+			try {
+				String key = ZipCodes.normalize(zipCode);
+				if (!lookups.containsKey(key)) {
+					lookups.put(key, shared(key, executor));
+				}
+			} catch (CityStateLookupException e) {
+				failures.put(zipCode, e);
+			}
+		}
+		Map<String, CityState> found = new LinkedHashMap<>();
+		for (Map.Entry<String, CompletableFuture<CityState>> lookup : lookups.entrySet()) {
+			try {
+				found.put(lookup.getKey(), await(lookup.getValue()));
+			} catch (CityStateLookupException e) {
+				failures.put(lookup.getKey(), e);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return number of distinct zip codes being looked up right now
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	private CompletableFuture<CityState> shared(String zip5, Executor runner) {
+		CompletableFuture<CityState> mine = new CompletableFuture<>();
+		CompletableFuture<CityState> existing = inFlight.putIfAbsent(zip5, mine);
+		if (existing != null) {
+			return existing;
+		}
+		try {
+			runner.execute(() -> {
+				try {
+					mine.complete(delegate.lookup(zip5));
+				} catch (Throwable e) {
+					// Errors included, or the threads sharing it would wait forever.
+					mine.completeExceptionally(e);
+				} finally {
+					inFlight.remove(zip5, mine);
+				}
+			});
+		} catch (Throwable rejected) {
+			inFlight.remove(zip5, mine);
+			mine.completeExceptionally(rejected);
+		}
+		return mine;
+	}
+
+	private static CityState await(CompletableFuture<CityState> lookup) {
+		try {
+			return lookup.join();
+		} catch (CompletionException e) {
+			// A new exception, so each caller's stack trace is its own.
+			if (e.getCause() instanceof CityStateLookupException) {
+				throw new CityStateLookupException(
+						((CityStateLookupException) e.getCause()).getWrappedException());
+			}
+			throw new CityStateLookupException(e.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.neopragma.legacy.round14;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of Strings that can say for certain that a String was never added
+ * but only that one probably was. With 10 bits per entry about 1 lookup in
+ * 100 for an absent String answers "maybe". Ints can be kept the same way,
+ * without boxing them.
+ *
+ * Adds and lookups may run on different threads at the same time.
+ */
+public class BloomFilter {
+
+	public static final int DEFAULT_BITS_PER_ENTRY = 10;
+
+	private final AtomicLongArray bits;
+	private final int mask;
+	private final int hashes;
+
+	/**
+	 * @param expectedEntries - entries at which the false positive rate
+	 *                  reaches its nominal value; more may be added
+	 */
+	public BloomFilter(int expectedEntries) {
+		this(expectedEntries, DEFAULT_BITS_PER_ENTRY);
+	}
+
+	public BloomFilter(int expectedEntries, int bitsPerEntry) {
+		long wanted = Math.max(64L, (long) expectedEntries * bitsPerEntry);
+		int size = (int) Math.min(1L << 30, Long.highestOneBit(wanted * 2 - 1));
+		bits = new AtomicLongArray(size >>> 6);
+		mask = size - 1;
+		// ln 2 * bits per entry hash functions minimise false positives.
+		hashes = Math.max(1, (int) Math.round(Math.log(2) * bitsPerEntry));
+	}
+
+	public void add(String value) {
+		add(hash(value));
+	}
+
+	public void add(int value) {
+		add(hash(value));
+	}
+
+	/**
+	 * @return false when value was certainly never added
+	 */
+	public boolean mightContain(String value) {
+		return mightContain(hash(value));
+	}
+
+	/**
+	 * @return false when value was certainly never added
+	 */
+	public boolean mightContain(int value) {
+		return mightContain(hash(value));
+	}
+
+	private void add(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0 ; i < hashes ; i++) {
+			int bit = (h1 + i * h2) & mask;
+			long word = bits.get(bit >>> 6);
+			long withBit = word | (1L << bit);
+			while (word != withBit && !bits.compareAndSet(bit >>> 6, word, withBit)) {
+				word = bits.get(bit >>> 6);
+				withBit = word | (1L << bit);
+			}
+		}
+	}
+
+	private boolean mightContain(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0 ; i < hashes ; i++) {
+			int bit = (h1 + i * h2) & mask;
+			if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return approximate heap taken by the filter
+	 */
+	public long memoryBytes() {
+		return 48L + 8L * bits.length();
+	}
+
+	/**
+	 * Spreads String.hashCode() over 64 bits with the MurmurHash3 finaliser,
+	 * giving two independent 32-bit hashes.
+	 */
+	private static long hash(String value) {
+		return hash(value.hashCode());
+	}
+
+	private static long hash(int value) {
+		long hash = value * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+
+}
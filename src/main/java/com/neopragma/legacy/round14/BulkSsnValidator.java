@@ -0,0 +1,191 @@
+package com.neopragma.legacy.round14;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Validates a whole column of Ssns read from an import file without
+ * creating a String or an Ssn per row. The caller gives the bytes (ASCII)
+ * and where each row's Ssn starts and how long it is; the result holds a
+ * bitset of the valid rows, a reason code per row and the digits of each
+ * well-formed Ssn.
+ *
+ * Rows are checked with the same rules as SsnParser. Digits are checked
+ * eight bytes at a time within a long rather than one char at a time.
+ */
+public class BulkSsnValidator {
+
+	/**
+	 * Reason code of a valid row; other codes are Reason.ordinal() + 1.
+	 */
+	public static final byte VALID = 0;
+
+	private static final long ZEROS = 0x3030303030303030L;
+	private static final long HIGH_NIBBLES = 0xF0F0F0F0F0F0F0F0L;
+	private static final long SIXES = 0x0606060606060606L;
+	private static final long LOW_BYTES = 0x00FF00FF00FF00FFL;
+	private static final long LOW_SHORTS = 0x0000FFFF0000FFFFL;
+	private static final long LOW_INTS = 0x00000000FFFFFFFFL;
+	// Big-endian word of "ddd-dd-d": the dashes are bytes 3 and 6.
+	private static final long DASH_BYTES = 0x000000FF0000FF00L;
+	private static final long DASHES = 0x0000002D00002D00L;
+	private static final long DASHES_AS_ZEROS = 0x0000003000003000L;
+	private static final SsnParser.Reason[] REASONS = SsnParser.Reason.values();
+
+	/**
+	 * @param column - the file contents
+	 * @param offsets - where each row's Ssn starts
+	 * @param lengths - how many bytes each row's Ssn takes
+	 */
+	public Result validate(byte[] column, int[] offsets, int[] lengths) {
+		return validate(ByteBuffer.wrap(column), offsets, lengths);
+	}
+
+	/**
+	 * @param column - the file contents, e.g. a mapped file; offsets are
+	 *                  absolute indexes into it and its position is not used
+	 * @param offsets - where each row's Ssn starts
+	 * @param lengths - how many bytes each row's Ssn takes
+	 */
+	public Result validate(ByteBuffer column, int[] offsets, int[] lengths) {
+		ByteBuffer bigEndian = column.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int rows = offsets.length;
+		Result result = new Result(rows);
+		for (int row = 0 ; row < rows ; row++) {
+			int digits = digits(bigEndian, offsets[row], lengths[row]);
+			SsnParser.Reason reason = SsnParser.validate(digits);
+			result.digits[row] = digits;
+			if (reason == null) {
+				result.valid[row >>> 6] |= 1L << row;
+			} else {
+				result.reasons[row] = (byte) (reason.ordinal() + 1);
+			}
+		}
+		return result;
+	}
+
+	static int digits(ByteBuffer column, int offset, int length) {
+		if (length == 9) {
+			long word = column.getLong(offset);
+			byte last = column.get(offset + 8);
+			if (!allDigits(word) || last < '0' || last > '9') {
+				return SsnParser.MALFORMED;
+			}
+			return eightDigits(word) * 10 + (last - '0');
+		}
+		if (length == 11) {
+			long word = column.getLong(offset);
+			if ((word & DASH_BYTES) != DASHES
+					|| !allDigits((word & ~DASH_BYTES) | DASHES_AS_ZEROS)) {
+				return SsnParser.MALFORMED;
+			}
+			int value = 0;
+			for (int i = 0 ; i < 8 ; i++) {
+				if (i != 3 && i != 6) {
+					value = value * 10 + (int) ((word >>> (56 - 8 * i)) & 0x0F);
+				}
+			}
+			for (int i = 8 ; i < 11 ; i++) {
+				byte b = column.get(offset + i);
+				if (b < '0' || b > '9') {
+					return SsnParser.MALFORMED;
+				}
+				value = value * 10 + (b - '0');
+			}
+			return value;
+		}
+		return SsnParser.MALFORMED;
+	}
+
+	/**
+	 * @return true when all eight bytes are ASCII digits: the high nibble
+	 *         is 3 and adding 6 to the low nibble does not carry out of it
+	 */
+	static boolean allDigits(long word) {
+		return (word & HIGH_NIBBLES) == ZEROS
+				&& ((word + SIXES) & HIGH_NIBBLES) == ZEROS;
+	}
+
+	/**
+	 * @return the eight digits of a big-endian word as a number, combining
+	 *         them in pairs, then fours, then eights
+	 */
+	static int eightDigits(long word) {
+		long values = word - ZEROS;
+		values = ((values >>> 8) & LOW_BYTES) * 10 + (values & LOW_BYTES);
+		values = ((values >>> 16) & LOW_SHORTS) * 100 + (values & LOW_SHORTS);
+		return (int) ((values >>> 32) * 10000 + (values & LOW_INTS));
+	}
+
+	/**
+	 * Outcome of validating a column.
+	 */
+	public static class Result {
+		private final int rowCount;
+		private final long[] valid;
+		private final byte[] reasons;
+		private final int[] digits;
+
+		Result(int rowCount) {
+			this.rowCount = rowCount;
+			this.valid = new long[(rowCount + 63) >>> 6];
+			this.reasons = new byte[rowCount];
+			this.digits = new int[rowCount];
+		}
+
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		public boolean isValid(int row) {
+			return (valid[row >>> 6] & (1L << row)) != 0;
+		}
+
+		public int getValidCount() {
+			int count = 0;
+			for (long word : valid) {
+				count += Long.bitCount(word);
+			}
+			return count;
+		}
+
+		/**
+		 * @return bit n of word n / 64 is set when row n is valid
+		 */
+		public long[] getValidRows() {
+			return valid.clone();
+		}
+
+		/**
+		 * @return VALID, or the rejection Reason's ordinal plus one
+		 */
+		public byte getReasonCode(int row) {
+			return reasons[row];
+		}
+
+		/**
+		 * @return why the row was rejected, or null when it is valid
+		 */
+		public SsnParser.Reason getReason(int row) {
+			return reasons[row] == VALID ? null : REASONS[reasons[row] - 1];
+		}
+
+		/**
+		 * @return the InvalidSsnException message for a rejected row, or
+		 *         null when it is valid
+		 */
+		public String getMessage(int row) {
+			SsnParser.Reason reason = getReason(row);
+			return reason == null ? null : reason.message(digits[row]);
+		}
+
+		/**
+		 * @return the Ssn of the row as PackedSsn.toInt() would give it, or
+		 *         SsnParser.MALFORMED when it is not nine digits
+		 */
+		public int getDigits(int row) {
+			return digits[row];
+		}
+	}
+
+}
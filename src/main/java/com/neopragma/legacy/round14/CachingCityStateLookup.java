@@ -0,0 +1,231 @@
+package com.neopragma.legacy.round14;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the results of another CityStateLookup in a bounded,
+ * least-recently-used cache keyed on the 5-digit zip code.
+ * Successful lookups are kept for the time-to-live; zip codes the delegate
+ * reports as not found are remembered for a shorter time so a bad zip
+ * code does not go back to the service on every call. Other failures,
+ * such as timeouts, are not remembered.
+ */
+public class CachingCityStateLookup implements CityStateLookup {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+	public static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private final CityStateLookup delegate;
+	private final int maximumSize;
+	private final long ttlMillis;
+	private final long negativeTtlMillis;
+	private final LongSupplier clock;
+	private final Map<String, CacheEntry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong negativeHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	public CachingCityStateLookup(CityStateLookup delegate) {
+		this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+	}
+
+	/**
+	 * @param delegate - the lookup whose results are cached
+	 * @param maximumSize - number of zip codes kept before the least recently used is evicted
+	 * @param ttlMillis - how long a found city and state is kept
+	 * @param negativeTtlMillis - how long a zip code not found is remembered
+	 */
+	public CachingCityStateLookup(CityStateLookup delegate, int maximumSize,
+			long ttlMillis, long negativeTtlMillis) {
+		this(delegate, maximumSize, ttlMillis, negativeTtlMillis, System::currentTimeMillis);
+	}
+
+	CachingCityStateLookup(CityStateLookup delegate, int maximumSize,
+			long ttlMillis, long negativeTtlMillis, LongSupplier clock) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize must be at least 1");
+		}
+		this.delegate = delegate;
+		this.maximumSize = maximumSize;
+		this.ttlMillis = ttlMillis;
+		this.negativeTtlMillis = negativeTtlMillis;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				if (size() > CachingCityStateLookup.this.maximumSize) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		String key = ZipCodes.normalize(zipCode);
+		CacheEntry entry = cached(key);
+		if (entry != null) {
+			if (entry.failure != null) {
+				negativeHits.incrementAndGet();
+				// A new exception, so each caller's stack trace is its own.
+				throw new CityStateLookupException(entry.failure);
+			}
+			hits.incrementAndGet();
+			return entry.cityState;
+		}
+		misses.incrementAndGet();
+		try {
+			CityState cityState = delegate.lookup(key);
+			put(key, new CacheEntry(cityState, null, clock.getAsLong() + ttlMillis));
+			return cityState;
+		} catch (CityStateLookupException e) {
+			if (e.isNotFound()) {
+				put(key, new CacheEntry(null, e.getWrappedException(), clock.getAsLong() + negativeTtlMillis));
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @param maxEntries - most entries to return
+	 * @return unexpired, found entries, most often hit first; ties go to the
+	 *         most recently used
+	 */
+	public synchronized Map<String, CityState> hotEntries(int maxEntries) {
+		long now = clock.getAsLong();
+		List<Map.Entry<String, CacheEntry>> candidates = new ArrayList<>();
+		for (Map.Entry<String, CacheEntry> entry : entries.entrySet()) {
+			if (entry.getValue().failure == null && entry.getValue().expiresAt > now) {
+				candidates.add(entry);
+			}
+		}
+		Collections.reverse(candidates);
+		candidates.sort((a, b) -> Long.compare(b.getValue().hitCount, a.getValue().hitCount));
+		Map<String, CityState> hot = new LinkedHashMap<>();
+		for (Map.Entry<String, CacheEntry> entry : candidates) {
+			if (hot.size() == maxEntries) {
+				break;
+			}
+			hot.put(entry.getKey(), entry.getValue().cityState);
+		}
+		return hot;
+	}
+
+	/**
+	 * Adds entries, for instance from a snapshot, without counting them as
+	 * misses. Zip codes already cached are left alone, and loading stops
+	 * when the cache is full so nothing is evicted.
+	 *
+	 * @return number of entries added
+	 */
+	public synchronized int preload(Map<String, CityState> cityStates) {
+		long expiresAt = clock.getAsLong() + ttlMillis;
+		int added = 0;
+		for (Map.Entry<String, CityState> cityState : cityStates.entrySet()) {
+			if (entries.size() >= maximumSize) {
+				break;
+			}
+			String key = ZipCodes.normalize(cityState.getKey());
+			if (!entries.containsKey(key)) {
+				entries.put(key, new CacheEntry(cityState.getValue(), null, expiresAt));
+				added++;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Drops every cached entry. Counters are not reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of lookups answered from a remembered not-found
+	 */
+	public long getNegativeHitCount() {
+		return negativeHits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	public long getExpirationCount() {
+		return expirations.get();
+	}
+
+	/**
+	 * @return share of lookups, including remembered failures, that did not
+	 *         go to the delegate; 0 when nothing has been looked up yet
+	 */
+	public double getHitRatio() {
+		long answered = hits.get() + negativeHits.get();
+		long total = answered + misses.get();
+		return total == 0 ? 0.0 : (double) answered / total;
+	}
+
+	private synchronized CacheEntry cached(String key) {
+		CacheEntry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.expiresAt <= clock.getAsLong()) {
+			entries.remove(key);
+			expirations.incrementAndGet();
+			return null;
+		}
+		entry.hitCount++;
+		return entry;
+	}
+
+	private synchronized void put(String key, CacheEntry entry) {
+		entries.put(key, entry);
+	}
+
+	static class CacheEntry {
+		final CityState cityState;
+		final Throwable failure;
+		final long expiresAt;
+		long hitCount;
+
+		CacheEntry(CityState cityState, Throwable failure, long expiresAt) {
+			this.cityState = cityState;
+			this.failure = failure;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.neopragma.legacy.round14;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to a failing service for a while so callers fail fast
+ * instead of waiting on it.
+ *
+ * CLOSED: calls go through; failureThreshold consecutive failures open
+ * the breaker. OPEN: calls are refused until openMillis have passed.
+ * HALF_OPEN: one trial call goes through; success closes the breaker,
+ * failure opens it again.
+ */
+public class CircuitBreaker {
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private final int failureThreshold;
+	private final long openMillis;
+	private final LongSupplier clock;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialInProgress;
+
+	public CircuitBreaker(int failureThreshold, long openMillis) {
+		this(failureThreshold, openMillis, System::currentTimeMillis);
+	}
+
+	CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+		this.clock = clock;
+	}
+
+	/**
+	 * @return true if a call may go to the service now
+	 */
+	public synchronized boolean allowRequest() {
+		if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+			state = State.HALF_OPEN;
+			trialInProgress = false;
+		}
+		if (state == State.HALF_OPEN) {
+			if (trialInProgress) {
+				return false;
+			}
+			trialInProgress = true;
+			return true;
+		}
+		return state == State.CLOSED;
+	}
+
+	public synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		trialInProgress = false;
+		state = State.CLOSED;
+	}
+
+	/**
+	 * Records a call whose outcome says nothing about the service's health,
+	 * such as a zip code not found. The state is unchanged, but when half
+	 * open another trial call may go through.
+	 */
+	public synchronized void recordIgnored() {
+		trialInProgress = false;
+	}
+
+	public synchronized void recordFailure() {
+		consecutiveFailures++;
+		trialInProgress = false;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = clock.getAsLong();
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+}
@@ -1,9 +1,11 @@
 package com.neopragma.legacy.round14;
 
+import java.util.Objects;
+
 public class CityState {
 	
-	private String city;
-	private String state;
+	private final String city;
+	private final String state;
 	
 	public CityState(String city, String state) {
 		this.city = city;
@@ -17,4 +19,33 @@ public class CityState {
 		return state;
 	}
 
+	/**
+	 * @return the state as a UsState, or null when it is not a USPS abbreviation
+	 */
+	public UsState getUsState() {
+		return UsState.fromCode(state);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CityState)) {
+			return false;
+		}
+		CityState that = (CityState) other;
+		return Objects.equals(city, that.city) && Objects.equals(state, that.state);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(city) * 31 + Objects.hashCode(state);
+	}
+
+	@Override
+	public String toString() {
+		return city + ", " + state;
+	}
+
 }
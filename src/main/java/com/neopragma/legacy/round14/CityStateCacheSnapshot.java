@@ -0,0 +1,130 @@
+package com.neopragma.legacy.round14;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Saves the hot entries of a CachingCityStateLookup to a file and loads
+ * them back, so a freshly started process does not have to look up again
+ * the zip codes it resolved most often before it stopped.
+ *
+ * The file is plain text, one zip code per line: zip TAB city TAB state,
+ * hottest first.
+ */
+public class CityStateCacheSnapshot {
+
+	private static final Log LOG = LogFactory.getLog(CityStateCacheSnapshot.class);
+	private static final String SEPARATOR = "\t";
+
+	private final Path file;
+	private final int maxEntries;
+
+	/**
+	 * @param file - where the snapshot is kept
+	 * @param maxEntries - most entries saved or restored
+	 */
+	public CityStateCacheSnapshot(Path file, int maxEntries) {
+		this.file = file;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Writes the cache's hottest entries. The file is replaced in one move,
+	 * so a crash while saving leaves the previous snapshot in place.
+	 *
+	 * @return number of entries saved
+	 */
+	public int save(CachingCityStateLookup cache) throws IOException {
+		Map<String, CityState> hot = cache.hotEntries(maxEntries);
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, CityState> entry : hot.entrySet()) {
+				out.write(entry.getKey() + SEPARATOR + entry.getValue().getCity()
+						+ SEPARATOR + entry.getValue().getState());
+				out.newLine();
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return hot.size();
+	}
+
+	/**
+	 * @return up to maxEntries entries from the snapshot, hottest first;
+	 *         empty when there is no snapshot yet. Malformed lines are skipped.
+	 */
+	public Map<String, CityState> load() throws IOException {
+		Map<String, CityState> entries = new LinkedHashMap<>();
+		try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while (entries.size() < maxEntries && (line = in.readLine()) != null) {
+				String[] fields = line.split(SEPARATOR, -1);
+				if (fields.length == 3 && isZipCode(fields[0])) {
+					entries.put(fields[0], new CityState(fields[1], fields[2]));
+				}
+			}
+		} catch (NoSuchFileException noSnapshotYet) {
+			return entries;
+		}
+		return entries;
+	}
+
+	/**
+	 * Loads the snapshot into the cache on a background thread, so the
+	 * application can start taking work right away.
+	 *
+	 * @return completes with the number of entries added to the cache
+	 */
+	public CompletableFuture<Integer> restoreInBackground(CachingCityStateLookup cache) {
+		CompletableFuture<Integer> restored = new CompletableFuture<>();
+		Thread loader = new Thread(() -> {
+			try {
+				restored.complete(cache.preload(load()));
+			} catch (Exception e) {
+				restored.completeExceptionally(e);
+			}
+		}, "city-state-cache-warm-up");
+		loader.setDaemon(true);
+		loader.start();
+		return restored;
+	}
+
+	/**
+	 * Saves the cache when the JVM shuts down. There is nobody left to tell
+	 * when that save fails, so the failure is logged; the previous snapshot
+	 * stays in place.
+	 *
+	 * @return the registered hook, for Runtime.removeShutdownHook
+	 */
+	public Thread saveOnShutdown(CachingCityStateLookup cache) {
+		Thread hook = new Thread(() -> {
+			try {
+				save(cache);
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("Cannot save the city/state cache snapshot to " + file, e);
+			}
+		}, "city-state-cache-snapshot");
+		Runtime.getRuntime().addShutdownHook(hook);
+		return hook;
+	}
+
+	private static boolean isZipCode(String value) {
+		try {
+			return ZipCodes.normalize(value).equals(value);
+		} catch (CityStateLookupException e) {
+			return false;
+		}
+	}
+
+}
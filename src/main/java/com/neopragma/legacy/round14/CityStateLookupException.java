@@ -1,5 +1,10 @@
 package com.neopragma.legacy.round14;
 
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+
+import java.util.NoSuchElementException;
+
 public class CityStateLookupException extends RuntimeException {
 	private static final long serialVersionUID = 1888264122085012152L;
 	private Throwable wrappedException;
@@ -11,4 +16,15 @@ public class CityStateLookupException extends RuntimeException {
 	public Throwable getWrappedException() {
 		return wrappedException;
 	}
+
+	/**
+	 * @return true when the lookup worked but the zip code is unknown,
+	 *         as opposed to the lookup itself failing
+	 */
+	public boolean isNotFound() {
+		if (wrappedException instanceof HttpResponseException) {
+			return ((HttpResponseException) wrappedException).getStatusCode() == HttpStatus.SC_NOT_FOUND;
+		}
+		return wrappedException instanceof NoSuchElementException;
+	}
 }
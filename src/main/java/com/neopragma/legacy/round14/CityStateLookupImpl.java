@@ -1,69 +1,72 @@
 package com.neopragma.legacy.round14;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URI;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
-public class CityStateLookupImpl implements CityStateLookup {
+/**
+ * Looks up city and state through the internet-based service
+ * api.zippopotam.us. One instance owns a pooled HTTP client that is
+ * reused for every lookup, so create it once and close it on shutdown.
+ */
+public class CityStateLookupImpl implements CityStateLookup, Closeable {
+
+	private final LookupClientConfig config;
+	private final CloseableHttpClient httpClient;
+
+	public CityStateLookupImpl() {
+		this(new LookupClientConfig());
+	}
+
+	public CityStateLookupImpl(LookupClientConfig config) {
+		this.config = config;
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(config.getMaxTotalConnections());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		httpClient = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(config.requestConfig())
+				.setKeepAliveStrategy(config.keepAliveStrategy())
+				.evictIdleConnections(config.getKeepAliveMillis(), TimeUnit.MILLISECONDS)
+				.build();
+	}
 
     /**
      * This method calls the internet-based service
-     * www.zip-codes.com/search to find the city and state
+     * api.zippopotam.us to find the city and state
      * that correspond to the zip code passed in.
      *
      * @param zipCode
      * @return CityState object containing the city and state
      * @throws CityStateLookupException
      */
-    //TODO: Re-think this implementation
 	@Override
 	public CityState lookup(String zipCode) {
 		try {
-            URI uri = new URIBuilder()
-                .setScheme("http")
-                .setHost("api.zippopotam.us")
-                .setPath("/us/" + zipCode.substring(0,5))
-                .build();
-            HttpGet request = new HttpGet(uri);
-            CloseableHttpClient httpclient = HttpClients.createDefault();
-            CloseableHttpResponse response = httpclient.execute(request);
-            String city = "";
-            String state = "";
+            HttpGet request = new HttpGet(config.uriFor(zipCode));
+            CloseableHttpResponse response = httpClient.execute(request);
             try {
-                HttpEntity entity = response.getEntity();
-                if (entity != null) {
-                  	BufferedReader rd = new BufferedReader(
-                        new InputStreamReader(response.getEntity().getContent()));
-           	    	StringBuffer result = new StringBuffer();
-          		    String line = "";
-           		    while ((line = rd.readLine()) != null) {
-           			    result.append(line);
-       		        }
-                    JsonElement jelement = new JsonParser().parse(result.toString());
-                    JsonObject jobject = jelement.getAsJsonObject();
-                    JsonArray jarray = jobject.getAsJsonArray("places");
-                    jobject = jarray.get(0).getAsJsonObject();
-                    city = jobject.get("place name").getAsString();
-                    state = jobject.get("state abbreviation").getAsString();
-                }
+                return ZipServiceResponse.parse(response);
             } finally {
                 response.close();
             }
-            return new CityState(city, state);
 	    } catch (Exception e) {
 	    	throw new CityStateLookupException(e);
 	    }
-	}		
-			
+	}
+
+	/**
+	 * Releases the pooled connections held by this lookup.
+	 */
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
 }
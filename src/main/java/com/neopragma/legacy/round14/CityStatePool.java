@@ -0,0 +1,94 @@
+package com.neopragma.legacy.round14;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out one shared CityState per city and state, so that millions of
+ * addresses in the same few thousand places do not each carry their own
+ * copies of "Houston" and "TX".
+ *
+ * USPS state abbreviations are replaced by the UsState constant's code,
+ * and city names are interned in a concurrent dictionary of their own.
+ * The pool only grows. Real places number about 30,000 for the whole
+ * country, but AddressImpl also pools whatever city and state it is
+ * given, so the pool stops adding places at a maximum; beyond it,
+ * canonical() returns an unshared CityState.
+ */
+public class CityStatePool {
+
+	public static final int DEFAULT_MAXIMUM_PLACES = 100000;
+
+	private static final CityStatePool SHARED = new CityStatePool();
+
+	private final int maximumPlaces;
+	private final ConcurrentMap<String, String> cities = new ConcurrentHashMap<>();
+	private final ConcurrentMap<CityState, CityState> cityStates = new ConcurrentHashMap<>();
+
+	public CityStatePool() {
+		this(DEFAULT_MAXIMUM_PLACES);
+	}
+
+	/**
+	 * @param maximumPlaces - most places, and city names, the pool holds
+	 */
+	public CityStatePool(int maximumPlaces) {
+		this.maximumPlaces = maximumPlaces;
+	}
+
+	/**
+	 * @return the pool used by AddressImpl
+	 */
+	public static CityStatePool shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @return the shared CityState equal to the given one, or the given one
+	 *         when it is new and the pool is full
+	 */
+	public CityState canonical(CityState cityState) {
+		CityState shared = cityStates.get(cityState);
+		if (shared != null) {
+			return shared;
+		}
+		if (cityStates.size() >= maximumPlaces) {
+			return cityState;
+		}
+		shared = new CityState(internCity(cityState.getCity()), internState(cityState.getState()));
+		CityState raced = cityStates.putIfAbsent(shared, shared);
+		return raced == null ? shared : raced;
+	}
+
+	public CityState canonical(String city, String state) {
+		return canonical(new CityState(city, state));
+	}
+
+	/**
+	 * @return number of distinct places in the pool
+	 */
+	public int size() {
+		return cityStates.size();
+	}
+
+	/**
+	 * @return number of distinct city names in the pool
+	 */
+	public int cityCount() {
+		return cities.size();
+	}
+
+	private String internCity(String city) {
+		if (city == null || cities.size() >= maximumPlaces) {
+			return city;
+		}
+		String shared = cities.putIfAbsent(city, city);
+		return shared == null ? city : shared;
+	}
+
+	private String internState(String state) {
+		UsState usState = UsState.fromCode(state);
+		return usState == null ? internCity(state) : usState.getCode();
+	}
+
+}
@@ -1,6 +1,9 @@
 package com.neopragma.legacy.round14;
 
+import java.io.IOException;
 import java.util.Scanner;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * Command line user interface for the job applicant application.
@@ -17,6 +20,9 @@ public class CommandLineProcessor implements Constants {
 	private static final String ZIP_CODE = "Zip Code?";
 
 	private Scanner scanner;
+	private CityStateLookupImpl cityStateLookup;
+	private InstrumentedCityStateLookup instrumentedLookup;
+	private ObjectName metricsName;
 	private String firstName = EMPTY_STRING;
 	private String middleName = EMPTY_STRING;
 	private String lastName = EMPTY_STRING;
@@ -38,6 +44,7 @@ public class CommandLineProcessor implements Constants {
 			firstName = promptFor(FIRST_NAME);
             if (firstName.equals(QUIT)) {
             	scanner.close();
+            	closeCityStateLookup();
             	System.out.println(SIGNOFF_MESSAGE);
             	done = true;
             	break;
@@ -47,7 +54,7 @@ public class CommandLineProcessor implements Constants {
 			ssn = promptFor(SSN);
 			zipCode = promptFor(ZIP_CODE);
             JobApplicantImpl jobApplicant = new JobApplicantImpl(
-            		new AddressImpl(new CityStateLookupImpl(), zipCode),
+            		new AddressImpl(getCityStateLookup(), zipCode),
             		new SsnImpl(ssn),
             		new EnglishName(firstName, middleName, lastName));
             system.add(jobApplicant);
@@ -61,6 +68,36 @@ public class CommandLineProcessor implements Constants {
 		return scanner;
 	}
 
+	CityStateLookup getCityStateLookup() {
+		if (cityStateLookup == null) {
+			cityStateLookup = new CityStateLookupImpl();
+			instrumentedLookup = new InstrumentedCityStateLookup(cityStateLookup);
+			try {
+				metricsName = instrumentedLookup.getMetrics().register("zip-service");
+			} catch (JMException ignored) {
+			}
+		}
+		return instrumentedLookup;
+	}
+
+	private void closeCityStateLookup() {
+		if (cityStateLookup != null) {
+			try {
+				cityStateLookup.close();
+			} catch (IOException ignored) {
+			}
+			cityStateLookup = null;
+			instrumentedLookup = null;
+		}
+		if (metricsName != null) {
+			try {
+				LookupMetrics.unregister(metricsName);
+			} catch (JMException ignored) {
+			}
+			metricsName = null;
+		}
+	}
+
 	void setScanner(Scanner scanner) {
 		this.scanner = scanner;
 	}
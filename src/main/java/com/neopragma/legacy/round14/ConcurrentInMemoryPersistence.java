@@ -0,0 +1,446 @@
+package com.neopragma.legacy.round14;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps job applicants in memory for staging environments and as a hot
+ * tier in front of a slower store. Safe for any number of threads.
+ *
+ * Applicants are held by id in stripes, each an open-addressing table on
+ * a long array of keys, so findById(int) boxes nothing. Reads take no lock:
+ * entries never move within a table, a deleted entry only loses its value,
+ * and a table that has to grow is rebuilt and published whole. Writes lock
+ * one stripe. Display names are indexed in a ConcurrentHashMap.
+ *
+ * snapshot() writes every applicant as of one instant to a file. It locks
+ * all stripes only long enough to mark their tables shared; the file is
+ * written from those tables afterwards while writers carry on, each
+ * stripe's first write copying its table instead of changing it.
+ */
+public class ConcurrentInMemoryPersistence implements EnumerablePersistence {
+
+	public static final int DEFAULT_STRIPES = 64;
+
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+	private static final int INITIAL_STRIPE_CAPACITY = 16;
+	private static final long EMPTY = 0;
+	private static final long PRESENT = 1L << 32;
+	private static final int END_OF_SNAPSHOT = 0;
+
+	private final Stripe[] stripes;
+	private final int stripeShift;
+	private final ConcurrentMap<String, Set<Integer>> idsByName = new ConcurrentHashMap<>();
+	private final AtomicLong snapshotFailures = new AtomicLong();
+
+	public ConcurrentInMemoryPersistence() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param stripes - number of independently locked tables, rounded up
+	 *                  to a power of two; more stripes, less contention
+	 */
+	public ConcurrentInMemoryPersistence(int stripes) {
+		int count = Integer.highestOneBit(Math.max(1, stripes * 2 - 1));
+		this.stripes = new Stripe[count];
+		for (int i = 0 ; i < count ; i++) {
+			this.stripes[i] = new Stripe();
+		}
+		stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the applicant has no id
+	 */
+	@Override
+	public void save(JobApplicant data) {
+		Integer id = data.getId();
+		if (id == null) {
+			throw new IllegalArgumentException("Job applicant has no id");
+		}
+		int hash = hash(id);
+		stripeFor(hash).put(id, hash, data);
+	}
+
+	@Override
+	public void delete(Integer id) {
+		if (id != null) {
+			int hash = hash(id);
+			stripeFor(hash).remove(id, hash);
+		}
+	}
+
+	@Override
+	public JobApplicant findById(Integer id) {
+		return id == null ? null : findById(id.intValue());
+	}
+
+	public JobApplicant findById(int id) {
+		int hash = hash(id);
+		return stripeFor(hash).get(id, hash);
+	}
+
+	/**
+	 * @param name - display name of the applicant
+	 * @return an applicant with that display name, or null when there is none
+	 */
+	@Override
+	public JobApplicant findByName(String name) {
+		Set<Integer> ids = idsByName.get(name);
+		if (ids == null) {
+			return null;
+		}
+		for (Integer id : ids) {
+			// The applicant may have been renamed since the set was read.
+			JobApplicant applicant = findById(id.intValue());
+			if (applicant != null && name.equals(displayNameOf(applicant))) {
+				return applicant;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void forEachApplicant(Consumer<? super JobApplicant> action) {
+		for (Stripe stripe : stripes) {
+			Table current = stripe.table;
+			for (int slot = 0 ; slot < current.values.length() ; slot++) {
+				JobApplicant applicant = current.values.get(slot);
+				if (applicant != null) {
+					action.accept(applicant);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of applicants saved and not deleted
+	 */
+	public long size() {
+		long size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Writes every applicant as of one instant to file, replacing it only
+	 * once the snapshot is complete and forced to the device.
+	 * Applicants are written as records framed by RecordFraming, followed
+	 * by a zero length and their count.
+	 *
+	 * @return number of applicants written
+	 */
+	public long snapshot(Path file) throws IOException {
+		Table[] tables = capture();
+		Path partial = file.resolveSibling(file.getFileName() + ".partial");
+		long count = 0;
+		try (FileOutputStream raw = new FileOutputStream(partial.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(raw))) {
+			for (Table table : tables) {
+				for (int i = 0 ; i < table.values.length() ; i++) {
+					JobApplicant applicant = table.values.get(i);
+					if (applicant != null) {
+						out.write(RecordFraming.frame(JobApplicantCodec.encode(applicant)).array());
+						count++;
+					}
+				}
+			}
+			out.writeInt(END_OF_SNAPSHOT);
+			out.writeLong(count);
+			out.flush();
+			raw.getFD().sync();
+		}
+		Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return count;
+	}
+
+	/**
+	 * Saves every applicant in a file written by snapshot().
+	 *
+	 * @return number of applicants read
+	 * @throws IOException when the file is not a complete snapshot; the
+	 *         applicants before the damage have been saved
+	 */
+	public long restore(Path file) throws IOException {
+		long count = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			for (int length = in.readInt() ; length != END_OF_SNAPSHOT ; length = in.readInt()) {
+				int checksum = in.readInt();
+				byte[] record = new byte[length];
+				in.readFully(record);
+				if (RecordFraming.crc(record) != checksum) {
+					throw new IOException("Corrupted record " + count + " in snapshot " + file);
+				}
+				save(JobApplicantCodec.decode(record));
+				count++;
+			}
+			if (in.readLong() != count) {
+				throw new IOException("Snapshot " + file + " is incomplete");
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Takes a snapshot to file every period on a daemon thread until the
+	 * returned Closeable is closed. A snapshot that fails leaves the
+	 * previous one in place and is counted in getSnapshotFailureCount().
+	 */
+	public Closeable snapshotEvery(Path file, long period, TimeUnit unit) {
+		ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "in-memory-persistence-snapshots");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshots.scheduleWithFixedDelay(() -> {
+			try {
+				snapshot(file);
+			} catch (IOException | RuntimeException e) {
+				snapshotFailures.incrementAndGet();
+			}
+		}, period, period, unit);
+		return snapshots::shutdownNow;
+	}
+
+	public long getSnapshotFailureCount() {
+		return snapshotFailures.get();
+	}
+
+	/**
+	 * Holds the lock of every stripe at once, so that no write happens
+	 * between marking the first table shared and the last.
+	 *
+	 * @return the table of each stripe
+	 */
+	private Table[] capture() {
+		Table[] tables = new Table[stripes.length];
+		int locked = 0;
+		try {
+			for (Stripe stripe : stripes) {
+				stripe.lock.lock();
+				locked++;
+			}
+			for (int i = 0 ; i < stripes.length ; i++) {
+				stripes[i].shared = true;
+				tables[i] = stripes[i].table;
+			}
+		} finally {
+			while (locked > 0) {
+				stripes[--locked].lock.unlock();
+			}
+		}
+		return tables;
+	}
+
+	private void indexName(int id, JobApplicant previous, JobApplicant applicant) {
+		String name = displayNameOf(applicant);
+		if (previous != null) {
+			String previousName = displayNameOf(previous);
+			if (previousName.equals(name)) {
+				return;
+			}
+			unindexName(id, previous);
+		}
+		// Added inside compute(), so an unindexName() emptying the set
+		// cannot remove it from the map in between.
+		idsByName.compute(name, (key, ids) -> {
+			if (ids == null) {
+				ids = ConcurrentHashMap.newKeySet();
+			}
+			ids.add(id);
+			return ids;
+		});
+	}
+
+	private void unindexName(int id, JobApplicant applicant) {
+		idsByName.computeIfPresent(displayNameOf(applicant), (name, ids) -> {
+			ids.remove(id);
+			return ids.isEmpty() ? null : ids;
+		});
+	}
+
+	private static String displayNameOf(JobApplicant applicant) {
+		return applicant.getName() == null ? Constants.EMPTY_STRING : applicant.getName().displayName();
+	}
+
+	private Stripe stripeFor(int hash) {
+		return stripes[stripeShift == 32 ? 0 : hash >>> stripeShift];
+	}
+
+	/**
+	 * Stripes are picked by the high bits of the hash and slots by the
+	 * low bits, so the product's high bits are folded into the low ones.
+	 */
+	private static int hash(int id) {
+		int hash = id * HASH_MULTIPLIER;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Any int is a valid id, so keys carry a bit above the id to tell them
+	 * from empty slots.
+	 */
+	private static long key(int id) {
+		return PRESENT | (id & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Keys and values of one stripe. A key, once set, stays in its slot for
+	 * the life of the table; deleting an applicant clears only its value.
+	 */
+	private static final class Table {
+		final AtomicLongArray keys;
+		final AtomicReferenceArray<JobApplicant> values;
+		int usedSlots;
+		int size;
+
+		Table(int capacity) {
+			keys = new AtomicLongArray(capacity);
+			values = new AtomicReferenceArray<>(capacity);
+		}
+
+		/**
+		 * @return the slot holding key, or -1
+		 */
+		int slotOf(long key, int hash) {
+			int mask = keys.length() - 1;
+			for (int slot = hash & mask ; ; slot = (slot + 1) & mask) {
+				long found = keys.get(slot);
+				if (found == key) {
+					return slot;
+				}
+				if (found == EMPTY) {
+					return -1;
+				}
+			}
+		}
+
+		/**
+		 * @return a copy with room for twice as many applicants again, and
+		 *         without the keys of deleted ones
+		 */
+		Table rebuilt() {
+			Table copy = new Table(Math.max(INITIAL_STRIPE_CAPACITY, Integer.highestOneBit(size * 4 + 1) * 2));
+			int mask = copy.keys.length() - 1;
+			for (int i = 0 ; i < keys.length() ; i++) {
+				JobApplicant applicant = values.get(i);
+				if (applicant != null) {
+					long key = keys.get(i);
+					int slot = hash((int) key) & mask;
+					while (copy.keys.get(slot) != EMPTY) {
+						slot = (slot + 1) & mask;
+					}
+					copy.values.set(slot, applicant);
+					copy.keys.set(slot, key);
+					copy.usedSlots++;
+					copy.size++;
+				}
+			}
+			return copy;
+		}
+	}
+
+	private final class Stripe {
+		final ReentrantLock lock = new ReentrantLock();
+		volatile Table table = new Table(INITIAL_STRIPE_CAPACITY);
+		// Set while a snapshot may still be reading the table.
+		boolean shared;
+
+		JobApplicant get(int id, int hash) {
+			Table current = table;
+			int slot = current.slotOf(key(id), hash);
+			return slot < 0 ? null : current.values.get(slot);
+		}
+
+		void put(int id, int hash, JobApplicant applicant) {
+			lock.lock();
+			try {
+				Table current = writable();
+				long key = key(id);
+				int mask = current.keys.length() - 1;
+				int slot = hash & mask;
+				while (current.keys.get(slot) != key && current.keys.get(slot) != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				JobApplicant previous = current.values.getAndSet(slot, applicant);
+				if (current.keys.get(slot) == EMPTY) {
+					// The value is set first, so a reader that finds the key
+					// finds the value too.
+					current.keys.set(slot, key);
+					current.usedSlots++;
+				}
+				if (previous == null) {
+					current.size++;
+				}
+				indexName(id, previous, applicant);
+				if (current.usedSlots * 2 > current.keys.length()) {
+					table = current.rebuilt();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void remove(int id, int hash) {
+			lock.lock();
+			try {
+				Table current = table;
+				int slot = current.slotOf(key(id), hash);
+				if (slot < 0 || current.values.get(slot) == null) {
+					return;
+				}
+				current = writable();
+				slot = current.slotOf(key(id), hash);
+				JobApplicant previous = current.values.getAndSet(slot, null);
+				current.size--;
+				unindexName(id, previous);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		int size() {
+			lock.lock();
+			try {
+				return table.size;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * @return the table, first replaced by a copy if a snapshot may be
+		 *         reading it
+		 */
+		private Table writable() {
+			if (shared) {
+				table = table.rebuilt();
+				shared = false;
+			}
+			return table;
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.neopragma.legacy.round14;
+
+public class DuplicateSsnException extends RuntimeException {
+
+	private static final long serialVersionUID = -3170553641904839027L;
+	private String message;
+
+	public DuplicateSsnException(String message) {
+		this.message = message;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+}
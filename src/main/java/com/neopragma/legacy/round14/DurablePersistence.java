@@ -0,0 +1,15 @@
+package com.neopragma.legacy.round14;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Persistence backed by files that outlive the process.
+ */
+public interface DurablePersistence extends EnumerablePersistence, Closeable {
+
+	/**
+	 * Forces every save and delete made so far to the storage device.
+	 */
+	void sync() throws IOException;
+}
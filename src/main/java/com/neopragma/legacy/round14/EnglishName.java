@@ -1,57 +1,77 @@
 package com.neopragma.legacy.round14;
 
-import java.text.MessageFormat;
-
 /**
  * A person's name in English form.
  */
 public class EnglishName implements Name, Constants {
 
+	private final static int NAME_PARTS = 3;
 	private final static String displayFormatPattern = "{0} {1}{2}";
 	private final static String sortableFormatPattern = "{2} {1}{0}";
-	private String firstName = null;
-	private String middleName = null;
-	private String lastName = null;
+	private final static NamePattern displayFormat = NamePattern.compile(displayFormatPattern);
+	private final static NamePattern sortableFormat = NamePattern.compile(sortableFormatPattern);
+	private final String firstName;
+	private final String middleName;
+	private final String lastName;
+	private String displayName;
+	private String sortableName;
 
 	/**
      * Constructor for English names
 	 * @param nameParts - first, middle, last
 	 */
 	public EnglishName(String...nameParts) {
-		if (nameParts.length != 3 ||
-				isEmpty(nameParts[0]) ||
-				isEmpty(nameParts[2])) {
-			throw new IllegalArgumentException();
+		NameRules.Reason reason = NameRules.check(nameParts, NAME_PARTS);
+		if (reason != null) {
+			throw new InvalidNameException(reason.getMessage());
 		}
 		firstName = nameParts[0];
 		middleName = nameParts[1];
 		lastName = nameParts[2];
 	}
 
+	/**
+	 * Checks name parts without throwing, for bulk intake.
+	 *
+	 * @return the EnglishName, or the NameRules.Reason it was rejected for
+	 */
+	public static ValidationResult<EnglishName> validate(String...nameParts) {
+		NameRules.Reason reason = NameRules.check(nameParts, NAME_PARTS);
+		if (reason != null) {
+			return ValidationResult.invalid(reason, reason.getMessage());
+		}
+		return ValidationResult.valid(new EnglishName(nameParts));
+	}
+
+	/**
+	 * Formatted on first use and kept, as the name cannot change.
+	 */
 	@Override
 	public String displayName() {
-		return MessageFormat.format(displayFormatPattern,
-				firstName,
-				initial(middleName),
-				lastName);
+		if (displayName == null) {
+			displayName = displayFormat.format(
+					firstName,
+					initial(middleName),
+					lastName);
+		}
+		return displayName;
 	}
 
 	@Override
 	public String sortableName() {
-		return MessageFormat.format(sortableFormatPattern,
-				firstName,
-				isEmpty(middleName) ? EMPTY_STRING : middleName + SPACE,
-				lastName);
+		if (sortableName == null) {
+			sortableName = sortableFormat.format(
+					firstName,
+					NameRules.isEmpty(middleName) ? EMPTY_STRING : middleName + SPACE,
+					lastName);
+		}
+		return sortableName;
 	}
 
 	private String initial(String value) {
-		if (isEmpty(value)) {
+		if (NameRules.isEmpty(value)) {
 			return EMPTY_STRING;
 		}
 		return value.substring(0,1) + PERIOD_SPACE;
 	}
-
-	private boolean isEmpty(String value) {
-		return (value == null || value == EMPTY_STRING);
-	}
 }
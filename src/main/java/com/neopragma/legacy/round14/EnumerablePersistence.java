@@ -0,0 +1,17 @@
+package com.neopragma.legacy.round14;
+
+import java.util.function.Consumer;
+
+/**
+ * Persistence that can hand over every applicant it holds, e.g. so that
+ * an SsnIndex can be rebuilt from it when the system starts.
+ */
+public interface EnumerablePersistence extends Persistence {
+
+	/**
+	 * Passes each applicant saved and not deleted to action, in no
+	 * particular order. Saves and deletes made meanwhile may or may not
+	 * be seen.
+	 */
+	void forEachApplicant(Consumer<? super JobApplicant> action);
+}
@@ -0,0 +1,43 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Records the latency and outcome of every lookup made through another
+ * CityStateLookup in a LookupMetrics. Wrap the tier to be measured, e.g.
+ * the remote lookup under a cache, or the cache itself to see what
+ * callers experience.
+ */
+public class InstrumentedCityStateLookup implements CityStateLookup {
+
+	private final CityStateLookup delegate;
+	private final LookupMetrics metrics;
+
+	public InstrumentedCityStateLookup(CityStateLookup delegate) {
+		this(delegate, new LookupMetrics());
+	}
+
+	public InstrumentedCityStateLookup(CityStateLookup delegate, LookupMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		long start = metrics.started();
+		try {
+			CityState cityState = delegate.lookup(zipCode);
+			metrics.succeeded(start);
+			return cityState;
+		} catch (CityStateLookupException e) {
+			metrics.failed(start, e.isNotFound());
+			throw e;
+		} catch (RuntimeException e) {
+			metrics.failed(start, false);
+			throw e;
+		}
+	}
+
+	public LookupMetrics getMetrics() {
+		return metrics;
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Thrown by the Name constructors for missing name parts. It is an
+ * IllegalArgumentException, as those constructors always threw.
+ */
+public class InvalidNameException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = -2361573071512894517L;
+
+	public InvalidNameException(String message) {
+		super(message);
+	}
+
+	/**
+	 * @return an exception without a stack trace, for bulk intake
+	 */
+	public static InvalidNameException stackless(String message) {
+		return new Stackless(message);
+	}
+
+	private static class Stackless extends InvalidNameException {
+		private static final long serialVersionUID = 5263179950417040271L;
+
+		Stackless(String message) {
+			super(message);
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+}
@@ -8,6 +8,22 @@ public class InvalidSsnException extends RuntimeException {
 	public InvalidSsnException(String message) {
 		this.message = message;
 	}
+
+	/**
+	 * @param captureStackTrace - false to skip filling in the stack trace,
+	 *                  which is most of the cost of throwing
+	 */
+	public InvalidSsnException(String message, boolean captureStackTrace) {
+		super(message, null, false, captureStackTrace);
+		this.message = message;
+	}
+
+	/**
+	 * @return an exception without a stack trace, for bulk intake
+	 */
+	public static InvalidSsnException stackless(String message) {
+		return new InvalidSsnException(message, false);
+	}
 	
 	public String getMessage() {
 		return message;
@@ -0,0 +1,135 @@
+package com.neopragma.legacy.round14;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Turns job applicants into bytes for the file-backed Persistence
+ * implementations and back.
+ *
+ * A record is: kind (byte), id (int), then for a saved applicant display
+ * name, sortable name (modified UTF-8), Ssn digits (int, MALFORMED when
+ * there are none), zip code, city and state (modified UTF-8). A deleted
+ * applicant's record, its tombstone, stops after the id.
+ *
+ * Names come back as StoredName and Ssns as PackedSsn; a missing Ssn or
+ * address comes back as NullSsn or NullAddress.
+ */
+public class JobApplicantCodec {
+
+	public static final byte SAVED = 1;
+	public static final byte DELETED = 2;
+
+	private static final int ID_OFFSET = 1;
+	private static final int NAME_OFFSET = 5;
+
+	private JobApplicantCodec() { }
+
+	/**
+	 * @throws IllegalArgumentException when the applicant has no id
+	 */
+	public static byte[] encode(JobApplicant applicant) {
+		Integer id = applicant.getId();
+		if (id == null) {
+			throw new IllegalArgumentException("Job applicant has no id");
+		}
+		Name name = applicant.getName() == null ? new NullName() : applicant.getName();
+		Address address = applicant.getAddress() == null ? new NullAddress() : applicant.getAddress();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(SAVED);
+			out.writeInt(id);
+			out.writeUTF(name.displayName());
+			out.writeUTF(name.sortableName());
+			out.writeInt(SsnIndex.digitsOf(applicant.getSsn()));
+			out.writeUTF(address.getZipCode());
+			out.writeUTF(address.getCity());
+			out.writeUTF(address.getState());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static byte[] encodeDeleted(int id) {
+		return new byte[] { DELETED, (byte) (id >>> 24), (byte) (id >>> 16), (byte) (id >>> 8), (byte) id };
+	}
+
+	/**
+	 * @throws IOException when the bytes are not a saved applicant
+	 */
+	public static JobApplicant decode(byte[] record) throws IOException {
+		if (kind(record) != SAVED) {
+			throw new IOException("Not a saved job applicant record");
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, ID_OFFSET,
+				record.length - ID_OFFSET))) {
+			int id = in.readInt();
+			Name name = new StoredName(in.readUTF(), in.readUTF());
+			int ssn = in.readInt();
+			String zipCode = in.readUTF();
+			String city = in.readUTF();
+			String state = in.readUTF();
+			Address address = zipCode.isEmpty() && city.isEmpty() && state.isEmpty()
+					? new NullAddress() : new AddressImpl(city, state, zipCode);
+			return new JobApplicantImpl(id, address,
+					ssn == SsnParser.MALFORMED ? new NullSsn() : PackedSsn.unchecked(ssn), name);
+		}
+	}
+
+	/**
+	 * @return SAVED or DELETED
+	 */
+	public static byte kind(byte[] record) {
+		return record[0];
+	}
+
+	public static int id(byte[] record) {
+		return (record[ID_OFFSET] & 0xFF) << 24 | (record[ID_OFFSET + 1] & 0xFF) << 16
+				| (record[ID_OFFSET + 2] & 0xFF) << 8 | (record[ID_OFFSET + 3] & 0xFF);
+	}
+
+	/**
+	 * @return the display name as it appears in records, for hasDisplayName()
+	 */
+	public static byte[] encodeDisplayName(String displayName) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(displayName.length() + 2);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeUTF(displayName);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Compares the display name of a saved applicant with one encoded by
+	 * encodeDisplayName() without decoding it, for searching by name.
+	 */
+	public static boolean hasDisplayName(byte[] record, byte[] encodedDisplayName) {
+		if (record.length < NAME_OFFSET + encodedDisplayName.length) {
+			return false;
+		}
+		for (int i = 0 ; i < encodedDisplayName.length ; i++) {
+			if (record[NAME_OFFSET + i] != encodedDisplayName[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads only the display name of a saved applicant, for searching by
+	 * name without decoding whole records.
+	 */
+	public static String displayName(byte[] record) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, NAME_OFFSET,
+				record.length - NAME_OFFSET))) {
+			return in.readUTF();
+		}
+	}
+
+}
@@ -1,15 +1,129 @@
 package com.neopragma.legacy.round14;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class JobApplicantSystem {
 
     private Persistence persistence;
+    private volatile SsnIndex ssnIndex;
+    private volatile boolean rejectDuplicateSsns;
+    private final AtomicLong duplicateSsnCount = new AtomicLong();
 
     public JobApplicantSystem() {
         persistence = new PersistenceImpl();
     }
 
+    /**
+     * Over a WriteBehindPersistence the save is only queued, so a write
+     * that fails later leaves the Ssn in the index as submitted; use
+     * addAsync() to have it forgotten.
+     *
+     * @throws DuplicateSsnException when duplicate Ssns are rejected and
+     *         the applicant's Ssn was already submitted
+     */
     public void add(JobApplicant jobApplicant) {
-        persistence.save(jobApplicant);
+        int indexedSsn = checkSsn(jobApplicant);
+        try {
+            persistence.save(jobApplicant);
+        } catch (RuntimeException e) {
+            unindex(indexedSsn);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the applicant and forgets its Ssn, so that it may be
+     * submitted again. Delete through here rather than through the
+     * persistence while duplicate Ssns are checked. When duplicates are
+     * only counted, another applicant may still have the same Ssn.
+     */
+    public void delete(Integer id) {
+        JobApplicant deleted = persistence.findById(id);
+        persistence.delete(id);
+        SsnIndex index = ssnIndex;
+        if (deleted != null && index != null) {
+            int ssn = SsnIndex.digitsOf(deleted.getSsn());
+            if (ssn != SsnParser.MALFORMED) {
+                index.remove(ssn);
+            }
+        }
+    }
+
+    /**
+     * Adds the applicant without waiting for storage when the persistence
+     * is a WriteBehindPersistence; otherwise saves it at once.
+     *
+     * @return completed once the applicant is stored
+     * @throws DuplicateSsnException when duplicate Ssns are rejected and
+     *         the applicant's Ssn was already submitted
+     * @throws IllegalArgumentException when the applicant has no id
+     */
+    public CompletableFuture<Void> addAsync(JobApplicant jobApplicant) {
+        if (!(persistence instanceof WriteBehindPersistence)) {
+            add(jobApplicant);
+            return CompletableFuture.completedFuture(null);
+        }
+        int indexedSsn = checkSsn(jobApplicant);
+        CompletableFuture<Void> saved;
+        try {
+            saved = ((WriteBehindPersistence) persistence).saveAsync(jobApplicant);
+        } catch (RuntimeException e) {
+            unindex(indexedSsn);
+            throw e;
+        }
+        return saved.whenComplete((done, failure) -> {
+            if (failure != null) {
+                unindex(indexedSsn);
+            }
+        });
+    }
+
+    /**
+     * @return the Ssn digits added to the index, or SsnParser.MALFORMED
+     *         when none were
+     */
+    private int checkSsn(JobApplicant jobApplicant) {
+        SsnIndex index = ssnIndex;
+        int ssn = index == null ? SsnParser.MALFORMED : SsnIndex.digitsOf(jobApplicant.getSsn());
+        boolean indexed = ssn != SsnParser.MALFORMED && index.addIfAbsent(ssn);
+        if (ssn != SsnParser.MALFORMED && !indexed) {
+            duplicateSsnCount.incrementAndGet();
+            if (rejectDuplicateSsns) {
+                throw new DuplicateSsnException(jobApplicant.getSsn().formatSsn() + " has already been submitted");
+            }
+        }
+        return indexed ? ssn : SsnParser.MALFORMED;
+    }
+
+    private void unindex(int indexedSsn) {
+        SsnIndex index = ssnIndex;
+        if (indexedSsn != SsnParser.MALFORMED && index != null) {
+            index.remove(indexedSsn);
+        }
+    }
+
+    /**
+     * Checks every added applicant's Ssn against those already submitted.
+     * When the persistence can enumerate its applicants, the index is
+     * first rebuilt from them; call this at startup, before taking work.
+     *
+     * @param rejectDuplicates - true to throw DuplicateSsnException, false
+     *                  to save the applicant and only count the duplicate
+     */
+    public void checkDuplicateSsns(SsnIndex ssnIndex, boolean rejectDuplicates) {
+        if (persistence instanceof EnumerablePersistence) {
+            ssnIndex.rebuildFrom((EnumerablePersistence) persistence);
+        }
+        this.rejectDuplicateSsns = rejectDuplicates;
+        this.ssnIndex = ssnIndex;
+    }
+
+    /**
+     * @return number of applicants added whose Ssn had already been submitted
+     */
+    public long getDuplicateSsnCount() {
+        return duplicateSsnCount.get();
     }
 
     public Persistence persistence() {
@@ -0,0 +1,652 @@
+package com.neopragma.legacy.round14;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps job applicants in a directory of append-only segment files.
+ *
+ * Every save appends the applicant's record to the newest segment and
+ * every delete appends a tombstone; an in-memory index maps each id to
+ * where its current record is, so findById is one positioned read. When
+ * a segment reaches its size limit a new one is started. Records are
+ * JobApplicantCodec payloads framed by RecordFraming. On open the
+ * segments are read in order to rebuild the index, and a torn or corrupted tail of the last segment is
+ * cut off; a corrupted record in any other segment is an error.
+ *
+ * Each segment has a BloomFilter of the display names saved in it, so
+ * findByName reads only the segments that may hold the name, newest first,
+ * and one of the ids saved in it, so compaction keeps a tombstone only
+ * while an older segment may still hold a record it deletes.
+ *
+ * A background thread rewrites full segments in which more than half the
+ * bytes belong to replaced or deleted applicants, copying only the current
+ * records at a limited rate so that compaction does not starve requests of
+ * disk bandwidth. A rewritten segment keeps its place in the order. The
+ * directory is forced to the device after a segment is replaced, before
+ * the next rewrite can drop a tombstone because of it.
+ *
+ * Saves and deletes reach the operating system when they return; call
+ * sync() to force them to the device.
+ */
+public class LogStructuredPersistence implements DurablePersistence {
+
+	public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+	public static final long DEFAULT_COMPACTION_BYTES_PER_SECOND = 8L * 1024 * 1024;
+
+	private static final String SEGMENT_PREFIX = "applicants-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String COMPACTING_SUFFIX = ".compacting";
+	private static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+	private static final int BYTES_PER_RECORD = 64;
+	private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+	private static final long COMPACTION_CHECK_MILLIS = 1000;
+
+	private final Path directory;
+	private final long segmentBytes;
+	private final long compactionBytesPerSecond;
+	private final ConcurrentMap<Integer, Location> index = new ConcurrentHashMap<>();
+	private final Object compactionLock = new Object();
+	// Set when a rewrite renamed or deleted a segment file and the
+	// directory has not been forced since; guarded by compactionLock.
+	private boolean directoryChanged;
+	private final ScheduledExecutorService compactor;
+	private final AtomicLong compactedBytes = new AtomicLong();
+	private volatile List<Segment> segments = Collections.emptyList();
+	private Segment active;
+	private long truncatedBytes;
+	private volatile long appends;
+	private volatile boolean closed;
+
+	public LogStructuredPersistence(Path directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_COMPACTION_BYTES_PER_SECOND);
+	}
+
+	/**
+	 * @param directory - holds the segment files, created if missing
+	 * @param segmentBytes - size at which a segment is closed to new records
+	 * @param compactionBytesPerSecond - most bytes background compaction
+	 *                  copies per second, or 0 to compact only when
+	 *                  compact() is called
+	 */
+	public LogStructuredPersistence(Path directory, long segmentBytes,
+			long compactionBytesPerSecond) throws IOException {
+		this.directory = directory;
+		this.segmentBytes = segmentBytes;
+		this.compactionBytesPerSecond = compactionBytesPerSecond;
+		Files.createDirectories(directory);
+		open();
+		if (compactionBytesPerSecond > 0) {
+			compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "log-structured-persistence-compactor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			compactor.scheduleWithFixedDelay(this::compactInBackground,
+					COMPACTION_CHECK_MILLIS, COMPACTION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+		} else {
+			compactor = null;
+		}
+	}
+
+	/**
+	 * Saves the applicant under its id, replacing any applicant saved with
+	 * the same id.
+	 *
+	 * @throws IllegalArgumentException when the applicant has no id
+	 */
+	@Override
+	public void save(JobApplicant data) {
+		byte[] payload = JobApplicantCodec.encode(data);
+		String displayName = data.getName() == null ? Constants.EMPTY_STRING : data.getName().displayName();
+		synchronized (this) {
+			Location location = append(payload);
+			location.segment.names.add(displayName);
+			location.segment.ids.add(data.getId());
+			Location replaced = index.put(data.getId(), location);
+			if (replaced != null) {
+				replaced.segment.garbageBytes.addAndGet(replaced.length);
+			}
+		}
+	}
+
+	@Override
+	public void delete(Integer id) {
+		if (id == null) {
+			return;
+		}
+		synchronized (this) {
+			Location deleted = index.get(id);
+			if (deleted == null) {
+				return;
+			}
+			Location tombstone = append(JobApplicantCodec.encodeDeleted(id));
+			index.remove(id);
+			deleted.segment.garbageBytes.addAndGet(deleted.length);
+			// A tombstone is only kept while an older segment may hold the
+			// record it deletes, so it counts as garbage until compaction
+			// finds it still needed.
+			tombstone.segment.garbageBytes.addAndGet(tombstone.length);
+		}
+	}
+
+	@Override
+	public JobApplicant findById(Integer id) {
+		if (id == null) {
+			return null;
+		}
+		while (true) {
+			Location location = index.get(id);
+			if (location == null) {
+				return null;
+			}
+			try {
+				return JobApplicantCodec.decode(read(location));
+			} catch (ClosedChannelException e) {
+				// The segment was compacted after the index was read, unless
+				// this has been closed.
+				if (index.get(id) == location) {
+					throw new PersistenceException("Cannot read job applicant " + id, e);
+				}
+			} catch (IOException e) {
+				throw new PersistenceException("Cannot read job applicant " + id, e);
+			}
+		}
+	}
+
+	/**
+	 * @param name - display name of the applicant
+	 * @return the applicant with that display name saved most recently, or
+	 *         null when there is none
+	 */
+	@Override
+	public JobApplicant findByName(String name) {
+		List<Segment> searched = segments;
+		long appendsBefore = appends;
+		try {
+			JobApplicant found = findByName(searched, name);
+			if (found != null || (segments == searched && appends == appendsBefore)) {
+				return found;
+			}
+		} catch (ClosedChannelException e) {
+			if (closed) {
+				throw new PersistenceException("Cannot search for job applicant " + name, e);
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Cannot search for job applicant " + name, e);
+		}
+		// A save or compaction during the search may have moved the latest
+		// record to a segment already searched; search again holding them off.
+		synchronized (this) {
+			try {
+				return findByName(segments, name);
+			} catch (IOException e) {
+				throw new PersistenceException("Cannot search for job applicant " + name, e);
+			}
+		}
+	}
+
+	@Override
+	public void forEachApplicant(Consumer<? super JobApplicant> action) {
+		for (Integer id : index.keySet()) {
+			JobApplicant applicant = findById(id);
+			if (applicant != null) {
+				action.accept(applicant);
+			}
+		}
+	}
+
+	/**
+	 * @return number of applicants saved and not deleted
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * @return total size of the segment files
+	 */
+	public long getDiskBytes() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			bytes += segment.size;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return bytes reclaimed by compaction since this was opened
+	 */
+	public long getCompactedBytes() {
+		return compactedBytes.get();
+	}
+
+	/**
+	 * @return bytes cut off the ends of segments when this was opened
+	 */
+	public long getTruncatedBytes() {
+		return truncatedBytes;
+	}
+
+	@Override
+	public synchronized void sync() throws IOException {
+		active.channel.force(false);
+	}
+
+	/**
+	 * Rewrites every full segment that holds any replaced or deleted
+	 * applicants, without waiting for the background thread and without
+	 * limiting the rate.
+	 */
+	public void compact() throws IOException {
+		compact(0, 0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (compactor != null) {
+			compactor.shutdown();
+		}
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		// Waits for a rewrite in progress, which stops at its next record.
+		synchronized (compactionLock) {
+			active.channel.force(false);
+			for (Segment segment : segments) {
+				segment.channel.close();
+			}
+		}
+	}
+
+	private void compactInBackground() {
+		try {
+			compact(COMPACTION_GARBAGE_RATIO, compactionBytesPerSecond);
+		} catch (IOException e) {
+			// Left for the next run; the segments are unchanged until a
+			// rewritten one is complete.
+		}
+	}
+
+	private void compact(double garbageRatio, long bytesPerSecond) throws IOException {
+		synchronized (compactionLock) {
+			for (Segment segment : segments) {
+				synchronized (this) {
+					if (closed || segment == active) {
+						return;
+					}
+				}
+				long garbage = segment.garbageBytes.get();
+				if (garbage > 0 && garbage >= segment.size * garbageRatio) {
+					rewrite(segment, bytesPerSecond);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the current records and needed tombstones of a full segment
+	 * to a new file, then swaps the file in under the same name and points
+	 * the index at the copies. Records saved or deleted again while the
+	 * copy is made stay garbage in the new file; the tombstones copied are
+	 * not garbage, so a segment of them is not rewritten again and again.
+	 */
+	private void rewrite(Segment segment, long bytesPerSecond) throws IOException {
+		// Tombstones are kept or dropped by the older segments as rewritten.
+		forceDirectoryIfChanged();
+		Path copy = directory.resolve(segment.path.getFileName() + COMPACTING_SUFFIX);
+		List<Segment> olderSegments = segments.subList(0, segments.indexOf(segment));
+		FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		Segment rewritten = new Segment(segment.sequence, segment.path, out, expectedRecords());
+		List<Integer> ids = new ArrayList<>();
+		List<Location> moved = new ArrayList<>();
+		List<Location> copies = new ArrayList<>();
+		long start = System.nanoTime();
+		try {
+			scan(segment, segment.size, true, (offset, payload) -> {
+				if (closed) {
+					throw new ClosedChannelException();
+				}
+				int id = JobApplicantCodec.id(payload);
+				int length = RecordFraming.HEADER_BYTES + payload.length;
+				if (JobApplicantCodec.kind(payload) == JobApplicantCodec.DELETED) {
+					if (index.containsKey(id) || !mayHold(olderSegments, id)) {
+						return;
+					}
+				} else {
+					Location location = index.get(id);
+					if (location == null || location.segment != segment || location.offset != offset) {
+						return;
+					}
+					rewritten.names.add(JobApplicantCodec.displayName(payload));
+					rewritten.ids.add(id);
+					ids.add(id);
+					moved.add(location);
+					copies.add(new Location(rewritten, rewritten.size, length));
+				}
+				write(out, RecordFraming.frame(payload), rewritten.size);
+				rewritten.size += length;
+				throttle(rewritten.size, start, bytesPerSecond);
+			});
+			out.force(true);
+		} catch (IOException e) {
+			out.close();
+			Files.deleteIfExists(copy);
+			throw e;
+		}
+		synchronized (this) {
+			if (closed) {
+				out.close();
+				Files.deleteIfExists(copy);
+				return;
+			}
+			List<Segment> replaced = new ArrayList<>(segments);
+			if (rewritten.size == 0) {
+				out.close();
+				Files.delete(copy);
+				Files.delete(segment.path);
+				replaced.remove(segment);
+			} else {
+				Files.move(copy, segment.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				for (int i = 0 ; i < moved.size() ; i++) {
+					Location copied = copies.get(i);
+					if (!index.replace(ids.get(i), moved.get(i), copied)) {
+						rewritten.garbageBytes.addAndGet(copied.length);
+					}
+				}
+				replaced.set(replaced.indexOf(segment), rewritten);
+			}
+			segments = Collections.unmodifiableList(replaced);
+			compactedBytes.addAndGet(segment.size - rewritten.size);
+			directoryChanged = true;
+		}
+		segment.channel.close();
+		forceDirectoryIfChanged();
+	}
+
+	/**
+	 * Makes the renames and deletes of rewrites survive a power failure.
+	 * Must be called holding compactionLock.
+	 */
+	private void forceDirectoryIfChanged() throws IOException {
+		if (directoryChanged) {
+			try (FileChannel entries = FileChannel.open(directory, StandardOpenOption.READ)) {
+				entries.force(true);
+			}
+			directoryChanged = false;
+		}
+	}
+
+	private static boolean mayHold(List<Segment> searched, int id) {
+		for (Segment segment : searched) {
+			if (segment.ids.mightContain(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sleeps while more bytes have been copied than the rate allows.
+	 */
+	private static void throttle(long bytesCopied, long startNanos, long bytesPerSecond) {
+		if (bytesPerSecond <= 0) {
+			return;
+		}
+		long aheadNanos = bytesCopied * 1000000000L / bytesPerSecond - (System.nanoTime() - startNanos);
+		if (aheadNanos > TimeUnit.MILLISECONDS.toNanos(1)) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(aheadNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private JobApplicant findByName(List<Segment> searched, String name) throws IOException {
+		byte[] encodedName = JobApplicantCodec.encodeDisplayName(name);
+		for (int i = searched.size() - 1 ; i >= 0 ; i--) {
+			Segment segment = searched.get(i);
+			if (segment.names.mightContain(name)) {
+				JobApplicant found = findByName(segment, encodedName);
+				if (found != null) {
+					return found;
+				}
+			}
+		}
+		return null;
+	}
+
+	private JobApplicant findByName(Segment segment, byte[] encodedName) throws IOException {
+		JobApplicant[] found = new JobApplicant[1];
+		scan(segment, segment.size, false, (offset, payload) -> {
+			if (JobApplicantCodec.kind(payload) == JobApplicantCodec.SAVED
+					&& JobApplicantCodec.hasDisplayName(payload, encodedName)) {
+				Location location = index.get(JobApplicantCodec.id(payload));
+				if (location != null && location.segment == segment && location.offset == offset) {
+					found[0] = JobApplicantCodec.decode(payload);
+				}
+			}
+		});
+		return found[0];
+	}
+
+	/**
+	 * Must be called holding this object's lock.
+	 */
+	private Location append(byte[] payload) {
+		if (closed) {
+			throw new PersistenceException("Persistence has been closed");
+		}
+		try {
+			if (active.size >= segmentBytes) {
+				active.channel.force(false);
+				active = newSegment(active.sequence + 1);
+				List<Segment> added = new ArrayList<>(segments);
+				added.add(active);
+				segments = Collections.unmodifiableList(added);
+			}
+			Location location = new Location(active, active.size, RecordFraming.HEADER_BYTES + payload.length);
+			write(active.channel, RecordFraming.frame(payload), active.size);
+			active.size += location.length;
+			appends++;
+			return location;
+		} catch (IOException e) {
+			throw new PersistenceException("Cannot write to " + active.path, e);
+		}
+	}
+
+	private byte[] read(Location location) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(location.length);
+		while (record.hasRemaining()) {
+			if (location.segment.channel.read(record, location.offset + record.position()) < 0) {
+				throw new EOFException("Unexpected end of " + location.segment.path);
+			}
+		}
+		int length = record.getInt(0);
+		byte[] payload = new byte[length];
+		record.position(RecordFraming.HEADER_BYTES);
+		record.get(payload);
+		if (length != location.length - RecordFraming.HEADER_BYTES
+				|| RecordFraming.crc(payload) != record.getInt(4)) {
+			throw new IOException("Corrupted record at " + location.offset + " of " + location.segment.path);
+		}
+		return payload;
+	}
+
+	private void open() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+			for (Path path : files) {
+				String fileName = path.getFileName().toString();
+				if (fileName.endsWith(COMPACTING_SUFFIX)) {
+					Files.delete(path);
+				} else if (fileName.endsWith(SEGMENT_SUFFIX)) {
+					paths.add(path);
+				}
+			}
+		}
+		Collections.sort(paths);
+		List<Segment> opened = new ArrayList<>();
+		try {
+			for (Path path : paths) {
+				Segment segment = new Segment(sequenceOf(path), path, FileChannel.open(path,
+						StandardOpenOption.READ, StandardOpenOption.WRITE), expectedRecords());
+				opened.add(segment);
+				long size = segment.channel.size();
+				segment.size = scan(segment, size, true, (offset, payload) -> load(segment, offset, payload));
+				if (segment.size < size) {
+					// Only the last segment can have been cut short by a
+					// crash; any other has lost committed records.
+					if (opened.size() < paths.size()) {
+						throw new IOException("Corrupted record at " + segment.size + " of " + path);
+					}
+					truncatedBytes += size - segment.size;
+					segment.channel.truncate(segment.size);
+				}
+			}
+			if (opened.isEmpty()) {
+				opened.add(newSegment(1));
+			}
+		} catch (IOException | RuntimeException e) {
+			for (Segment segment : opened) {
+				segment.channel.close();
+			}
+			throw e;
+		}
+		active = opened.get(opened.size() - 1);
+		segments = Collections.unmodifiableList(opened);
+	}
+
+	private void load(Segment segment, long offset, byte[] payload) throws IOException {
+		Integer id = JobApplicantCodec.id(payload);
+		Location location = new Location(segment, offset, RecordFraming.HEADER_BYTES + payload.length);
+		Location replaced;
+		if (JobApplicantCodec.kind(payload) == JobApplicantCodec.DELETED) {
+			replaced = index.remove(id);
+			segment.garbageBytes.addAndGet(location.length);
+		} else {
+			segment.names.add(JobApplicantCodec.displayName(payload));
+			segment.ids.add(id);
+			replaced = index.put(id, location);
+		}
+		if (replaced != null) {
+			replaced.segment.garbageBytes.addAndGet(replaced.length);
+		}
+	}
+
+	/**
+	 * Calls visitor for each intact record from the start of the segment.
+	 * Checksums need only be verified where the file has not been read
+	 * since it was opened.
+	 *
+	 * @return where the last intact record ends
+	 */
+	private static long scan(Segment segment, long size, boolean verify,
+			RecordVisitor visitor) throws IOException {
+		return RecordFraming.scan(segment.channel, size, MAX_PAYLOAD_BYTES, verify, (offset, payload) -> {
+			if (!isRecord(payload)) {
+				return false;
+			}
+			visitor.visit(offset, payload);
+			return true;
+		});
+	}
+
+	private static boolean isRecord(byte[] payload) {
+		byte kind = JobApplicantCodec.kind(payload);
+		return payload.length >= 5 && (kind == JobApplicantCodec.SAVED || kind == JobApplicantCodec.DELETED);
+	}
+
+	private Segment newSegment(long sequence) throws IOException {
+		Path path = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+		return new Segment(sequence, path, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE), expectedRecords());
+	}
+
+	private int expectedRecords() {
+		return (int) Math.min(Integer.MAX_VALUE / BloomFilter.DEFAULT_BITS_PER_ENTRY,
+				segmentBytes / BYTES_PER_RECORD + 1);
+	}
+
+	private static long sequenceOf(Path path) {
+		String fileName = path.getFileName().toString();
+		return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+				fileName.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static void write(FileChannel out, ByteBuffer record, long position) throws IOException {
+		while (record.hasRemaining()) {
+			out.write(record, position + record.position());
+		}
+	}
+
+	private interface RecordVisitor {
+		void visit(long offset, byte[] payload) throws IOException;
+	}
+
+	/**
+	 * One segment file. Only the active segment is appended to, under the
+	 * persistence's lock; reads use positioned reads and need no lock.
+	 */
+	private static final class Segment {
+		final long sequence;
+		final Path path;
+		final FileChannel channel;
+		final BloomFilter names;
+		final BloomFilter ids;
+		final AtomicLong garbageBytes = new AtomicLong();
+		volatile long size;
+
+		Segment(long sequence, Path path, FileChannel channel, int expectedRecords) {
+			this.sequence = sequence;
+			this.path = path;
+			this.channel = channel;
+			this.names = new BloomFilter(expectedRecords);
+			this.ids = new BloomFilter(expectedRecords);
+		}
+	}
+
+	/**
+	 * Where the current record of an id is. Compared by identity, so the
+	 * index can be updated only if it was not changed in the meantime.
+	 */
+	private static final class Location {
+		final Segment segment;
+		final long offset;
+		final int length;
+
+		Location(Segment segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+}
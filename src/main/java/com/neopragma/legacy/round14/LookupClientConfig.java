@@ -0,0 +1,162 @@
+package com.neopragma.legacy.round14;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * Settings for the long-lived HTTP client used by the zip code lookup.
+ * The defaults point at the public zippopotam.us service; tests and
+ * benchmarks point the client at a local stand-in instead.
+ */
+public class LookupClientConfig {
+
+	private String scheme = "http";
+	private String host = "api.zippopotam.us";
+	private int port = -1;
+	private int maxTotalConnections = 20;
+	private int maxConnectionsPerRoute = 10;
+	private int connectTimeoutMillis = 2000;
+	private int readTimeoutMillis = 5000;
+	private int connectionRequestTimeoutMillis = 2000;
+	private long keepAliveMillis = 30000;
+	private int maxInFlightRequests = 256;
+
+	public LookupClientConfig scheme(String scheme) {
+		this.scheme = scheme;
+		return this;
+	}
+
+	public LookupClientConfig host(String host) {
+		this.host = host;
+		return this;
+	}
+
+	/**
+	 * @param port - port of the zip code service, or -1 for the scheme default
+	 */
+	public LookupClientConfig port(int port) {
+		this.port = port;
+		return this;
+	}
+
+	public LookupClientConfig maxTotalConnections(int maxTotalConnections) {
+		this.maxTotalConnections = maxTotalConnections;
+		return this;
+	}
+
+	public LookupClientConfig maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	public LookupClientConfig connectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		return this;
+	}
+
+	public LookupClientConfig readTimeoutMillis(int readTimeoutMillis) {
+		this.readTimeoutMillis = readTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * @param connectionRequestTimeoutMillis - how long to wait for a free
+	 *                  connection when the pool is exhausted
+	 */
+	public LookupClientConfig connectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+		this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * @param keepAliveMillis - how long an idle connection is kept when the
+	 *                  server does not send a Keep-Alive header
+	 */
+	public LookupClientConfig keepAliveMillis(long keepAliveMillis) {
+		this.keepAliveMillis = keepAliveMillis;
+		return this;
+	}
+
+	/**
+	 * @param maxInFlightRequests - how many asynchronous lookups may be
+	 *                  waiting on the service at once; later ones queue
+	 */
+	public LookupClientConfig maxInFlightRequests(int maxInFlightRequests) {
+		this.maxInFlightRequests = maxInFlightRequests;
+		return this;
+	}
+
+	public String getScheme() {
+		return scheme;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	public int getReadTimeoutMillis() {
+		return readTimeoutMillis;
+	}
+
+	public int getConnectionRequestTimeoutMillis() {
+		return connectionRequestTimeoutMillis;
+	}
+
+	public long getKeepAliveMillis() {
+		return keepAliveMillis;
+	}
+
+	public int getMaxInFlightRequests() {
+		return maxInFlightRequests;
+	}
+
+	URI uriFor(String zipCode) throws URISyntaxException {
+		return new URIBuilder()
+				.setScheme(scheme)
+				.setHost(host)
+				.setPort(port)
+				.setPath("/us/" + zipCode.substring(0,5))
+				.build();
+	}
+
+	RequestConfig requestConfig() {
+		return RequestConfig.custom()
+				.setConnectTimeout(connectTimeoutMillis)
+				.setSocketTimeout(readTimeoutMillis)
+				.setConnectionRequestTimeout(connectionRequestTimeoutMillis)
+				.build();
+	}
+
+	/**
+	 * Honors the server's Keep-Alive header and falls back to keepAliveMillis.
+	 */
+	ConnectionKeepAliveStrategy keepAliveStrategy() {
+		final long defaultKeepAliveMillis = keepAliveMillis;
+		return (response, context) -> {
+			long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return serverKeepAlive > 0 ? serverKeepAlive : defaultKeepAliveMillis;
+		};
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.neopragma.legacy.round14;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency, outcome and in-flight figures for zip code lookups, filled in
+ * by InstrumentedCityStateLookup. They can be read directly, through JMX
+ * after register(), or as a line of text printed at a fixed rate.
+ */
+public class LookupMetrics implements LookupMetricsMXBean {
+
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong successes = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong notFound = new AtomicLong();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile CachingCityStateLookup cache;
+
+	/**
+	 * Reports the hit ratio of a cache in front of the instrumented lookup.
+	 */
+	public LookupMetrics trackCache(CachingCityStateLookup cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * @return the start time to pass to succeeded() or failed()
+	 */
+	long started() {
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	void succeeded(long startNanos) {
+		finished(startNanos);
+		successes.incrementAndGet();
+	}
+
+	/**
+	 * @param unknownZipCode - the lookup worked but the zip code is unknown
+	 */
+	void failed(long startNanos, boolean unknownZipCode) {
+		finished(startNanos);
+		if (unknownZipCode) {
+			notFound.incrementAndGet();
+		} else {
+			failures.incrementAndGet();
+		}
+	}
+
+	private void finished(long startNanos) {
+		latencies.record(System.nanoTime() - startNanos);
+		inFlight.decrementAndGet();
+	}
+
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	@Override
+	public long getSuccessCount() {
+		return successes.get();
+	}
+
+	@Override
+	public long getFailureCount() {
+		return failures.get();
+	}
+
+	@Override
+	public long getNotFoundCount() {
+		return notFound.get();
+	}
+
+	@Override
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	@Override
+	public double getLatencyP50Millis() {
+		return latencies.getPercentileNanos(0.5) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyP99Millis() {
+		return latencies.getPercentileNanos(0.99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyP999Millis() {
+		return latencies.getPercentileNanos(0.999) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getLatencyMaxMillis() {
+		return latencies.getMaxNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getCacheHitRatio() {
+		CachingCityStateLookup tracked = cache;
+		return tracked == null ? Double.NaN : tracked.getHitRatio();
+	}
+
+	@Override
+	public void resetLatencies() {
+		latencies.reset();
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server.
+	 *
+	 * @param name - tells lookups apart when there are several
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName(getClass().getPackage().getName()
+				+ ":type=CityStateLookup,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	public static void unregister(ObjectName objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+	}
+
+	/**
+	 * Prints format() to out every period on a daemon thread until the
+	 * returned Closeable is closed.
+	 */
+	public Closeable printEvery(long period, TimeUnit unit, PrintStream out) {
+		ScheduledExecutorService printer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "city-state-lookup-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		printer.scheduleAtFixedRate(() -> out.println(format()), period, period, unit);
+		return printer::shutdownNow;
+	}
+
+	/**
+	 * @return the metrics on one line, latencies in milliseconds
+	 */
+	public String format() {
+		String line = String.format("zip lookups: %d ok, %d failed, %d not found, %d in flight;"
+				+ " latency ms p50 %.2f p99 %.2f p99.9 %.2f max %.2f",
+				getSuccessCount(), getFailureCount(), getNotFoundCount(), getInFlightCount(),
+				getLatencyP50Millis(), getLatencyP99Millis(), getLatencyP999Millis(), getLatencyMaxMillis());
+		CachingCityStateLookup tracked = cache;
+		return tracked == null ? line : line + String.format("; cache hit ratio %.3f", tracked.getHitRatio());
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Zip code lookup metrics as seen through JMX, e.g. in JConsole under
+ * com.neopragma.legacy.round14:type=CityStateLookup.
+ */
+public interface LookupMetricsMXBean {
+
+	long getSuccessCount();
+
+	long getFailureCount();
+
+	long getNotFoundCount();
+
+	int getInFlightCount();
+
+	double getLatencyP50Millis();
+
+	double getLatencyP99Millis();
+
+	double getLatencyP999Millis();
+
+	double getLatencyMaxMillis();
+
+	/**
+	 * @return hit ratio of the tracked cache; NaN when no cache is tracked
+	 */
+	double getCacheHitRatio();
+
+	/**
+	 * Starts the latency histogram afresh; counters are kept.
+	 */
+	void resetLatencies();
+
+}
@@ -0,0 +1,575 @@
+package com.neopragma.legacy.round14;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps job applicants in fixed-width slots of a memory-mapped file, so
+ * finding one by id is a hash lookup and an offset computation, and saving
+ * one writes eight ints in place.
+ *
+ * A slot holds: status, id, Ssn digits, zip code, and dictionary ids of
+ * the display name, sortable name, city and state. The dictionary is a
+ * second, append-only file of the distinct strings, so each name or city
+ * is stored once however many applicants share it. A zip code is held as
+ * ddddd or ddddd-dddd packed into the int, or through the dictionary when
+ * it is in neither form.
+ *
+ * Deleted slots go on a free list and are reused before the file grows.
+ * The file grows a chunk at a time, each chunk mapped on its own, so
+ * growing never remaps or copies the slots already there.
+ *
+ * Slots are written in place: a save reaches the page cache when it
+ * returns and the device when sync() is called, and a slot being written
+ * when the machine fails can be left part old and part new.
+ */
+public class MappedSlotPersistence implements DurablePersistence {
+
+	public static final int DEFAULT_SLOTS_PER_CHUNK = 1 << 20;
+
+	static final int SLOT_BYTES = 32;
+
+	private static final String SLOTS_FILE = "slots.dat";
+	private static final String DICTIONARY_FILE = "dictionary.dat";
+	private static final int NOT_FOUND = -1;
+
+	private static final int STATUS = 0;
+	private static final int ID = 4;
+	private static final int SSN = 8;
+	private static final int ZIP = 12;
+	private static final int DISPLAY_NAME = 16;
+	private static final int SORTABLE_NAME = 20;
+	private static final int CITY = 24;
+	private static final int STATE = 28;
+
+	private static final int NEVER_USED = 0;
+	private static final int USED = 1;
+	private static final int DELETED = 2;
+
+	private static final int NO_ZIP = -1;
+	private static final int ZIP_PLUS_FOUR = 100000;
+
+	private final Path directory;
+	private final int slotsPerChunk;
+	private final FileChannel channel;
+	private final List<MappedByteBuffer> chunks = new ArrayList<>();
+	private final SlotIndex index = new SlotIndex();
+	private final Map<String, Integer> dictionaryIds = new HashMap<>();
+	private final List<String> dictionary = new ArrayList<>();
+	private final DataOutputStream dictionaryOut;
+	private int[] freeSlots = new int[64];
+	private int freeCount;
+	private int usedSlots;
+	private boolean closed;
+
+	public MappedSlotPersistence(Path directory) throws IOException {
+		this(directory, DEFAULT_SLOTS_PER_CHUNK);
+	}
+
+	/**
+	 * @param directory - holds the slot and dictionary files, created if
+	 *                  missing
+	 * @param slotsPerChunk - slots the file grows by at a time; a slot is
+	 *                  at the same place in the file whatever the value, so
+	 *                  it may differ from the one the files were created with
+	 * @throws IllegalArgumentException when a chunk would have no slots or
+	 *         be too large to map
+	 */
+	public MappedSlotPersistence(Path directory, int slotsPerChunk) throws IOException {
+		if (slotsPerChunk <= 0 || slotsPerChunk > Integer.MAX_VALUE / SLOT_BYTES) {
+			throw new IllegalArgumentException("Slots per chunk must be from 1 to "
+					+ Integer.MAX_VALUE / SLOT_BYTES + ": " + slotsPerChunk);
+		}
+		this.directory = directory;
+		this.slotsPerChunk = slotsPerChunk;
+		Files.createDirectories(directory);
+		loadDictionary();
+		dictionaryOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+				directory.resolve(DICTIONARY_FILE), StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+		FileChannel opened = null;
+		try {
+			opened = FileChannel.open(directory.resolve(SLOTS_FILE), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			channel = opened;
+			long chunkBytes = (long) slotsPerChunk * SLOT_BYTES;
+			long existing = (channel.size() + chunkBytes - 1) / chunkBytes;
+			for (int i = 0 ; i < Math.max(1, existing) ; i++) {
+				addChunk();
+			}
+			loadSlots();
+		} catch (IOException | RuntimeException e) {
+			// The mappings go once they are unreachable.
+			chunks.clear();
+			if (opened != null) {
+				opened.close();
+			}
+			dictionaryOut.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Saves the applicant under its id, in place of any applicant saved
+	 * with the same id.
+	 *
+	 * @throws IllegalArgumentException when the applicant has no id
+	 */
+	@Override
+	public synchronized void save(JobApplicant data) {
+		checkOpen();
+		Integer id = data.getId();
+		if (id == null) {
+			throw new IllegalArgumentException("Job applicant has no id");
+		}
+		Name name = data.getName() == null ? new NullName() : data.getName();
+		Address address = data.getAddress() == null ? new NullAddress() : data.getAddress();
+		try {
+			int displayName = dictionaryId(name.displayName());
+			int sortableName = dictionaryId(name.sortableName());
+			int city = dictionaryId(address.getCity());
+			int state = dictionaryId(address.getState());
+			int zip = encodeZip(address.getZipCode());
+			dictionaryOut.flush();
+			int slot = index.get(id);
+			if (slot == NOT_FOUND) {
+				slot = allocate();
+				index.put(id, slot);
+			}
+			MappedByteBuffer chunk = chunkOf(slot);
+			int offset = offsetOf(slot);
+			chunk.putInt(offset + ID, id);
+			chunk.putInt(offset + SSN, SsnIndex.digitsOf(data.getSsn()));
+			chunk.putInt(offset + ZIP, zip);
+			chunk.putInt(offset + DISPLAY_NAME, displayName);
+			chunk.putInt(offset + SORTABLE_NAME, sortableName);
+			chunk.putInt(offset + CITY, city);
+			chunk.putInt(offset + STATE, state);
+			chunk.putInt(offset + STATUS, USED);
+		} catch (IOException e) {
+			throw new PersistenceException("Cannot save job applicant " + id, e);
+		}
+	}
+
+	@Override
+	public synchronized void delete(Integer id) {
+		checkOpen();
+		int slot = id == null ? NOT_FOUND : index.remove(id);
+		if (slot != NOT_FOUND) {
+			chunkOf(slot).putInt(offsetOf(slot) + STATUS, DELETED);
+			free(slot);
+		}
+	}
+
+	@Override
+	public synchronized JobApplicant findById(Integer id) {
+		checkOpen();
+		int slot = id == null ? NOT_FOUND : index.get(id);
+		return slot == NOT_FOUND ? null : read(slot);
+	}
+
+	/**
+	 * @param name - display name of the applicant
+	 * @return an applicant with that display name, or null when there is
+	 *         none; the slots are scanned, but a name that no applicant ever
+	 *         had is rejected at once by the dictionary
+	 */
+	@Override
+	public synchronized JobApplicant findByName(String name) {
+		checkOpen();
+		Integer displayName = dictionaryIds.get(name);
+		if (displayName == null) {
+			return null;
+		}
+		int slots = usedSlots + freeCount;
+		for (int slot = 0 ; slot < slots ; slot++) {
+			MappedByteBuffer chunk = chunkOf(slot);
+			int offset = offsetOf(slot);
+			if (chunk.getInt(offset + DISPLAY_NAME) == displayName && chunk.getInt(offset + STATUS) == USED) {
+				return read(slot);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void forEachApplicant(Consumer<? super JobApplicant> action) {
+		checkOpen();
+		int slots = usedSlots + freeCount;
+		for (int slot = 0 ; slot < slots ; slot++) {
+			if (chunkOf(slot).getInt(offsetOf(slot) + STATUS) == USED) {
+				action.accept(read(slot));
+			}
+		}
+	}
+
+	/**
+	 * @return number of applicants saved and not deleted
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return slots in use or free for reuse
+	 */
+	public synchronized int getSlotCount() {
+		return usedSlots + freeCount;
+	}
+
+	/**
+	 * @return number of distinct names, cities, states and odd zip codes
+	 */
+	public synchronized int getDictionarySize() {
+		return dictionary.size();
+	}
+
+	/**
+	 * @return size of the slot file, which grows a chunk at a time
+	 */
+	public synchronized long getFileBytes() {
+		return (long) chunks.size() * slotsPerChunk * SLOT_BYTES;
+	}
+
+	@Override
+	public synchronized void sync() throws IOException {
+		checkOpen();
+		dictionaryOut.flush();
+		channel.force(false);
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		sync();
+		closed = true;
+		dictionaryOut.close();
+		channel.close();
+		chunks.clear();
+	}
+
+	private JobApplicant read(int slot) {
+		MappedByteBuffer chunk = chunkOf(slot);
+		int offset = offsetOf(slot);
+		int ssn = chunk.getInt(offset + SSN);
+		String zipCode = decodeZip(chunk.getInt(offset + ZIP));
+		String city = dictionary.get(chunk.getInt(offset + CITY));
+		String state = dictionary.get(chunk.getInt(offset + STATE));
+		Address address = zipCode.isEmpty() && city.isEmpty() && state.isEmpty()
+				? new NullAddress() : new AddressImpl(city, state, zipCode);
+		return new JobApplicantImpl(chunk.getInt(offset + ID), address,
+				ssn == SsnParser.MALFORMED ? new NullSsn() : PackedSsn.unchecked(ssn),
+				new StoredName(dictionary.get(chunk.getInt(offset + DISPLAY_NAME)),
+						dictionary.get(chunk.getInt(offset + SORTABLE_NAME))));
+	}
+
+	private int allocate() throws IOException {
+		if (freeCount > 0) {
+			usedSlots++;
+			return freeSlots[--freeCount];
+		}
+		int slot = usedSlots++;
+		if (slot / slotsPerChunk == chunks.size()) {
+			addChunk();
+		}
+		return slot;
+	}
+
+	private void free(int slot) {
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		}
+		freeSlots[freeCount++] = slot;
+		usedSlots--;
+	}
+
+	/**
+	 * Maps one more chunk at the end of the file; the file is extended by
+	 * the mapping, and chunks already mapped stay where they are.
+	 */
+	private void addChunk() throws IOException {
+		long chunkBytes = (long) slotsPerChunk * SLOT_BYTES;
+		chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkBytes, chunkBytes));
+	}
+
+	private MappedByteBuffer chunkOf(int slot) {
+		return chunks.get(slot / slotsPerChunk);
+	}
+
+	private int offsetOf(int slot) {
+		return (slot % slotsPerChunk) * SLOT_BYTES;
+	}
+
+	/**
+	 * Rebuilds the index and the free list. Slots after the last one ever
+	 * used are never-used space in the last chunk; a slot that refers to a
+	 * string the dictionary file lost is treated as deleted.
+	 */
+	private void loadSlots() {
+		int slots = chunks.size() * slotsPerChunk;
+		int end = 0;
+		for (int slot = 0 ; slot < slots ; slot++) {
+			if (chunkOf(slot).getInt(offsetOf(slot) + STATUS) != NEVER_USED) {
+				end = slot + 1;
+			}
+		}
+		for (int slot = 0 ; slot < end ; slot++) {
+			MappedByteBuffer chunk = chunkOf(slot);
+			int offset = offsetOf(slot);
+			usedSlots++;
+			if (chunk.getInt(offset + STATUS) == USED && refersToDictionary(chunk, offset)
+					&& index.get(chunk.getInt(offset + ID)) == NOT_FOUND) {
+				index.put(chunk.getInt(offset + ID), slot);
+			} else {
+				chunk.putInt(offset + STATUS, DELETED);
+				free(slot);
+			}
+		}
+	}
+
+	private boolean refersToDictionary(MappedByteBuffer chunk, int offset) {
+		int zip = chunk.getInt(offset + ZIP);
+		return isInDictionary(chunk.getInt(offset + DISPLAY_NAME))
+				&& isInDictionary(chunk.getInt(offset + SORTABLE_NAME))
+				&& isInDictionary(chunk.getInt(offset + CITY))
+				&& isInDictionary(chunk.getInt(offset + STATE))
+				&& (zip >= NO_ZIP || isInDictionary(-2 - zip));
+	}
+
+	private boolean isInDictionary(int id) {
+		return id >= 0 && id < dictionary.size();
+	}
+
+	private void loadDictionary() throws IOException {
+		Path file = directory.resolve(DICTIONARY_FILE);
+		if (!Files.exists(file)) {
+			return;
+		}
+		long intact = 0;
+		try (InputStream raw = Files.newInputStream(file);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+			while (true) {
+				String value = in.readUTF();
+				dictionaryIds.put(value, dictionary.size());
+				dictionary.add(value);
+				intact += 2 + modifiedUtf8Length(value);
+			}
+		} catch (EOFException e) {
+			// A string cut short by a crash is dropped below.
+		}
+		if (intact < Files.size(file)) {
+			try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				truncate.truncate(intact);
+			}
+		}
+	}
+
+	private int dictionaryId(String value) throws IOException {
+		String key = value == null ? Constants.EMPTY_STRING : value;
+		Integer id = dictionaryIds.get(key);
+		if (id == null) {
+			dictionaryOut.writeUTF(key);
+			id = dictionary.size();
+			dictionary.add(key);
+			dictionaryIds.put(key, id);
+		}
+		return id;
+	}
+
+	private int encodeZip(String zipCode) throws IOException {
+		if (zipCode == null || zipCode.isEmpty()) {
+			return NO_ZIP;
+		}
+		int zip5 = digits(zipCode, 0, 5);
+		if (zip5 >= 0 && zipCode.length() == 5) {
+			return zip5;
+		}
+		if (zip5 >= 0 && zipCode.length() == 10 && zipCode.charAt(5) == '-') {
+			int plus4 = digits(zipCode, 6, 10);
+			if (plus4 >= 0) {
+				return ZIP_PLUS_FOUR + zip5 * 10000 + plus4;
+			}
+		}
+		return -2 - dictionaryId(zipCode);
+	}
+
+	private String decodeZip(int zip) {
+		if (zip == NO_ZIP) {
+			return Constants.EMPTY_STRING;
+		}
+		if (zip < NO_ZIP) {
+			return dictionary.get(-2 - zip);
+		}
+		if (zip < ZIP_PLUS_FOUR) {
+			char[] zip5 = new char[5];
+			putDigits(zip, zip5, 0, 5);
+			return new String(zip5);
+		}
+		int packed = zip - ZIP_PLUS_FOUR;
+		char[] zip9 = new char[10];
+		putDigits(packed / 10000, zip9, 0, 5);
+		zip9[5] = '-';
+		putDigits(packed % 10000, zip9, 6, 10);
+		return new String(zip9);
+	}
+
+	private static void putDigits(int number, char[] destination, int start, int end) {
+		for (int i = end - 1 ; i >= start ; i--) {
+			destination[i] = (char) ('0' + number % 10);
+			number /= 10;
+		}
+	}
+
+	/**
+	 * @return the digits from start to end as a number, or -1 when they
+	 *         are not all digits
+	 */
+	private static int digits(String value, int start, int end) {
+		if (value.length() < end) {
+			return -1;
+		}
+		int number = 0;
+		for (int i = start ; i < end ; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			number = number * 10 + (c - '0');
+		}
+		return number;
+	}
+
+	private static int modifiedUtf8Length(String value) {
+		int length = 0;
+		for (int i = 0 ; i < value.length() ; i++) {
+			char c = value.charAt(i);
+			length += c >= 0x0001 && c <= 0x007F ? 1 : c > 0x07FF ? 3 : 2;
+		}
+		return length;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new PersistenceException("Persistence has been closed");
+		}
+	}
+
+	/**
+	 * Map from id to slot number, open addressing with linear probing on
+	 * int arrays, as SsnIndex keeps Ssns, so no Integer is boxed per
+	 * applicant.
+	 */
+	private static final class SlotIndex {
+		private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+		private int[] ids = new int[64];
+		private int[] slots = new int[64];
+		private boolean[] occupied = new boolean[64];
+		private int size;
+
+		int get(int id) {
+			int mask = ids.length - 1;
+			for (int i = hash(id) & mask ; occupied[i] ; i = (i + 1) & mask) {
+				if (ids[i] == id) {
+					return slots[i];
+				}
+			}
+			return NOT_FOUND;
+		}
+
+		void put(int id, int slot) {
+			int mask = ids.length - 1;
+			int i = hash(id) & mask;
+			while (occupied[i] && ids[i] != id) {
+				i = (i + 1) & mask;
+			}
+			if (!occupied[i]) {
+				occupied[i] = true;
+				ids[i] = id;
+				if (++size * 2 > ids.length) {
+					slots[i] = slot;
+					grow();
+					return;
+				}
+			}
+			slots[i] = slot;
+		}
+
+		int remove(int id) {
+			int mask = ids.length - 1;
+			int i = hash(id) & mask;
+			while (occupied[i] && ids[i] != id) {
+				i = (i + 1) & mask;
+			}
+			if (!occupied[i]) {
+				return NOT_FOUND;
+			}
+			int removed = slots[i];
+			// Shift later entries of the probe run back so none is left
+			// behind an empty slot.
+			int hole = i;
+			for (int next = (hole + 1) & mask ; occupied[next] ; next = (next + 1) & mask) {
+				int home = hash(ids[next]) & mask;
+				if (((next - home) & mask) >= ((next - hole) & mask)) {
+					ids[hole] = ids[next];
+					slots[hole] = slots[next];
+					hole = next;
+				}
+			}
+			occupied[hole] = false;
+			size--;
+			return removed;
+		}
+
+		int size() {
+			return size;
+		}
+
+		private void grow() {
+			int[] oldIds = ids;
+			int[] oldSlots = slots;
+			boolean[] oldOccupied = occupied;
+			ids = new int[oldIds.length * 2];
+			slots = new int[oldIds.length * 2];
+			occupied = new boolean[oldIds.length * 2];
+			int mask = ids.length - 1;
+			for (int j = 0 ; j < oldIds.length ; j++) {
+				if (oldOccupied[j]) {
+					int i = hash(oldIds[j]) & mask;
+					while (occupied[i]) {
+						i = (i + 1) & mask;
+					}
+					occupied[i] = true;
+					ids[i] = oldIds[j];
+					slots[i] = oldSlots[j];
+				}
+			}
+		}
+
+		private static int hash(int id) {
+			int hash = id * HASH_MULTIPLIER;
+			return hash ^ (hash >>> 16);
+		}
+	}
+
+}
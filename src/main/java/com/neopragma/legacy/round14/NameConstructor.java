@@ -0,0 +1,13 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Creates a Name from its parts, e.g. EnglishName::new. NameFactory keeps
+ * one per Locale so that creating a name is a direct call.
+ */
+@FunctionalInterface
+public interface NameConstructor {
+	/**
+	 * @param nameParts - in the order the Name implementation expects
+	 */
+	Name newName(String... nameParts);
+}
@@ -1,21 +1,95 @@
 package com.neopragma.legacy.round14;
 
-import java.lang.reflect.Constructor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Creates names in the form the locale bundle's name.class gives for a
+ * Locale. Each Locale is resolved once into a NameConstructor and kept, so
+ * only the first name for a Locale reads the bundle.
+ *
+ * Name classes registered with register() are called directly; any other
+ * class named in a bundle is bound once through a MethodHandle to its
+ * String... constructor. Call reload() after locale*.properties changes.
+ */
 public class NameFactory {
 
+    private static final String BUNDLE = "locale";
+    private static final String NAME_CLASS = "name.class";
+    private static final MethodType NAME_PARTS_CONSTRUCTOR =
+            MethodType.methodType(void.class, String[].class);
+
+    private static final Map<String, NameConstructor> registered = new ConcurrentHashMap<>();
+    private static final Map<Locale, NameConstructor> byLocale = new ConcurrentHashMap<>();
+
+    static {
+        register(EnglishName.class.getName(), EnglishName::new);
+        register(SpanishName.class.getName(), SpanishName::new);
+    }
+
     public static Name newInstance(Locale locale, String...nameParts) {
-        ResourceBundle rb = ResourceBundle.getBundle("locale", locale);
-        String nameClassName = rb.getString("name.class");
+        return forLocale(locale).newName(nameParts);
+    }
+
+    /**
+     * @return the constructor used for names in locale
+     * @throws java.util.MissingResourceException when no bundle names a class
+     */
+    public static NameConstructor forLocale(Locale locale) {
+        // Resolved inside computeIfAbsent, so a register() or reload()
+        // clearing byLocale meanwhile cannot have a stale one put back.
+        return byLocale.computeIfAbsent(locale, NameFactory::resolve);
+    }
+
+    private static NameConstructor resolve(Locale locale) {
+        return constructorFor(ResourceBundle.getBundle(BUNDLE, locale).getString(NAME_CLASS));
+    }
+
+    /**
+     * Makes constructor the one used for Locales whose bundle names
+     * nameClassName, in place of binding to the class's constructor.
+     */
+    public static void register(String nameClassName, NameConstructor constructor) {
+        registered.put(nameClassName, constructor);
+        byLocale.clear();
+    }
+
+    /**
+     * Forgets the constructor resolved for each Locale and the cached
+     * bundles, so the next name for a Locale reads locale*.properties again.
+     */
+    public static void reload() {
+        ResourceBundle.clearCache();
+        byLocale.clear();
+    }
+
+    static NameConstructor constructorFor(String nameClassName) {
+        NameConstructor constructor = registered.get(nameClassName);
+        if (constructor != null) {
+            return constructor;
+        }
+        MethodHandle handle;
         try {
-            Class nameClass = Class.forName(nameClassName);
-            Constructor constructor =
-                    nameClass.getDeclaredConstructor(String[].class);
-            return (Name) constructor.newInstance((Object) nameParts);
-        } catch (Exception e) {
+            Class<? extends Name> nameClass = Class.forName(nameClassName).asSubclass(Name.class);
+            handle = MethodHandles.lookup()
+                    .findConstructor(nameClass, NAME_PARTS_CONSTRUCTOR)
+                    .asType(MethodType.methodType(Name.class, String[].class));
+        } catch (ReflectiveOperationException | ClassCastException e) {
             throw new RuntimeException(e);
         }
+        return nameParts -> {
+            try {
+                return (Name) handle.invokeExact(nameParts);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
     }
 }
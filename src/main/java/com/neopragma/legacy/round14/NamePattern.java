@@ -0,0 +1,116 @@
+package com.neopragma.legacy.round14;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A MessageFormat-style pattern such as "{0} {1}{2}", parsed once into
+ * literal text and argument numbers so that formatting is a single pass
+ * into an exactly sized char array. For String arguments the output is
+ * the same as MessageFormat.format's, a null argument giving "null".
+ *
+ * Only plain {n} placeholders are supported, not format types, styles or
+ * quoting; patterns using them are rejected.
+ */
+public class NamePattern {
+
+	private final String pattern;
+	private final String[] literals;
+	private final int[] arguments;
+	private final int literalLength;
+
+	private NamePattern(String pattern, String[] literals, int[] arguments) {
+		this.pattern = pattern;
+		this.literals = literals;
+		this.arguments = arguments;
+		int length = 0;
+		for (String literal : literals) {
+			length += literal.length();
+		}
+		this.literalLength = length;
+	}
+
+	/**
+	 * @throws IllegalArgumentException for quotes, unbalanced braces or
+	 *         anything but a number inside braces
+	 */
+	public static NamePattern compile(String pattern) {
+		List<String> literals = new ArrayList<>();
+		List<Integer> arguments = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		for (int i = 0 ; i < pattern.length() ; i++) {
+			char c = pattern.charAt(i);
+			if (c == '\'' || c == '}') {
+				throw unsupported(pattern);
+			}
+			if (c != '{') {
+				literal.append(c);
+				continue;
+			}
+			int close = pattern.indexOf('}', i);
+			if (close < i + 2) {
+				throw unsupported(pattern);
+			}
+			int argument = 0;
+			for (int d = i + 1 ; d < close ; d++) {
+				char digit = pattern.charAt(d);
+				if (digit < '0' || digit > '9') {
+					throw unsupported(pattern);
+				}
+				argument = argument * 10 + (digit - '0');
+			}
+			literals.add(literal.toString());
+			literal.setLength(0);
+			arguments.add(argument);
+			i = close;
+		}
+		literals.add(literal.toString());
+		int[] argumentArray = new int[arguments.size()];
+		for (int i = 0 ; i < argumentArray.length ; i++) {
+			argumentArray[i] = arguments.get(i);
+		}
+		return new NamePattern(pattern, literals.toArray(new String[literals.size()]), argumentArray);
+	}
+
+	/**
+	 * @return the pattern with each {n} replaced by values[n]; a
+	 *         placeholder beyond the values is kept as written, as
+	 *         MessageFormat does
+	 */
+	public String format(String... values) {
+		int length = literalLength;
+		for (int argument : arguments) {
+			length += text(argument, values).length();
+		}
+		char[] chars = new char[length];
+		int at = 0;
+		for (int i = 0 ; i < arguments.length ; i++) {
+			at = copy(literals[i], chars, at);
+			at = copy(text(arguments[i], values), chars, at);
+		}
+		copy(literals[arguments.length], chars, at);
+		return new String(chars);
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	private static String text(int argument, String[] values) {
+		if (argument >= values.length) {
+			return "{" + argument + "}";
+		}
+		return values[argument] == null ? "null" : values[argument];
+	}
+
+	private static int copy(String text, char[] chars, int at) {
+		text.getChars(0, text.length(), chars, at);
+		return at + text.length();
+	}
+
+	private static IllegalArgumentException unsupported(String pattern) {
+		return new IllegalArgumentException("Unsupported name pattern: " + pattern);
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * The checks EnglishName and SpanishName make on their name parts: the
+ * right number of parts, with the first name and the (first) last name
+ * present.
+ */
+public class NameRules implements Constants {
+
+	private static final int FIRST_NAME = 0;
+	private static final int LAST_NAME = 2;
+
+	/**
+	 * Why name parts were rejected.
+	 */
+	public enum Reason {
+		WRONG_NUMBER_OF_PARTS("Wrong number of name parts"),
+		MISSING_FIRST_NAME("First name is required"),
+		MISSING_LAST_NAME("Last name is required");
+
+		private final String message;
+
+		Reason(String message) {
+			this.message = message;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+	private NameRules() { }
+
+	/**
+	 * @return why the parts are not acceptable, or null when they are
+	 */
+	static Reason check(String[] nameParts, int expectedParts) {
+		if (nameParts == null || nameParts.length != expectedParts) {
+			return Reason.WRONG_NUMBER_OF_PARTS;
+		}
+		if (isEmpty(nameParts[FIRST_NAME])) {
+			return Reason.MISSING_FIRST_NAME;
+		}
+		if (isEmpty(nameParts[LAST_NAME])) {
+			return Reason.MISSING_LAST_NAME;
+		}
+		return null;
+	}
+
+	static boolean isEmpty(String value) {
+		return (value == null || value == EMPTY_STRING);
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * Looks up city and state in a local zip code database built by
+ * ZipDatabaseBuilder, without going to the network. The file is memory
+ * mapped, so the data stays off the heap; a zip code is resolved by
+ * indexing straight into the zip table.
+ */
+public class OfflineCityStateLookup implements CityStateLookup {
+
+	private static final int STATE_MASK = 0xFF;
+
+	private final MappedByteBuffer database;
+	private final String[] states;
+	private final String[] cities;
+	private final int cityOffsetsPosition;
+	private final int cityBytesPosition;
+
+	/**
+	 * @param databaseFile - file written by ZipDatabaseBuilder
+	 * @throws IOException if the file cannot be read, is not a zip code
+	 *         database, or is truncated or damaged
+	 */
+	public OfflineCityStateLookup(Path databaseFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(databaseFile, StandardOpenOption.READ)) {
+			database = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (database.capacity() < ZipDatabaseBuilder.HEADER_BYTES
+				|| database.getInt(0) != ZipDatabaseBuilder.MAGIC
+				|| database.getInt(4) != ZipDatabaseBuilder.VERSION) {
+			throw new IOException(databaseFile + " is not a zip code database");
+		}
+		int stateCount = database.getInt(8);
+		int cityCount = database.getInt(12);
+		int cityBytesLength = database.getInt(16);
+		long position = ZipDatabaseBuilder.HEADER_BYTES + ZipDatabaseBuilder.ZIP_CODE_COUNT * 4;
+		if (stateCount < 0 || stateCount > ZipDatabaseBuilder.MAX_STATES || cityCount < 0
+				|| cityBytesLength < 0 || database.capacity() < position) {
+			throw damaged(databaseFile);
+		}
+		states = new String[stateCount];
+		cities = new String[cityCount];
+		for (int i = 0 ; i < stateCount ; i++) {
+			if (position >= database.capacity()) {
+				throw damaged(databaseFile);
+			}
+			int length = database.get((int) position) & 0xFF;
+			if (position + 1 + length > database.capacity()) {
+				throw damaged(databaseFile);
+			}
+			states[i] = decode((int) position + 1, length, StandardCharsets.US_ASCII);
+			position += 1 + length;
+		}
+		long bytesPosition = position + (cityCount + 1L) * 4;
+		if (bytesPosition + cityBytesLength != database.capacity()) {
+			throw damaged(databaseFile);
+		}
+		cityOffsetsPosition = (int) position;
+		cityBytesPosition = (int) bytesPosition;
+		checkEntries(databaseFile, cityBytesLength);
+	}
+
+	/**
+	 * Checks that every city name lies within the city bytes and every zip
+	 * code names a city and state there are, so lookups cannot read past
+	 * them.
+	 */
+	private void checkEntries(Path databaseFile, int cityBytesLength) throws IOException {
+		int previous = 0;
+		for (int i = 0 ; i <= cities.length ; i++) {
+			int offset = database.getInt(cityOffsetsPosition + i * 4);
+			if (offset < previous || (i == 0 && offset != 0)) {
+				throw damaged(databaseFile);
+			}
+			previous = offset;
+		}
+		if (previous != cityBytesLength) {
+			throw damaged(databaseFile);
+		}
+		for (int zip = 0 ; zip < ZipDatabaseBuilder.ZIP_CODE_COUNT ; zip++) {
+			int entry = database.getInt(ZipDatabaseBuilder.HEADER_BYTES + zip * 4);
+			int city = entry >>> 8;
+			if (entry != 0 && (city == 0 || city > cities.length || (entry & STATE_MASK) >= states.length)) {
+				throw damaged(databaseFile);
+			}
+		}
+	}
+
+	private static IOException damaged(Path databaseFile) {
+		return new IOException(databaseFile + " is truncated or damaged");
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		String zip5 = ZipCodes.normalize(zipCode);
+		int entry = database.getInt(ZipDatabaseBuilder.HEADER_BYTES + index(zip5) * 4);
+		if (entry == 0) {
+			throw new CityStateLookupException(new NoSuchElementException("Zip code " + zip5 + " is not in the database"));
+		}
+		return new CityState(city((entry >>> 8) - 1), states[entry & STATE_MASK]);
+	}
+
+	/**
+	 * City names are decoded on first use and kept. Two threads may decode
+	 * the same name at once; both get an equal, immutable String.
+	 */
+	private String city(int cityIndex) {
+		String city = cities[cityIndex];
+		if (city == null) {
+			int start = database.getInt(cityOffsetsPosition + cityIndex * 4);
+			int end = database.getInt(cityOffsetsPosition + (cityIndex + 1) * 4);
+			city = decode(cityBytesPosition + start, end - start, StandardCharsets.UTF_8);
+			cities[cityIndex] = city;
+		}
+		return city;
+	}
+
+	private String decode(int position, int length, Charset charset) {
+		ByteBuffer slice = database.duplicate();
+		slice.position(position);
+		byte[] bytes = new byte[length];
+		slice.get(bytes);
+		return new String(bytes, charset);
+	}
+
+	private static int index(String zip5) {
+		int index = 0;
+		for (int i = 0 ; i < zip5.length() ; i++) {
+			index = index * 10 + (zip5.charAt(i) - '0');
+		}
+		return index;
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * An Ssn held as its nine digits in one int. Equality, hashing and
+ * ordering work on the int, which makes large sets of Ssns cheap to
+ * deduplicate and sort; the dashed form is only built when asked for.
+ */
+public class PackedSsn implements Ssn, Comparable<PackedSsn> {
+
+	/**
+	 * Length of the formatted Ssn, ddd-dd-dddd.
+	 */
+	public static final int FORMATTED_LENGTH = 11;
+
+	private final int digits;
+
+	/**
+	 * @param ssn - ddd-dd-dddd or ddddddddd
+	 * @throws InvalidSsnException when the Ssn is not acceptable
+	 */
+	public PackedSsn(String ssn) {
+		this.digits = SsnParser.parse(ssn);
+	}
+
+	private PackedSsn(int digits) {
+		this.digits = digits;
+	}
+
+	/**
+	 * @param digits - the nine digits, as returned by toInt()
+	 * @throws InvalidSsnException when the Ssn is not acceptable
+	 */
+	public static PackedSsn of(int digits) {
+		if (digits < 0 || digits > 999999999) {
+			throw new InvalidSsnException(SsnParser.Reason.NOT_NINE_DIGITS.message(digits));
+		}
+		SsnParser.Reason reason = SsnParser.validate(digits);
+		if (reason != null) {
+			throw new InvalidSsnException(reason.message(digits));
+		}
+		return new PackedSsn(digits);
+	}
+
+	/**
+	 * For Ssns that were valid when they were stored, which must still load
+	 * after the blocklist changes.
+	 */
+	static PackedSsn unchecked(int digits) {
+		return new PackedSsn(digits);
+	}
+
+	/**
+	 * Checks an Ssn without throwing, for bulk intake.
+	 *
+	 * @return the PackedSsn, or the SsnParser.Reason it was rejected for;
+	 *         a null Ssn is NOT_NINE_DIGITS
+	 */
+	public static ValidationResult<PackedSsn> validate(String ssn) {
+		int digits = ssn == null ? SsnParser.MALFORMED : SsnParser.digits(ssn);
+		SsnParser.Reason reason = SsnParser.validate(digits);
+		if (reason != null) {
+			return ValidationResult.invalid(reason, reason.message(digits));
+		}
+		return ValidationResult.valid(new PackedSsn(digits));
+	}
+
+	public int toInt() {
+		return digits;
+	}
+
+	@Override
+	public String formatSsn() {
+		char[] formatted = new char[FORMATTED_LENGTH];
+		formatInto(formatted, 0);
+		return new String(formatted);
+	}
+
+	/**
+	 * Writes ddd-dd-dddd into a caller's buffer, e.g. one reused for a
+	 * whole export, without allocating.
+	 */
+	public void formatInto(char[] destination, int offset) {
+		SsnParser.formatInto(digits, destination, offset);
+	}
+
+	@Override
+	public int compareTo(PackedSsn other) {
+		return Integer.compare(digits, other.digits);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof PackedSsn && ((PackedSsn) other).digits == digits;
+	}
+
+	@Override
+	public int hashCode() {
+		return Integer.hashCode(digits);
+	}
+
+	@Override
+	public String toString() {
+		return formatSsn();
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * A Persistence implementation could not read or write its store.
+ */
+public class PersistenceException extends RuntimeException {
+	private static final long serialVersionUID = -3511725361390811370L;
+
+	public PersistenceException(String message) {
+		super(message);
+	}
+
+	public PersistenceException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,231 @@
+package com.neopragma.legacy.round14;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers every zip code another CityStateLookup has resolved in a
+ * local append-only file, so a restarted process never has to look up a
+ * zip code it has already seen. The file is indexed in memory when it is
+ * opened.
+ *
+ * Each record's payload is zip, city and state in modified UTF-8, framed
+ * by RecordFraming. A torn or corrupted record at the end of the file,
+ * left by a crash, is cut off on open.
+ *
+ * The file belongs to one process at a time; records are written at
+ * this instance's own position and compaction replaces the file, so a
+ * second process sharing it would lose records.
+ *
+ * A zip code is normally appended once, but two threads looking up the
+ * same new zip code can append it twice. When the file is past the compaction threshold and holds such
+ * superseded records, on open or after an append, it is rewritten with
+ * only the current ones. A failure to append or compact does not fail
+ * the lookup; it is counted, and the zip code is looked up again after
+ * a restart.
+ */
+public class PersistentCityStateLookup implements CityStateLookup, Closeable {
+
+	public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 16L * 1024 * 1024;
+
+	private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+	private final CityStateLookup delegate;
+	private final Path file;
+	private final long compactionThresholdBytes;
+	private final Map<String, CityState> index = new ConcurrentHashMap<>();
+	private final AtomicLong appendFailures = new AtomicLong();
+	private final AtomicLong compactionFailures = new AtomicLong();
+	private FileChannel channel;
+	private long records;
+	private long nextCompactionBytes;
+	private long truncatedBytes;
+
+	public PersistentCityStateLookup(CityStateLookup delegate, Path file) throws IOException {
+		this(delegate, file, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+	}
+
+	/**
+	 * @param delegate - lookup used for zip codes not yet in the file
+	 * @param file - the append-only file, created if missing
+	 * @param compactionThresholdBytes - file size above which superseded
+	 *                  records are compacted away
+	 */
+	public PersistentCityStateLookup(CityStateLookup delegate, Path file,
+			long compactionThresholdBytes) throws IOException {
+		this.delegate = delegate;
+		this.file = file;
+		this.compactionThresholdBytes = compactionThresholdBytes;
+		this.nextCompactionBytes = compactionThresholdBytes;
+		channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			load();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		compactIfDue();
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		String key = ZipCodes.normalize(zipCode);
+		CityState cityState = index.get(key);
+		if (cityState == null) {
+			cityState = delegate.lookup(key);
+			try {
+				append(key, cityState);
+			} catch (IOException e) {
+				// The answer is good even if it cannot be kept.
+				appendFailures.incrementAndGet();
+			}
+		}
+		return cityState;
+	}
+
+	/**
+	 * @return number of zip codes in the file
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return bytes cut off the end of the file when it was opened
+	 */
+	public long getTruncatedBytes() {
+		return truncatedBytes;
+	}
+
+	/**
+	 * @return lookups whose result could not be appended to the file
+	 */
+	public long getAppendFailureCount() {
+		return appendFailures.get();
+	}
+
+	/**
+	 * @return compactions that failed, leaving the file as it was
+	 */
+	public long getCompactionFailureCount() {
+		return compactionFailures.get();
+	}
+
+	/**
+	 * Forces written records to the storage device.
+	 */
+	public synchronized void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Rewrites the file with one record per zip code. The new file is
+	 * written and opened before it replaces the old one, so when this
+	 * fails the lookup carries on with the old file.
+	 */
+	public synchronized void compact() throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".compact");
+		FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			for (Map.Entry<String, CityState> entry : index.entrySet()) {
+				write(out, encode(entry.getKey(), entry.getValue()));
+			}
+			out.force(true);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			out.close();
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		FileChannel replaced = channel;
+		channel = out;
+		records = index.size();
+		nextCompactionBytes = Math.max(compactionThresholdBytes, 2 * channel.size());
+		replaced.close();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (!channel.isOpen()) {
+			return;
+		}
+		channel.force(false);
+		channel.close();
+	}
+
+	private synchronized void append(String zip5, CityState cityState) throws IOException {
+		write(channel, encode(zip5, cityState));
+		records++;
+		index.put(zip5, cityState);
+		compactIfDue();
+	}
+
+	private synchronized void compactIfDue() {
+		try {
+			if (channel.size() > nextCompactionBytes && records > index.size()) {
+				compact();
+			}
+		} catch (IOException e) {
+			compactionFailures.incrementAndGet();
+			// Not tried again until the file has grown as much again.
+			nextCompactionBytes = Math.max(1, nextCompactionBytes) * 2;
+		}
+	}
+
+	private void load() throws IOException {
+		long size = channel.size();
+		long position = RecordFraming.scan(channel, size, MAX_PAYLOAD_BYTES, true, (offset, payload) -> {
+			if (!decodeInto(payload)) {
+				return false;
+			}
+			records++;
+			return true;
+		});
+		if (position < size) {
+			truncatedBytes = size - position;
+			channel.truncate(position);
+		}
+		channel.position(position);
+	}
+
+	private boolean decodeInto(byte[] payload) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+			String zip5 = in.readUTF();
+			index.put(zip5, new CityState(in.readUTF(), in.readUTF()));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static ByteBuffer encode(String zip5, CityState cityState) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream payload = new DataOutputStream(bytes);
+		payload.writeUTF(zip5);
+		payload.writeUTF(cityState.getCity());
+		payload.writeUTF(cityState.getState());
+		return RecordFraming.frame(bytes.toByteArray());
+	}
+
+	private static void write(FileChannel out, ByteBuffer record) throws IOException {
+		while (record.hasRemaining()) {
+			out.write(record);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.neopragma.legacy.round14;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Frames the records of the append-only files: payload length (int),
+ * CRC-32 of the payload (int), payload. Shared by the file-backed
+ * Persistence implementations and PersistentCityStateLookup.
+ *
+ * A scan stops at the first record that is torn or corrupted, which in
+ * the last file written is where a crash cut it short.
+ */
+class RecordFraming {
+
+	static final int HEADER_BYTES = 8;
+
+	private static final int SCAN_BUFFER_BYTES = 64 * 1024;
+
+	private RecordFraming() { }
+
+	/**
+	 * @return the framed record, ready to be written
+	 */
+	static ByteBuffer frame(byte[] payload) {
+		ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+		record.putInt(payload.length).putInt(crc(payload)).put(payload);
+		record.flip();
+		return record;
+	}
+
+	static int crc(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Calls visitor for each intact record from the start of the file,
+	 * until one is not.
+	 *
+	 * @param size - bytes of the file to scan
+	 * @param maxPayloadBytes - longer payloads are taken for damage
+	 * @param verify - whether to check checksums; needed only where the
+	 *                 file has not been read since it was opened
+	 * @return where the last intact record ends
+	 */
+	static long scan(FileChannel channel, long size, int maxPayloadBytes, boolean verify,
+			Visitor visitor) throws IOException {
+		ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+		window.limit(0);
+		long position = 0;
+		while (position + HEADER_BYTES <= size) {
+			window = fill(channel, window, position, HEADER_BYTES, size);
+			int length = window.getInt(window.position());
+			int checksum = window.getInt(window.position() + 4);
+			if (length <= 0 || length > maxPayloadBytes || position + HEADER_BYTES + length > size) {
+				break;
+			}
+			window = fill(channel, window, position, HEADER_BYTES + length, size);
+			byte[] payload = new byte[length];
+			window.position(window.position() + HEADER_BYTES);
+			window.get(payload);
+			if ((verify && crc(payload) != checksum) || !visitor.visit(position, payload)) {
+				break;
+			}
+			position += HEADER_BYTES + length;
+		}
+		return position;
+	}
+
+	/**
+	 * Makes at least needed bytes of the file from position on readable in
+	 * the window, reading more of the file into it, or into a larger
+	 * window for a record that does not fit.
+	 */
+	private static ByteBuffer fill(FileChannel channel, ByteBuffer window, long position,
+			int needed, long size) throws IOException {
+		if (window.remaining() >= needed) {
+			return window;
+		}
+		if (window.capacity() < needed) {
+			window = ByteBuffer.allocate(needed).put(window);
+		} else {
+			window.compact();
+		}
+		window.limit((int) Math.min(window.capacity(), size - position));
+		while (window.position() < needed) {
+			if (channel.read(window, position + window.position()) < 0) {
+				throw new EOFException("Unexpected end of file at " + (position + window.position()));
+			}
+		}
+		window.flip();
+		return window;
+	}
+
+	interface Visitor {
+		/**
+		 * @return false when the payload is not a record, ending the scan
+		 *         before it
+		 */
+		boolean visit(long offset, byte[] payload) throws IOException;
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Settings for ResilientCityStateLookup.
+ */
+public class ResiliencePolicy {
+
+	private long deadlineMillis = 3000;
+	private int maxAttempts = 3;
+	private long initialBackoffMillis = 50;
+	private long maxBackoffMillis = 1000;
+	private int failureThreshold = 5;
+	private long openMillis = 10000;
+	private boolean hedging = false;
+	private double hedgePercentile = 0.95;
+	private int hedgeMinimumSamples = 20;
+	private int maxWorkers = 32;
+
+	/**
+	 * @param deadlineMillis - total time one lookup may take, retries included
+	 */
+	public ResiliencePolicy deadlineMillis(long deadlineMillis) {
+		this.deadlineMillis = deadlineMillis;
+		return this;
+	}
+
+	/**
+	 * @param maxAttempts - tries per lookup, the first one included
+	 */
+	public ResiliencePolicy maxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * @param initialBackoffMillis - upper bound of the wait before the first
+	 *                  retry; it doubles for each further retry
+	 */
+	public ResiliencePolicy initialBackoffMillis(long initialBackoffMillis) {
+		this.initialBackoffMillis = initialBackoffMillis;
+		return this;
+	}
+
+	public ResiliencePolicy maxBackoffMillis(long maxBackoffMillis) {
+		this.maxBackoffMillis = maxBackoffMillis;
+		return this;
+	}
+
+	/**
+	 * @param failureThreshold - consecutive failures that open the circuit breaker
+	 */
+	public ResiliencePolicy failureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+		return this;
+	}
+
+	/**
+	 * @param openMillis - how long an open circuit breaker refuses calls
+	 */
+	public ResiliencePolicy openMillis(long openMillis) {
+		this.openMillis = openMillis;
+		return this;
+	}
+
+	/**
+	 * @param hedgePercentile - send a second request when the first has taken
+	 *                  longer than this percentile of recent lookups, e.g. 0.95
+	 */
+	public ResiliencePolicy hedgeAbovePercentile(double hedgePercentile) {
+		this.hedging = true;
+		this.hedgePercentile = hedgePercentile;
+		return this;
+	}
+
+	/**
+	 * @param hedgeMinimumSamples - recent lookups needed before hedging starts
+	 */
+	public ResiliencePolicy hedgeMinimumSamples(int hedgeMinimumSamples) {
+		this.hedgeMinimumSamples = hedgeMinimumSamples;
+		return this;
+	}
+
+	/**
+	 * @param maxWorkers - most attempts running at once on the lookup's own
+	 *                  worker threads; an attempt beyond that fails at once
+	 */
+	public ResiliencePolicy maxWorkers(int maxWorkers) {
+		this.maxWorkers = maxWorkers;
+		return this;
+	}
+
+	public long getDeadlineMillis() {
+		return deadlineMillis;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialBackoffMillis() {
+		return initialBackoffMillis;
+	}
+
+	public long getMaxBackoffMillis() {
+		return maxBackoffMillis;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public long getOpenMillis() {
+		return openMillis;
+	}
+
+	public boolean isHedging() {
+		return hedging;
+	}
+
+	public double getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public int getHedgeMinimumSamples() {
+		return hedgeMinimumSamples;
+	}
+
+	public int getMaxWorkers() {
+		return maxWorkers;
+	}
+
+}
@@ -0,0 +1,268 @@
+package com.neopragma.legacy.round14;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Protects callers from a slow or failing CityStateLookup:
+ * <ul>
+ * <li>every lookup has a deadline, retries included;</li>
+ * <li>failed attempts are retried with exponential backoff and full jitter;</li>
+ * <li>a circuit breaker fails lookups fast while the service is unhealthy;</li>
+ * <li>optionally, an attempt slower than a percentile of recent lookups
+ *     gets a second, hedged request and the first answer wins.</li>
+ * </ul>
+ * A zip code that is not found, or is not a zip code, is not retried and
+ * counts neither for nor against the circuit breaker.
+ *
+ * Attempts run on worker threads so the caller can stop waiting at the
+ * deadline. An abandoned attempt is not interrupted; it ends when the
+ * underlying lookup gives up (see LookupClientConfig timeouts). So that
+ * a slow service cannot pile up threads, the lookup's own pool has at
+ * most ResiliencePolicy.getMaxWorkers() threads, and an attempt that
+ * finds them all busy fails like any other attempt.
+ */
+public class ResilientCityStateLookup implements CityStateLookup, Closeable {
+
+	private static final int LATENCY_SAMPLES = 128;
+
+	private final CityStateLookup delegate;
+	private final ResiliencePolicy policy;
+	private final CircuitBreaker circuitBreaker;
+	private final ExecutorService workers;
+	private final boolean ownsWorkers;
+
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private int latencyCount;
+	private int nextLatency;
+
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong rejections = new AtomicLong();
+	private final AtomicLong saturations = new AtomicLong();
+
+	public ResilientCityStateLookup(CityStateLookup delegate, ResiliencePolicy policy) {
+		this(delegate, policy, new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenMillis()),
+				new ThreadPoolExecutor(0, policy.getMaxWorkers(), 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+						ResilientCityStateLookup::workerThread, new ThreadPoolExecutor.AbortPolicy()), true);
+	}
+
+	/**
+	 * @param workers - runs the attempts; not shut down by close()
+	 */
+	public ResilientCityStateLookup(CityStateLookup delegate, ResiliencePolicy policy, ExecutorService workers) {
+		this(delegate, policy, new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenMillis()),
+				workers, false);
+	}
+
+	ResilientCityStateLookup(CityStateLookup delegate, ResiliencePolicy policy,
+			CircuitBreaker circuitBreaker, ExecutorService workers, boolean ownsWorkers) {
+		this.delegate = delegate;
+		this.policy = policy;
+		this.circuitBreaker = circuitBreaker;
+		this.workers = workers;
+		this.ownsWorkers = ownsWorkers;
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		String zip5 = ZipCodes.normalize(zipCode);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(policy.getDeadlineMillis());
+		CityStateLookupException lastFailure = null;
+		for (int attempt = 1 ; attempt <= policy.getMaxAttempts() ; attempt++) {
+			if (!circuitBreaker.allowRequest()) {
+				rejections.incrementAndGet();
+				throw new CityStateLookupException(new IllegalStateException("Circuit breaker is open"));
+			}
+			try {
+				CityState cityState = attempt(zip5, deadline);
+				circuitBreaker.recordSuccess();
+				return cityState;
+			} catch (CityStateLookupException e) {
+				if (!isRetryable(e)) {
+					circuitBreaker.recordIgnored();
+					throw e;
+				}
+				circuitBreaker.recordFailure();
+				lastFailure = e;
+			}
+			if (attempt == policy.getMaxAttempts() || !backOff(attempt, deadline)) {
+				break;
+			}
+			retries.incrementAndGet();
+		}
+		throw lastFailure;
+	}
+
+	public CircuitBreaker.State getCircuitBreakerState() {
+		return circuitBreaker.getState();
+	}
+
+	public long getRetryCount() {
+		return retries.get();
+	}
+
+	public long getHedgeCount() {
+		return hedges.get();
+	}
+
+	public long getTimeoutCount() {
+		return timeouts.get();
+	}
+
+	/**
+	 * @return lookups refused because the circuit breaker was open
+	 */
+	public long getRejectionCount() {
+		return rejections.get();
+	}
+
+	/**
+	 * @return attempts that failed because every worker was busy
+	 */
+	public long getSaturationCount() {
+		return saturations.get();
+	}
+
+	@Override
+	public void close() {
+		if (ownsWorkers) {
+			workers.shutdownNow();
+		}
+	}
+
+	private CityState attempt(String zip5, long deadline) {
+		CompletableFuture<CityState> primary = submit(zip5);
+		long hedgeDelay = hedgeDelayNanos();
+		if (hedgeDelay > 0 && hedgeDelay < deadline - System.nanoTime()) {
+			try {
+				return primary.get(hedgeDelay, TimeUnit.NANOSECONDS);
+			} catch (TimeoutException slow) {
+				hedges.incrementAndGet();
+				return await(firstSuccessful(primary, submit(zip5)), deadline);
+			} catch (Exception e) {
+				throw failure(e);
+			}
+		}
+		return await(primary, deadline);
+	}
+
+	private CompletableFuture<CityState> submit(String zip5) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				long start = System.nanoTime();
+				CityState cityState = delegate.lookup(zip5);
+				recordLatency(System.nanoTime() - start);
+				return cityState;
+			}, workers);
+		} catch (RejectedExecutionException e) {
+			saturations.incrementAndGet();
+			CompletableFuture<CityState> refused = new CompletableFuture<>();
+			refused.completeExceptionally(new CityStateLookupException(e));
+			return refused;
+		}
+	}
+
+	private CityState await(CompletableFuture<CityState> lookup, long deadline) {
+		try {
+			return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			timeouts.incrementAndGet();
+			throw new CityStateLookupException(e);
+		} catch (Exception e) {
+			throw failure(e);
+		}
+	}
+
+	private static CityStateLookupException failure(Exception e) {
+		if (e instanceof InterruptedException) {
+			Thread.currentThread().interrupt();
+		}
+		Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+		if (cause instanceof CityStateLookupException) {
+			return (CityStateLookupException) cause;
+		}
+		return new CityStateLookupException(cause);
+	}
+
+	private static CompletableFuture<CityState> firstSuccessful(
+			CompletableFuture<CityState> first, CompletableFuture<CityState> second) {
+		CompletableFuture<CityState> winner = new CompletableFuture<>();
+		AtomicInteger failures = new AtomicInteger();
+		for (CompletableFuture<CityState> candidate : Arrays.asList(first, second)) {
+			candidate.whenComplete((cityState, failure) -> {
+				if (failure == null) {
+					winner.complete(cityState);
+				} else if (failures.incrementAndGet() == 2) {
+					winner.completeExceptionally(failure instanceof CompletionException ? failure.getCause() : failure);
+				}
+			});
+		}
+		return winner;
+	}
+
+	private static boolean isRetryable(CityStateLookupException e) {
+		return !e.isNotFound() && !(e.getWrappedException() instanceof IllegalArgumentException);
+	}
+
+	/**
+	 * Sleeps a random time up to the exponential backoff for this attempt.
+	 *
+	 * @return false if the deadline would pass before the next attempt
+	 */
+	private boolean backOff(int attempt, long deadline) {
+		long ceiling = Math.min(policy.getMaxBackoffMillis(),
+				policy.getInitialBackoffMillis() << Math.min(attempt - 1, 30));
+		long sleepNanos = TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+		if (System.nanoTime() + sleepNanos >= deadline) {
+			return false;
+		}
+		try {
+			TimeUnit.NANOSECONDS.sleep(sleepNanos);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private synchronized void recordLatency(long nanos) {
+		latencies[nextLatency] = nanos;
+		nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+		latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+	}
+
+	/**
+	 * @return the configured percentile of recent successful lookups, or 0
+	 *         when hedging is off or there are not enough samples yet
+	 */
+	private synchronized long hedgeDelayNanos() {
+		if (!policy.isHedging() || latencyCount < policy.getHedgeMinimumSamples()) {
+			return 0;
+		}
+		long[] sorted = Arrays.copyOf(latencies, latencyCount);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(policy.getHedgePercentile() * latencyCount) - 1;
+		return sorted[Math.max(0, Math.min(index, latencyCount - 1))];
+	}
+
+	private static Thread workerThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, "city-state-lookup");
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
@@ -1,18 +1,21 @@
 package com.neopragma.legacy.round14;
 
-import java.text.MessageFormat;
-
 /**
  * A person's name in Spanish form.
  */
 public class SpanishName implements Name, Constants {
 
+	private final static int NAME_PARTS = 4;
 	private final static String displayFormatPattern = "{0} {1}{2} {3}";
 	private final static String sortableFormatPattern = "{2} {3}{0} {1}";
-	private String primerNombre = null;
-	private String segundoNombre = null;
-	private String primerApellido = null;
-	private String segundoApellido = null;
+	private final static NamePattern displayFormat = NamePattern.compile(displayFormatPattern);
+	private final static NamePattern sortableFormat = NamePattern.compile(sortableFormatPattern);
+	private final String primerNombre;
+	private final String segundoNombre;
+	private final String primerApellido;
+	private final String segundoApellido;
+	private String displayName;
+	private String sortableName;
 
 	/**
 	 * Constructor for Spanish names
@@ -20,10 +23,9 @@ public class SpanishName implements Name, Constants {
 	 *                  primer apellido, segundo apellido
 	 */
 	public SpanishName(String...nameParts) {
-		if (nameParts.length != 4 ||
-				isEmpty(nameParts[0]) ||
-				isEmpty(nameParts[2])) {
-			throw new IllegalArgumentException();
+		NameRules.Reason reason = NameRules.check(nameParts, NAME_PARTS);
+		if (reason != null) {
+			throw new InvalidNameException(reason.getMessage());
 		}
 		primerNombre = nameParts[0];
 		segundoNombre = nameParts[1];
@@ -31,32 +33,50 @@ public class SpanishName implements Name, Constants {
 		segundoApellido = nameParts[3];
 	}
 
+	/**
+	 * Checks name parts without throwing, for bulk intake.
+	 *
+	 * @return the SpanishName, or the NameRules.Reason it was rejected for
+	 */
+	public static ValidationResult<SpanishName> validate(String...nameParts) {
+		NameRules.Reason reason = NameRules.check(nameParts, NAME_PARTS);
+		if (reason != null) {
+			return ValidationResult.invalid(reason, reason.getMessage());
+		}
+		return ValidationResult.valid(new SpanishName(nameParts));
+	}
+
+	/**
+	 * Formatted on first use and kept, as the name cannot change.
+	 */
 	@Override
 	public String displayName() {
-		return MessageFormat.format(displayFormatPattern,
-				primerNombre,
-				initial(segundoNombre),
-				primerApellido,
-				initial(segundoApellido)).trim();
+		if (displayName == null) {
+			displayName = displayFormat.format(
+					primerNombre,
+					initial(segundoNombre),
+					primerApellido,
+					initial(segundoApellido)).trim();
+		}
+		return displayName;
 	}
 
 	@Override
 	public String sortableName() {
-		return MessageFormat.format(sortableFormatPattern,
-				primerNombre,
-				isEmpty(segundoNombre) ? EMPTY_STRING : segundoNombre + SPACE,
-				primerApellido,
-				isEmpty(segundoApellido) ? EMPTY_STRING : segundoApellido + SPACE).trim();
+		if (sortableName == null) {
+			sortableName = sortableFormat.format(
+					primerNombre,
+					NameRules.isEmpty(segundoNombre) ? EMPTY_STRING : segundoNombre + SPACE,
+					primerApellido,
+					NameRules.isEmpty(segundoApellido) ? EMPTY_STRING : segundoApellido + SPACE).trim();
+		}
+		return sortableName;
 	}
 
 	private String initial(String value) {
-		if (isEmpty(value)) {
+		if (NameRules.isEmpty(value)) {
 			return EMPTY_STRING;
 		}
 		return value.substring(0,1) + PERIOD_SPACE;
 	}
-
-	private boolean isEmpty(String value) {
-		return (value == null || value == EMPTY_STRING);
-	}
 }
@@ -0,0 +1,161 @@
+package com.neopragma.legacy.round14;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Ssns that must never be accepted: the numbers reserved by the Social
+ * Security Administration plus any loaded from a blocklist file.
+ *
+ * A blocklist is immutable once built and is held in an open-addressing
+ * table of ints, about 8 bytes per Ssn, so a membership check is a hash
+ * and a probe or two. The one SsnParser checks against is swapped in a
+ * single volatile write, so a reload never pauses validation: each check
+ * sees either the old list or the new one.
+ *
+ * File format: one Ssn per line, dashed or not; blank lines and lines
+ * starting with # are ignored.
+ */
+public class SsnBlocklist {
+
+	private static final int[] RESERVED = { 219099999, 78051120 };
+	private static final int EMPTY = 0;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+	private static volatile SsnBlocklist current = new SsnBlocklist(new int[0], 0);
+
+	private final int[] table;
+	private final int shift;
+	private final int size;
+
+	private SsnBlocklist(int[] ssns, int count) {
+		int capacity = Integer.highestOneBit(Math.max(4, (count + RESERVED.length) * 2 - 1)) << 1;
+		table = new int[capacity];
+		shift = Integer.numberOfLeadingZeros(capacity) + 1;
+		int added = 0;
+		for (int ssn : RESERVED) {
+			added += add(ssn) ? 1 : 0;
+		}
+		for (int i = 0 ; i < count ; i++) {
+			added += add(ssns[i]) ? 1 : 0;
+		}
+		size = added;
+	}
+
+	/**
+	 * @return the blocklist SsnParser checks against
+	 */
+	public static SsnBlocklist current() {
+		return current;
+	}
+
+	/**
+	 * Makes blocklist the one SsnParser checks against.
+	 */
+	public static void install(SsnBlocklist blocklist) {
+		current = blocklist;
+	}
+
+	/**
+	 * Loads a blocklist file and installs it. If the file cannot be read
+	 * or holds a line that is not an Ssn, the current blocklist stays.
+	 *
+	 * @return the installed blocklist
+	 */
+	public static SsnBlocklist reload(Path file) throws IOException {
+		SsnBlocklist blocklist = load(file);
+		install(blocklist);
+		return blocklist;
+	}
+
+	/**
+	 * @return a blocklist of the reserved numbers and those in the file
+	 * @throws IOException naming the first line that is not an Ssn
+	 */
+	public static SsnBlocklist load(Path file) throws IOException {
+		int[] ssns = new int[1024];
+		int count = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+					continue;
+				}
+				int ssn = SsnParser.digits(trimmed);
+				if (ssn == SsnParser.MALFORMED) {
+					throw new IOException(file + " line " + lineNumber + " is not an Ssn: " + line);
+				}
+				if (count == ssns.length) {
+					ssns = Arrays.copyOf(ssns, count * 2);
+				}
+				ssns[count++] = ssn;
+			}
+		}
+		return new SsnBlocklist(ssns, count);
+	}
+
+	/**
+	 * @return a blocklist of the reserved numbers and the given digits
+	 */
+	public static SsnBlocklist of(int... ssns) {
+		return new SsnBlocklist(ssns, ssns.length);
+	}
+
+	/**
+	 * @param ssn - nine digits, as returned by SsnParser.digits()
+	 */
+	public boolean contains(int ssn) {
+		if (ssn == EMPTY) {
+			return false;
+		}
+		int mask = table.length - 1;
+		for (int slot = (ssn * HASH_MULTIPLIER) >>> shift ; ; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (entry == ssn) {
+				return true;
+			}
+			if (entry == EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * @return number of distinct Ssns, reserved numbers included
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return approximate heap taken by the table
+	 */
+	public long memoryBytes() {
+		return 16L + 4L * table.length;
+	}
+
+	private boolean add(int ssn) {
+		// 000-00-0000 fails the area rule before the blocklist is consulted.
+		if (ssn == EMPTY) {
+			return false;
+		}
+		int mask = table.length - 1;
+		for (int slot = (ssn * HASH_MULTIPLIER) >>> shift ; ; slot = (slot + 1) & mask) {
+			if (table[slot] == ssn) {
+				return false;
+			}
+			if (table[slot] == EMPTY) {
+				table[slot] = ssn;
+				return true;
+			}
+		}
+	}
+
+}
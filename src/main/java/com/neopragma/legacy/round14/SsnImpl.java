@@ -4,13 +4,28 @@ public class SsnImpl implements Ssn {
 
 	
 	private String ssn;
-	
-	private String[] specialCases = new String[] {
-	    "219099999", "078051120"
-	};
 
 	public SsnImpl(String ssn) {
-		setSsn(ssn);
+		this(ssn, SsnParser.parse(ssn));
+	}
+
+	private SsnImpl(String ssn, int digits) {
+		this.ssn = ssn.length() == 9 ? ssn : SsnParser.toDigitString(digits);
+	}
+
+	/**
+	 * Checks an Ssn without throwing, for bulk intake.
+	 *
+	 * @return the SsnImpl, or the SsnParser.Reason it was rejected for;
+	 *         a null Ssn is NOT_NINE_DIGITS
+	 */
+	public static ValidationResult<SsnImpl> validate(String ssn) {
+		int digits = ssn == null ? SsnParser.MALFORMED : SsnParser.digits(ssn);
+		SsnParser.Reason reason = SsnParser.validate(digits);
+		if (reason != null) {
+			return ValidationResult.invalid(reason, reason.message(digits));
+		}
+		return ValidationResult.valid(new SsnImpl(ssn, digits));
 	}
 	
 	@Override
@@ -23,34 +38,4 @@ public class SsnImpl implements Ssn {
 		return sb.toString();
 	}
 
-	private void setSsn(String ssn) {
-		if ( ssn.matches("(\\d{3}-\\d{2}-\\d{4}|\\d{9})") ) {
-  		    this.ssn = ssn.replaceAll("-", "");
-		} else {
-  		    this.ssn = "";
-		}    
-		validateSsn();
-	}
-
-	private int validateSsn() {
-		if ( !ssn.matches("\\d{9}") ) {
-			throw new InvalidSsnException("Ssn must be exactly nine digits");
-		}
-		if ( "000".equals(ssn.substring(0,3)) ||
-			 "666".equals(ssn.substring(0,3)) ||
-			 "9".equals(ssn.substring(0,1)) ) {
-			throw new InvalidSsnException("Ssn cannot start with 000, 666, or 9");
-		}
-		if ( "0000".equals(ssn.substring(5)) ) {
-			throw new InvalidSsnException("Ssn serial number cannot be 0000");
-		}
-		for (int i = 0 ; i < specialCases.length ; i++ ) {
-			if ( ssn.equals(specialCases[i]) ) {
-				throw new InvalidSsnException(specialCases[i] + " is a reserved Ssn that cannot be used");
-			}
-		}
-		return 0;
-	}
-
-
 }
@@ -0,0 +1,238 @@
+package com.neopragma.legacy.round14;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The set of Ssns already submitted, for catching duplicate applicants
+ * as they are added. Ssns are kept as their nine digits in int arrays,
+ * about 8 to 16 bytes each, rather than as objects.
+ *
+ * The table is split into stripes, each an open-addressing table with
+ * linear probing and its own lock, so threads adding different Ssns
+ * rarely wait for each other. Every operation takes constant time on
+ * average; a stripe doubles when it is half full.
+ */
+public class SsnIndex {
+
+	public static final int DEFAULT_STRIPES = 64;
+
+	private static final int EMPTY = 0;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+	private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+	private final Stripe[] stripes;
+	private final int stripeShift;
+
+	public SsnIndex() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param stripes - number of independently locked tables, rounded up
+	 *                  to a power of two; more stripes, less contention
+	 */
+	public SsnIndex(int stripes) {
+		int count = Integer.highestOneBit(Math.max(1, stripes * 2 - 1));
+		this.stripes = new Stripe[count];
+		for (int i = 0 ; i < count ; i++) {
+			this.stripes[i] = new Stripe();
+		}
+		stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+	}
+
+	/**
+	 * @param ssn - nine digits, as returned by SsnParser.digits()
+	 * @return true when the Ssn was added, false when it was already there
+	 */
+	public boolean addIfAbsent(int ssn) {
+		int hash = hash(ssn);
+		return stripeFor(hash).addIfAbsent(key(ssn), hash);
+	}
+
+	public boolean contains(int ssn) {
+		int hash = hash(ssn);
+		return stripeFor(hash).contains(key(ssn), hash);
+	}
+
+	/**
+	 * @return true when the Ssn was there
+	 */
+	public boolean remove(int ssn) {
+		int hash = hash(ssn);
+		return stripeFor(hash).remove(key(ssn), hash);
+	}
+
+	/**
+	 * Empties the index and adds the Ssn of every given applicant.
+	 *
+	 * @return number of distinct Ssns added
+	 */
+	public int rebuildFrom(Iterable<? extends JobApplicant> applicants) {
+		return rebuild(applicants::forEach);
+	}
+
+	/**
+	 * Empties the index and adds the Ssn of every applicant in the store,
+	 * e.g. when the system starts.
+	 *
+	 * @return number of distinct Ssns added
+	 */
+	public int rebuildFrom(EnumerablePersistence persistence) {
+		return rebuild(persistence::forEachApplicant);
+	}
+
+	private int rebuild(Consumer<Consumer<JobApplicant>> applicants) {
+		clear();
+		AtomicInteger added = new AtomicInteger();
+		applicants.accept(applicant -> {
+			int ssn = digitsOf(applicant.getSsn());
+			if (ssn != SsnParser.MALFORMED && addIfAbsent(ssn)) {
+				added.incrementAndGet();
+			}
+		});
+		return added.get();
+	}
+
+	public void clear() {
+		for (Stripe stripe : stripes) {
+			stripe.clear();
+		}
+	}
+
+	public long size() {
+		long size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return approximate heap taken by the index
+	 */
+	public long memoryBytes() {
+		long bytes = 16L + 4L * stripes.length;
+		for (Stripe stripe : stripes) {
+			bytes += stripe.memoryBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the nine digits of an Ssn, or SsnParser.MALFORMED when it has
+	 *         none, e.g. a NullSsn
+	 */
+	public static int digitsOf(Ssn ssn) {
+		if (ssn instanceof PackedSsn) {
+			return ((PackedSsn) ssn).toInt();
+		}
+		return ssn == null ? SsnParser.MALFORMED : SsnParser.digits(ssn.formatSsn());
+	}
+
+	private Stripe stripeFor(int hash) {
+		return stripes[stripeShift == 32 ? 0 : hash >>> stripeShift];
+	}
+
+	/**
+	 * Stripes are picked by the high bits of the hash and slots by the
+	 * low bits, so the product's high bits are folded into the low ones.
+	 */
+	private static int hash(int ssn) {
+		int hash = ssn * HASH_MULTIPLIER;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Ssn 000-00-0000 is never valid, but shift every value by one so that
+	 * 0 is free to mark empty slots whatever is added.
+	 */
+	private static int key(int ssn) {
+		return ssn + 1;
+	}
+
+	private static class Stripe {
+		private int[] table = new int[INITIAL_STRIPE_CAPACITY];
+		private int size;
+
+		synchronized boolean addIfAbsent(int key, int hash) {
+			int mask = table.length - 1;
+			int slot = hash & mask;
+			while (table[slot] != EMPTY) {
+				if (table[slot] == key) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = key;
+			if (++size * 2 > table.length) {
+				grow();
+			}
+			return true;
+		}
+
+		synchronized boolean contains(int key, int hash) {
+			return slotOf(key, hash) >= 0;
+		}
+
+		synchronized boolean remove(int key, int hash) {
+			int slot = slotOf(key, hash);
+			if (slot < 0) {
+				return false;
+			}
+			// Shift later entries of the probe run back so none is left
+			// behind an empty slot.
+			int mask = table.length - 1;
+			int hole = slot;
+			for (int next = (hole + 1) & mask ; table[next] != EMPTY ; next = (next + 1) & mask) {
+				int home = hash(table[next] - 1) & mask;
+				if (((next - home) & mask) >= ((next - hole) & mask)) {
+					table[hole] = table[next];
+					hole = next;
+				}
+			}
+			table[hole] = EMPTY;
+			size--;
+			return true;
+		}
+
+		synchronized void clear() {
+			table = new int[INITIAL_STRIPE_CAPACITY];
+			size = 0;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized long memoryBytes() {
+			return 32L + 16L + 4L * table.length;
+		}
+
+		private int slotOf(int key, int hash) {
+			int mask = table.length - 1;
+			for (int slot = hash & mask ; table[slot] != EMPTY ; slot = (slot + 1) & mask) {
+				if (table[slot] == key) {
+					return slot;
+				}
+			}
+			return -1;
+		}
+
+		private void grow() {
+			int[] old = table;
+			table = new int[old.length * 2];
+			int mask = table.length - 1;
+			for (int key : old) {
+				if (key != EMPTY) {
+					int slot = hash(key - 1) & mask;
+					while (table[slot] != EMPTY) {
+						slot = (slot + 1) & mask;
+					}
+					table[slot] = key;
+				}
+			}
+		}
+	}
+
+}
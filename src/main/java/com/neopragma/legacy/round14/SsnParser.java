@@ -0,0 +1,143 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Parses and validates Social Security numbers in one pass over the
+ * characters, without regular expressions or intermediate Strings.
+ *
+ * Accepts ddd-dd-dddd and ddddddddd. The nine digits are handled as an
+ * int, so a parsed number can be checked and kept without allocating.
+ */
+public class SsnParser {
+
+	/**
+	 * Returned by digits() when the value is not in either accepted form.
+	 */
+	public static final int MALFORMED = -1;
+
+	private static final int DIGITS = 9;
+	private static final int DASHED_LENGTH = 11;
+	private static final int FIRST_DASH = 3;
+	private static final int SECOND_DASH = 6;
+	private static final int AREA_DIVISOR = 1000000;
+	private static final int SERIAL_DIVISOR = 10000;
+
+	/**
+	 * Why an Ssn was rejected, in the order the rules are checked.
+	 */
+	public enum Reason {
+		NOT_NINE_DIGITS("Ssn must be exactly nine digits"),
+		INVALID_AREA("Ssn cannot start with 000, 666, or 9"),
+		ZERO_SERIAL("Ssn serial number cannot be 0000"),
+		RESERVED(" is a reserved Ssn that cannot be used");
+
+		private final String message;
+
+		Reason(String message) {
+			this.message = message;
+		}
+
+		/**
+		 * @return the InvalidSsnException message for the rejected digits
+		 */
+		public String message(int digits) {
+			return this == RESERVED ? toDigitString(digits) + message : message;
+		}
+	}
+
+	private SsnParser() { }
+
+	/**
+	 * @return the nine digits as an int, or MALFORMED
+	 */
+	public static int digits(CharSequence ssn) {
+		int length = ssn.length();
+		if (length != DIGITS && length != DASHED_LENGTH) {
+			return MALFORMED;
+		}
+		boolean dashed = length == DASHED_LENGTH;
+		int value = 0;
+		for (int i = 0 ; i < length ; i++) {
+			char c = ssn.charAt(i);
+			if (dashed && (i == FIRST_DASH || i == SECOND_DASH)) {
+				if (c != '-') {
+					return MALFORMED;
+				}
+			} else if (c >= '0' && c <= '9') {
+				value = value * 10 + (c - '0');
+			} else {
+				return MALFORMED;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @param digits - as returned by digits()
+	 * @return why the Ssn is not acceptable, or null when it is
+	 */
+	public static Reason validate(int digits) {
+		if (digits == MALFORMED) {
+			return Reason.NOT_NINE_DIGITS;
+		}
+		int area = digits / AREA_DIVISOR;
+		if (area == 0 || area == 666 || area >= 900) {
+			return Reason.INVALID_AREA;
+		}
+		if (digits % SERIAL_DIVISOR == 0) {
+			return Reason.ZERO_SERIAL;
+		}
+		if (SsnBlocklist.current().contains(digits)) {
+			return Reason.RESERVED;
+		}
+		return null;
+	}
+
+	/**
+	 * @return the digits of a valid Ssn
+	 * @throws InvalidSsnException with the message of the first rule broken
+	 */
+	public static int parse(CharSequence ssn) {
+		int digits = digits(ssn);
+		Reason reason = validate(digits);
+		if (reason != null) {
+			throw new InvalidSsnException(reason.message(digits));
+		}
+		return digits;
+	}
+
+	/**
+	 * @return the nine digits with leading zeros, e.g. "078051120"
+	 */
+	public static String toDigitString(int digits) {
+		char[] chars = new char[DIGITS];
+		for (int i = DIGITS - 1 ; i >= 0 ; i--) {
+			chars[i] = (char) ('0' + digits % 10);
+			digits /= 10;
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return the digits as ddd-dd-dddd
+	 */
+	public static String format(int digits) {
+		char[] chars = new char[DASHED_LENGTH];
+		formatInto(digits, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Writes the digits as ddd-dd-dddd into 11 chars of destination.
+	 */
+	public static void formatInto(int digits, char[] destination, int offset) {
+		for (int i = DASHED_LENGTH - 1 ; i >= 0 ; i--) {
+			if (i == FIRST_DASH || i == SECOND_DASH) {
+				destination[offset + i] = '-';
+			} else {
+				destination[offset + i] = (char) ('0' + digits % 10);
+				digits /= 10;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * A Name read back from a persistence store, which keeps the formatted
+ * names rather than the parts they were built from.
+ */
+public class StoredName implements Name {
+
+	private final String displayName;
+	private final String sortableName;
+
+	public StoredName(String displayName, String sortableName) {
+		this.displayName = displayName;
+		this.sortableName = sortableName;
+	}
+
+	@Override
+	public String displayName() {
+		return displayName;
+	}
+
+	@Override
+	public String sortableName() {
+		return sortableName;
+	}
+}
@@ -0,0 +1,29 @@
+package com.neopragma.legacy.round14;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Lets code written against the blocking CityStateLookup, such as
+ * AddressImpl, use an AsyncCityStateLookup.
+ */
+public class SynchronousCityStateLookup implements CityStateLookup {
+
+	private final AsyncCityStateLookup asyncLookup;
+
+	public SynchronousCityStateLookup(AsyncCityStateLookup asyncLookup) {
+		this.asyncLookup = asyncLookup;
+	}
+
+	@Override
+	public CityState lookup(String zipCode) {
+		try {
+			return asyncLookup.lookupAsync(zipCode).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof CityStateLookupException) {
+				throw (CityStateLookupException) e.getCause();
+			}
+			throw new CityStateLookupException(e.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package com.neopragma.legacy.round14;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The USPS state and territory abbreviations, including the armed forces
+ * codes. An address can keep one of these shared constants, or its
+ * ordinal in a byte, instead of its own copy of the abbreviation.
+ */
+public enum UsState {
+
+	AL, AK, AZ, AR, CA, CO, CT, DE, DC, FL, GA, HI, ID, IL, IN, IA, KS, KY,
+	LA, ME, MD, MA, MI, MN, MS, MO, MT, NE, NV, NH, NJ, NM, NY, NC, ND, OH,
+	OK, OR, PA, RI, SC, SD, TN, TX, UT, VT, VA, WA, WV, WI, WY,
+	AS, GU, MP, PR, VI, UM, FM, MH, PW,
+	AA, AE, AP;
+
+	private static final UsState[] BY_ORDINAL = values();
+	private static final Map<String, UsState> BY_CODE = new HashMap<>();
+
+	static {
+		for (UsState state : BY_ORDINAL) {
+			BY_CODE.put(state.name(), state);
+		}
+	}
+
+	/**
+	 * @return the abbreviation, e.g. "TX"
+	 */
+	public String getCode() {
+		return name();
+	}
+
+	/**
+	 * @return the state for an abbreviation, or null when it is not a USPS
+	 *         abbreviation; the match is exact, so "tx" is not Texas
+	 */
+	public static UsState fromCode(String code) {
+		return code == null ? null : BY_CODE.get(code);
+	}
+
+	public static UsState fromOrdinal(int ordinal) {
+		return BY_ORDINAL[ordinal];
+	}
+
+}
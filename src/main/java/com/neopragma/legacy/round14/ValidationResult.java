@@ -0,0 +1,74 @@
+package com.neopragma.legacy.round14;
+
+import java.util.function.Function;
+
+/**
+ * Outcome of checking input without throwing: either the value built from
+ * it or the reason it was rejected and the message the throwing
+ * constructor would have used. Meant for bulk intake, where building an
+ * exception, with its stack trace, for every bad row costs more than the
+ * check itself.
+ *
+ * @param <T> - the type built from valid input
+ */
+public class ValidationResult<T> {
+
+	private final T value;
+	private final Enum<?> reason;
+	private final String message;
+
+	private ValidationResult(T value, Enum<?> reason, String message) {
+		this.value = value;
+		this.reason = reason;
+		this.message = message;
+	}
+
+	public static <T> ValidationResult<T> valid(T value) {
+		return new ValidationResult<>(value, null, null);
+	}
+
+	public static <T> ValidationResult<T> invalid(Enum<?> reason, String message) {
+		return new ValidationResult<>(null, reason, message);
+	}
+
+	public boolean isValid() {
+		return reason == null;
+	}
+
+	/**
+	 * @return the value, or null when the input was rejected
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * @return why the input was rejected, e.g. SsnParser.Reason.ZERO_SERIAL,
+	 *         or null when it was valid
+	 */
+	public Enum<?> getReason() {
+		return reason;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @param exception - builds the exception from the message, e.g.
+	 *                  InvalidSsnException::stackless
+	 * @return the value when the input was valid
+	 */
+	public T orElseThrow(Function<String, ? extends RuntimeException> exception) {
+		if (reason != null) {
+			throw exception.apply(message);
+		}
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return reason == null ? "valid " + value : reason + ": " + message;
+	}
+
+}
@@ -0,0 +1,506 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps job applicants in memory, in a ConcurrentInMemoryPersistence, and
+ * makes them survive a crash with a write-ahead log and checkpoints.
+ *
+ * Every save and delete is appended to the log before it is applied, and
+ * reaches the operating system before it returns, so an applicant whose
+ * save returned is not lost if the process is killed; call sync() to
+ * force the log to the device as well. Records are JobApplicantCodec
+ * payloads framed by RecordFraming.
+ *
+ * Once checkpointInterval records have been logged, a background thread
+ * starts a new log file and writes a checkpoint: a snapshot of every
+ * applicant as of the switch. When the checkpoint is complete the logs
+ * before it are deleted. On open, the newest checkpoint is restored and
+ * only the logs after it are replayed; a torn or corrupted record at the
+ * end of the last log is cut off. Writers wait while a checkpoint is
+ * being written and the new log already holds checkpointInterval records,
+ * so recovery never replays more than twice checkpointInterval records.
+ *
+ * Files are named wal-(generation).log and checkpoint-(generation).dat;
+ * a checkpoint holds everything logged before the log of its generation.
+ */
+public class WriteAheadLogPersistence implements DurablePersistence {
+
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 100000;
+
+	private static final String LOG_PREFIX = "wal-";
+	private static final String LOG_SUFFIX = ".log";
+	private static final String CHECKPOINT_PREFIX = "checkpoint-";
+	private static final String CHECKPOINT_SUFFIX = ".dat";
+	private static final String PARTIAL_SUFFIX = ".partial";
+	private static final int MAX_PAYLOAD_BYTES = 1024 * 1024;
+
+	private final Path directory;
+	private final int checkpointInterval;
+	private final ConcurrentInMemoryPersistence applicants;
+	private final ExecutorService checkpointer;
+	private final long recoveryNanos;
+	private FileChannel log;
+	private long generation;
+	private long logBytes;
+	private int logRecords;
+	private long uncheckpointedRecords;
+	private boolean checkpointing;
+	private boolean closed;
+	private long checkpoints;
+	private long checkpointFailures;
+	private long replayedRecords;
+	private long truncatedBytes;
+
+	public WriteAheadLogPersistence(Path directory) throws IOException {
+		this(directory, DEFAULT_CHECKPOINT_INTERVAL);
+	}
+
+	/**
+	 * @param directory - holds the log and checkpoint files, created if
+	 *                  missing
+	 * @param checkpointInterval - records logged between checkpoints; the
+	 *                  smaller, the faster recovery and the more often
+	 *                  every applicant is written out
+	 */
+	public WriteAheadLogPersistence(Path directory, int checkpointInterval) throws IOException {
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive");
+		}
+		this.directory = directory;
+		this.checkpointInterval = checkpointInterval;
+		Files.createDirectories(directory);
+		long start = System.nanoTime();
+		applicants = restoreCheckpoint();
+		replayLogs();
+		recoveryNanos = System.nanoTime() - start;
+		checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "write-ahead-log-checkpointer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		synchronized (this) {
+			if (logRecords >= checkpointInterval) {
+				startCheckpoint();
+			}
+		}
+	}
+
+	/**
+	 * Saves the applicant under its id, replacing any applicant saved with
+	 * the same id.
+	 *
+	 * @throws IllegalArgumentException when the applicant has no id
+	 */
+	@Override
+	public void save(JobApplicant data) {
+		if (data.getId() == null) {
+			throw new IllegalArgumentException("Job applicant has no id");
+		}
+		byte[] payload = JobApplicantCodec.encode(data);
+		synchronized (this) {
+			append(payload);
+			applicants.save(data);
+		}
+	}
+
+	@Override
+	public void delete(Integer id) {
+		if (id == null) {
+			return;
+		}
+		synchronized (this) {
+			if (applicants.findById(id.intValue()) == null) {
+				return;
+			}
+			append(JobApplicantCodec.encodeDeleted(id));
+			applicants.delete(id);
+		}
+	}
+
+	@Override
+	public JobApplicant findById(Integer id) {
+		return applicants.findById(id);
+	}
+
+	@Override
+	public JobApplicant findByName(String name) {
+		return applicants.findByName(name);
+	}
+
+	@Override
+	public void forEachApplicant(Consumer<? super JobApplicant> action) {
+		applicants.forEachApplicant(action);
+	}
+
+	/**
+	 * @return number of applicants saved and not deleted
+	 */
+	public long size() {
+		return applicants.size();
+	}
+
+	@Override
+	public synchronized void sync() throws IOException {
+		log.force(false);
+	}
+
+	/**
+	 * Writes a checkpoint now, after waiting for any being written in the
+	 * background, so that the next recovery has only later writes to
+	 * replay.
+	 */
+	public void checkpoint() throws IOException {
+		long checkpointGeneration;
+		synchronized (this) {
+			while (checkpointing) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted waiting for a checkpoint");
+				}
+			}
+			if (closed) {
+				throw new PersistenceException("Persistence has been closed");
+			}
+			checkpointing = true;
+			try {
+				checkpointGeneration = switchLog();
+			} catch (IOException e) {
+				checkpointing = false;
+				checkpointFailures++;
+				notifyAll();
+				throw e;
+			}
+		}
+		writeCheckpoint(checkpointGeneration);
+	}
+
+	/**
+	 * @return time taken to restore the checkpoint and replay the log when
+	 *         this was opened
+	 */
+	public long getRecoveryMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(recoveryNanos);
+	}
+
+	/**
+	 * @return log records replayed when this was opened
+	 */
+	public long getReplayedRecordCount() {
+		return replayedRecords;
+	}
+
+	/**
+	 * @return bytes cut off the end of the log when this was opened
+	 */
+	public long getTruncatedBytes() {
+		return truncatedBytes;
+	}
+
+	/**
+	 * @return records in the logs after the newest checkpoint, which is
+	 *         what recovery would replay now
+	 */
+	public synchronized long getUncheckpointedRecordCount() {
+		return uncheckpointedRecords;
+	}
+
+	/**
+	 * @return checkpoints written since this was opened
+	 */
+	public synchronized long getCheckpointCount() {
+		return checkpoints;
+	}
+
+	/**
+	 * @return checkpoints that failed since this was opened; their logs
+	 *         are kept and replayed by the next recovery instead
+	 */
+	public synchronized long getCheckpointFailureCount() {
+		return checkpointFailures;
+	}
+
+	/**
+	 * Waits for a checkpoint being written, then forces the log to the
+	 * device and closes it.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		checkpointer.shutdown();
+		try {
+			checkpointer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			log.force(false);
+			log.close();
+		}
+	}
+
+	/**
+	 * Must be called holding this object's lock.
+	 */
+	private void append(byte[] payload) {
+		while (checkpointing && logRecords >= checkpointInterval && !closed) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new PersistenceException("Interrupted waiting for a checkpoint");
+			}
+		}
+		if (closed) {
+			throw new PersistenceException("Persistence has been closed");
+		}
+		ByteBuffer record = RecordFraming.frame(payload);
+		try {
+			while (record.hasRemaining()) {
+				log.write(record, logBytes + record.position());
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("Cannot write to " + logPath(generation), e);
+		}
+		logBytes += record.limit();
+		logRecords++;
+		uncheckpointedRecords++;
+		if (logRecords >= checkpointInterval && !checkpointing) {
+			startCheckpoint();
+		}
+	}
+
+	/**
+	 * Must be called holding this object's lock.
+	 */
+	private void startCheckpoint() {
+		checkpointing = true;
+		long checkpointGeneration;
+		try {
+			checkpointGeneration = switchLog();
+		} catch (IOException e) {
+			// Logging carries on in the old file, to be tried again.
+			checkpointing = false;
+			checkpointFailures++;
+			notifyAll();
+			return;
+		}
+		checkpointer.execute(() -> {
+			try {
+				writeCheckpoint(checkpointGeneration);
+			} catch (IOException e) {
+				// Counted; the logs since the last checkpoint are kept.
+			}
+		});
+	}
+
+	/**
+	 * Forces the current log and starts the next. Must be called holding
+	 * this object's lock.
+	 *
+	 * @return generation of the new log, and of the checkpoint to write
+	 */
+	private long switchLog() throws IOException {
+		log.force(false);
+		FileChannel next = FileChannel.open(logPath(generation + 1), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		log.close();
+		log = next;
+		generation++;
+		logBytes = 0;
+		logRecords = 0;
+		return generation;
+	}
+
+	/**
+	 * Writes every applicant to the checkpoint of the given generation, then
+	 * deletes the logs and checkpoints it replaces. Writers carry on while
+	 * the snapshot is written.
+	 */
+	private void writeCheckpoint(long checkpointGeneration) throws IOException {
+		boolean written = false;
+		try {
+			applicants.snapshot(checkpointPath(checkpointGeneration));
+			for (String prefix : new String[] { LOG_PREFIX, CHECKPOINT_PREFIX }) {
+				for (Path path : files(prefix)) {
+					if (generationOf(path) < checkpointGeneration) {
+						Files.delete(path);
+					}
+				}
+			}
+			written = true;
+		} finally {
+			synchronized (this) {
+				checkpointing = false;
+				if (written) {
+					checkpoints++;
+					uncheckpointedRecords = logRecords;
+				} else {
+					checkpointFailures++;
+				}
+				notifyAll();
+				if (written && !closed && logRecords >= checkpointInterval) {
+					startCheckpoint();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the applicants in the newest checkpoint that can be read,
+	 *         having set the generation to its own
+	 */
+	private ConcurrentInMemoryPersistence restoreCheckpoint() throws IOException {
+		List<Path> checkpoints = files(CHECKPOINT_PREFIX);
+		for (int i = checkpoints.size() - 1 ; i >= 0 ; i--) {
+			ConcurrentInMemoryPersistence restored = new ConcurrentInMemoryPersistence();
+			try {
+				restored.restore(checkpoints.get(i));
+				generation = generationOf(checkpoints.get(i));
+				return restored;
+			} catch (IOException e) {
+				// Fall back on an older checkpoint; if its logs are gone,
+				// replayLogs() reports them missing.
+			}
+		}
+		generation = 1;
+		return new ConcurrentInMemoryPersistence();
+	}
+
+	/**
+	 * Replays the logs from the generation of the checkpoint on, in order,
+	 * and opens the last for appending.
+	 */
+	private void replayLogs() throws IOException {
+		List<Path> logs = files(LOG_PREFIX);
+		long expected = generation;
+		for (int i = 0 ; i < logs.size() ; i++) {
+			Path path = logs.get(i);
+			long logGeneration = generationOf(path);
+			if (logGeneration < generation) {
+				Files.delete(path);
+				continue;
+			}
+			if (logGeneration != expected) {
+				throw new IOException("Missing log " + logPath(expected) + " after checkpoint "
+						+ checkpointPath(generation));
+			}
+			replay(path, i == logs.size() - 1);
+			expected++;
+		}
+		generation = Math.max(generation, expected - 1);
+		log = FileChannel.open(logPath(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		logBytes = log.size();
+		uncheckpointedRecords = replayedRecords;
+	}
+
+	/**
+	 * Applies the intact records of a log. A bad record can only be the
+	 * tail of the last log, cut short by a crash, so it and what follows
+	 * are cut off; anywhere else it is damage recovery cannot repair.
+	 */
+	private void replay(Path path, boolean last) throws IOException {
+		int[] records = new int[1];
+		try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long size = file.size();
+			long position = RecordFraming.scan(file, size, MAX_PAYLOAD_BYTES, true, (offset, payload) -> {
+				if (!apply(payload)) {
+					return false;
+				}
+				records[0]++;
+				return true;
+			});
+			if (position < size) {
+				if (!last) {
+					throw new IOException("Corrupted record at " + position + " of " + path);
+				}
+				file.truncate(position);
+				file.force(true);
+				truncatedBytes = size - position;
+			}
+		}
+		replayedRecords += records[0];
+		logRecords = records[0];
+	}
+
+	/**
+	 * @return false when the payload is not a record
+	 */
+	private boolean apply(byte[] payload) {
+		if (payload.length < 5) {
+			return false;
+		}
+		byte kind = JobApplicantCodec.kind(payload);
+		if (kind == JobApplicantCodec.DELETED) {
+			applicants.delete(JobApplicantCodec.id(payload));
+			return true;
+		}
+		if (kind != JobApplicantCodec.SAVED) {
+			return false;
+		}
+		try {
+			applicants.save(JobApplicantCodec.decode(payload));
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param prefix - LOG_PREFIX or CHECKPOINT_PREFIX
+	 * @return the files with that prefix in order of generation, having
+	 *         deleted checkpoints a crash left unfinished
+	 */
+	private List<Path> files(String prefix) throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+			for (Path path : files) {
+				String fileName = path.getFileName().toString();
+				if (fileName.endsWith(PARTIAL_SUFFIX)) {
+					Files.delete(path);
+				} else if (fileName.endsWith(prefix.equals(LOG_PREFIX) ? LOG_SUFFIX : CHECKPOINT_SUFFIX)) {
+					paths.add(path);
+				}
+			}
+		}
+		paths.sort((a, b) -> Long.compare(generationOf(a), generationOf(b)));
+		return paths;
+	}
+
+	private Path logPath(long logGeneration) {
+		return directory.resolve(String.format("%s%010d%s", LOG_PREFIX, logGeneration, LOG_SUFFIX));
+	}
+
+	private Path checkpointPath(long checkpointGeneration) {
+		return directory.resolve(String.format("%s%010d%s", CHECKPOINT_PREFIX, checkpointGeneration,
+				CHECKPOINT_SUFFIX));
+	}
+
+	private static long generationOf(Path path) {
+		String fileName = path.getFileName().toString();
+		int start = fileName.indexOf('-') + 1;
+		return Long.parseLong(fileName.substring(start, fileName.indexOf('.', start)));
+	}
+
+}
@@ -0,0 +1,562 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Puts saves and deletes in a bounded queue and returns, leaving a
+ * dedicated writer thread to pass them on to a DurablePersistence in
+ * batches. Each batch is ended by one sync(), so many writes share the
+ * cost of forcing them to the device (group commit).
+ *
+ * save() and delete() are fire-and-forget; saveAsync() and deleteAsync()
+ * return a future completed once the write is synced, or completed
+ * exceptionally if it failed. flush() and close() return once every write
+ * queued before them is synced, and fail naming the ids of any save() or
+ * delete() lost since the last of them, as nothing else would tell of it.
+ * Finds see queued writes before they are written, so a caller always
+ * reads its own writes.
+ *
+ * When the queue is full, writers either wait for room (BLOCK) or are
+ * refused with a PersistenceException (REJECT), as chosen at construction.
+ *
+ * Should the writer thread die, every queued write fails, and so does
+ * every write after, rather than waiting for a writer that is gone.
+ */
+public class WriteBehindPersistence implements DurablePersistence, WriteBehindPersistenceMXBean {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+	private static final int MAX_LOST_IDS_NAMED = 100;
+	private static final int ID_LOCKS = 64;
+
+	/**
+	 * What a write does when the queue is full.
+	 */
+	public enum WhenFull {
+		/** wait until the writer makes room, slowing writers to its pace */
+		BLOCK,
+		/** throw PersistenceException, or fail the future, at once */
+		REJECT
+	}
+
+	private enum Kind { SAVE, DELETE, FLUSH, CLOSE }
+
+	private final DurablePersistence delegate;
+	private final BlockingQueue<Write> queue;
+	private final int queueCapacity;
+	private final int maxBatchSize;
+	private final WhenFull whenFull;
+	private final ConcurrentMap<Integer, Write> pending = new ConcurrentHashMap<>();
+	// Writers share the read lock; close() takes the write lock, so no
+	// write can be queued behind the writer thread's last batch.
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	// Held from putting a write in pending until it is queued, so that two
+	// writes of an id reach the store in the order finds saw them.
+	private final ReentrantLock[] idLocks = new ReentrantLock[ID_LOCKS];
+	private final Thread writer;
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong writes = new AtomicLong();
+	private final AtomicInteger largestBatch = new AtomicInteger();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private volatile Throwable writerDeath;
+	private boolean closed;
+	// Fire-and-forget writes lost since the last flush or close; only the
+	// writer thread touches these.
+	private final List<Integer> lostIds = new ArrayList<>();
+	private int lostCount;
+	private Throwable firstLoss;
+
+	public WriteBehindPersistence(DurablePersistence delegate) {
+		this(delegate, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE, WhenFull.BLOCK);
+	}
+
+	/**
+	 * @param delegate - persistence the writer thread writes to
+	 * @param queueCapacity - most writes waiting at once
+	 * @param maxBatchSize - most writes ended by one sync
+	 * @param whenFull - whether writes wait or are refused when the queue
+	 *                  is full
+	 */
+	public WriteBehindPersistence(DurablePersistence delegate, int queueCapacity,
+			int maxBatchSize, WhenFull whenFull) {
+		this.delegate = delegate;
+		this.queueCapacity = queueCapacity;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.maxBatchSize = maxBatchSize;
+		this.whenFull = whenFull;
+		for (int i = 0 ; i < idLocks.length ; i++) {
+			idLocks[i] = new ReentrantLock();
+		}
+		writer = new Thread(this::writeBatches, "write-behind-persistence");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queues the save and returns without waiting for it.
+	 *
+	 * @throws PersistenceException when the queue is full and writes are
+	 *         refused, or this has been closed
+	 * @throws IllegalArgumentException when the applicant has no id
+	 */
+	@Override
+	public void save(JobApplicant data) {
+		enqueue(saveOf(data));
+	}
+
+	/**
+	 * @return completed once the save is synced; completed exceptionally
+	 *         with a PersistenceException when it is refused or fails
+	 */
+	public CompletableFuture<Void> saveAsync(JobApplicant data) {
+		Write write = saveOf(data);
+		write.awaited = true;
+		try {
+			enqueue(write);
+		} catch (PersistenceException e) {
+			write.done.completeExceptionally(e);
+		}
+		return write.done;
+	}
+
+	/**
+	 * Queues the delete and returns without waiting for it.
+	 *
+	 * @throws PersistenceException when the queue is full and writes are
+	 *         refused, or this has been closed
+	 */
+	@Override
+	public void delete(Integer id) {
+		if (id != null) {
+			enqueue(new Write(Kind.DELETE, id, null));
+		}
+	}
+
+	/**
+	 * @return completed once the delete is synced; completed exceptionally
+	 *         with a PersistenceException when it is refused or fails
+	 */
+	public CompletableFuture<Void> deleteAsync(Integer id) {
+		Write write = new Write(Kind.DELETE, id, null);
+		write.awaited = true;
+		if (id == null) {
+			write.done.complete(null);
+			return write.done;
+		}
+		try {
+			enqueue(write);
+		} catch (PersistenceException e) {
+			write.done.completeExceptionally(e);
+		}
+		return write.done;
+	}
+
+	@Override
+	public JobApplicant findById(Integer id) {
+		Write queued = id == null ? null : pending.get(id);
+		if (queued != null) {
+			return queued.applicant;
+		}
+		return delegate.findById(id);
+	}
+
+	/**
+	 * Looks among queued saves first, then in the persistence behind the
+	 * queue.
+	 */
+	@Override
+	public JobApplicant findByName(String name) {
+		for (Write queued : pending.values()) {
+			if (queued.applicant != null && queued.applicant.getName() != null
+					&& name.equals(queued.applicant.getName().displayName())) {
+				return queued.applicant;
+			}
+		}
+		JobApplicant found = delegate.findByName(name);
+		Write queued = found == null ? null : pending.get(found.getId());
+		// The applicant found may since have been deleted or renamed.
+		return queued == null ? found : null;
+	}
+
+	/**
+	 * Waits for the writes queued so far to be written, then enumerates the
+	 * persistence behind the queue.
+	 *
+	 * @throws PersistenceException when the queued writes cannot be written
+	 */
+	@Override
+	public void forEachApplicant(Consumer<? super JobApplicant> action) {
+		try {
+			flush();
+		} catch (IOException e) {
+			throw new PersistenceException("Cannot write queued job applicants", e);
+		}
+		delegate.forEachApplicant(action);
+	}
+
+	/**
+	 * Waits until every write queued so far is written and synced.
+	 *
+	 * @throws IOException when the sync failed
+	 * @throws PersistenceException when a save() or delete() queued since
+	 *         the last flush() or close() was lost
+	 */
+	public void flush() throws IOException {
+		Write flush = new Write(Kind.FLUSH, null, null);
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				throw new PersistenceException("Persistence has been closed");
+			}
+			if (!putWaiting(flush)) {
+				throw new InterruptedIOException("Interrupted waiting for room to flush");
+			}
+			failQueuedIfWriterDied();
+		} finally {
+			closeLock.readLock().unlock();
+		}
+		await(flush);
+	}
+
+	/**
+	 * Same as flush().
+	 */
+	@Override
+	public void sync() throws IOException {
+		flush();
+	}
+
+	/**
+	 * Refuses further writes, waits until every queued write is written
+	 * and synced, then stops the writer thread and closes the persistence
+	 * behind the queue.
+	 *
+	 * @throws PersistenceException when a save() or delete() queued since
+	 *         the last flush() was lost
+	 */
+	@Override
+	public void close() throws IOException {
+		Write close = new Write(Kind.CLOSE, null, null);
+		closeLock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (!putWaiting(close)) {
+				throw new InterruptedIOException("Interrupted waiting for room to close");
+			}
+			failQueuedIfWriterDied();
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+		try {
+			await(close);
+		} finally {
+			delegate.close();
+		}
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	@Override
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	@Override
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	@Override
+	public long getWriteCount() {
+		return writes.get();
+	}
+
+	@Override
+	public double getAverageBatchSize() {
+		long count = batches.get();
+		return count == 0 ? 0 : (double) writes.get() / count;
+	}
+
+	@Override
+	public int getLargestBatchSize() {
+		return largestBatch.get();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * Registers the queue metrics with the platform MBean server.
+	 *
+	 * @param name - tells queues apart when there are several
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName(getClass().getPackage().getName()
+				+ ":type=Persistence,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	private static Write saveOf(JobApplicant data) {
+		if (data.getId() == null) {
+			throw new IllegalArgumentException("Job applicant has no id");
+		}
+		return new Write(Kind.SAVE, data.getId(), data);
+	}
+
+	private void enqueue(Write write) {
+		closeLock.readLock().lock();
+		try {
+			if (closed) {
+				throw new PersistenceException("Persistence has been closed");
+			}
+			if (writerDeath != null) {
+				throw new PersistenceException("Write-behind writer has stopped", writerDeath);
+			}
+			ReentrantLock idLock = idLocks[Math.floorMod(write.id, idLocks.length)];
+			idLock.lock();
+			try {
+				Write replaced = pending.put(write.id, write);
+				boolean queued;
+				if (whenFull == WhenFull.BLOCK) {
+					queued = putWaiting(write);
+				} else {
+					queued = queue.offer(write);
+				}
+				if (!queued) {
+					pending.compute(write.id, (id, current) -> current != write ? current
+							: replaced != null && !replaced.done.isDone() ? replaced : null);
+					rejected.incrementAndGet();
+					throw new PersistenceException("Write-behind queue is full");
+				}
+			} finally {
+				idLock.unlock();
+			}
+			failQueuedIfWriterDied();
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return false when interrupted before there was room
+	 */
+	private boolean putWaiting(Write write) {
+		try {
+			queue.put(write);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static void await(Write write) throws IOException {
+		try {
+			write.done.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for the write-behind queue");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof PersistenceException) {
+				throw new PersistenceException(e.getCause().getMessage(), e.getCause());
+			}
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+					: new IOException(e.getCause());
+		}
+	}
+
+	private void writeBatches() {
+		List<Write> batch = new ArrayList<>(maxBatchSize);
+		boolean running = true;
+		try {
+			while (running) {
+				try {
+					batch.add(queue.take());
+				} catch (InterruptedException e) {
+					continue;
+				}
+				queue.drainTo(batch, maxBatchSize - 1);
+				running = write(batch);
+				batch.clear();
+			}
+		} catch (Throwable e) {
+			writerDeath = e;
+			fail(batch);
+			failQueuedIfWriterDied();
+			throw e;
+		}
+	}
+
+	/**
+	 * Fails the writes in the queue once the writer thread has died. Called
+	 * after each write is queued too, so that one queued while the writer
+	 * was emptying the queue for the last time does not wait forever.
+	 */
+	private void failQueuedIfWriterDied() {
+		if (writerDeath != null) {
+			List<Write> stranded = new ArrayList<>();
+			queue.drainTo(stranded);
+			fail(stranded);
+		}
+	}
+
+	private void fail(List<Write> stranded) {
+		for (Write write : stranded) {
+			if (write.id != null) {
+				pending.remove(write.id, write);
+			}
+			if (write.done.completeExceptionally(new PersistenceException(
+					"Write-behind writer has stopped", writerDeath)) && write.id != null) {
+				failed.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Writes a batch, syncs once and completes the writes' futures.
+	 *
+	 * @return false when the batch ends with close()
+	 */
+	private boolean write(List<Write> batch) {
+		boolean running = true;
+		int count = 0;
+		for (Write write : batch) {
+			if (write.kind == Kind.CLOSE) {
+				running = false;
+			}
+			if (write.id == null) {
+				continue;
+			}
+			count++;
+			try {
+				if (write.kind == Kind.SAVE) {
+					delegate.save(write.applicant);
+				} else {
+					delegate.delete(write.id);
+				}
+			} catch (Throwable e) {
+				// Errors included: the writer thread must outlive any write.
+				write.failure = e;
+			}
+		}
+		IOException syncFailure = null;
+		try {
+			delegate.sync();
+		} catch (IOException e) {
+			syncFailure = e;
+		} catch (Throwable e) {
+			syncFailure = new IOException(e);
+		}
+		// Counted before any future completes, so callers see their batch.
+		if (count > 0) {
+			batches.incrementAndGet();
+			writes.addAndGet(count);
+			largestBatch.accumulateAndGet(count, Math::max);
+		}
+		for (Write write : batch) {
+			if (write.id == null) {
+				completeMarker(write, syncFailure);
+				continue;
+			}
+			pending.remove(write.id, write);
+			PersistenceException failure;
+			if (write.failure != null) {
+				failure = new PersistenceException("Cannot write job applicant " + write.id, write.failure);
+			} else if (syncFailure != null) {
+				failure = new PersistenceException("Cannot sync job applicant " + write.id, syncFailure);
+			} else {
+				write.done.complete(null);
+				continue;
+			}
+			failed.incrementAndGet();
+			write.done.completeExceptionally(failure);
+			if (!write.awaited) {
+				lost(write.id, failure);
+			}
+		}
+		return running;
+	}
+
+	private void lost(Integer id, Throwable failure) {
+		if (lostIds.size() < MAX_LOST_IDS_NAMED) {
+			lostIds.add(id);
+		}
+		if (lostCount++ == 0) {
+			firstLoss = failure;
+		}
+	}
+
+	/**
+	 * Completes a flush() or close() marker, failing it when writes queued
+	 * before it were lost since the last marker.
+	 */
+	private void completeMarker(Write marker, IOException syncFailure) {
+		if (lostCount > 0) {
+			PersistenceException lost = new PersistenceException("Lost " + lostCount
+					+ " writes, of job applicants " + lostIds
+					+ (lostCount > lostIds.size() ? " and more" : ""), firstLoss);
+			lostIds.clear();
+			lostCount = 0;
+			firstLoss = null;
+			marker.done.completeExceptionally(lost);
+		} else if (syncFailure != null) {
+			marker.done.completeExceptionally(syncFailure);
+		} else {
+			marker.done.complete(null);
+		}
+	}
+
+	/**
+	 * A queued save or delete, or a marker for flush() or close().
+	 */
+	private static final class Write {
+		final Kind kind;
+		final Integer id;
+		final JobApplicant applicant;
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+		// Set for saveAsync() and deleteAsync(), whose callers learn of a
+		// failure from the future.
+		boolean awaited;
+		Throwable failure;
+
+		Write(Kind kind, Integer id, JobApplicant applicant) {
+			this.kind = kind;
+			this.id = id;
+			this.applicant = applicant;
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Write-behind queue metrics as seen through JMX, e.g. in JConsole under
+ * com.neopragma.legacy.round14:type=Persistence.
+ */
+public interface WriteBehindPersistenceMXBean {
+
+	/**
+	 * @return writes waiting for the writer thread
+	 */
+	int getQueueDepth();
+
+	int getQueueCapacity();
+
+	/**
+	 * @return batches written, each ended by one sync
+	 */
+	long getBatchCount();
+
+	/**
+	 * @return saves and deletes written, whether they succeeded or not
+	 */
+	long getWriteCount();
+
+	double getAverageBatchSize();
+
+	int getLargestBatchSize();
+
+	/**
+	 * @return writes refused because the queue was full
+	 */
+	long getRejectedCount();
+
+	/**
+	 * @return writes that the persistence behind the queue failed to make
+	 *         or to sync
+	 */
+	long getFailedCount();
+}
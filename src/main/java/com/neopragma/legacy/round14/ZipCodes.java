@@ -0,0 +1,41 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Helpers for handling zip codes the way the lookup service sees them.
+ */
+public class ZipCodes {
+
+	private static final int ZIP5_LENGTH = 5;
+
+	private ZipCodes() { }
+
+	/**
+	 * Reduces a 5-digit or 9-digit zip code (with or without the dash) to
+	 * the 5 digits the lookup service is keyed on.
+	 *
+	 * @param zipCode
+	 * @return the first 5 digits of the zip code
+	 * @throws CityStateLookupException if the value does not start with 5 digits
+	 */
+	public static String normalize(String zipCode) {
+		if (zipCode == null) {
+			throw new CityStateLookupException(new IllegalArgumentException("Zip code is missing"));
+		}
+		String trimmed = zipCode.trim();
+		if (trimmed.length() < ZIP5_LENGTH) {
+			throw invalid(zipCode);
+		}
+		for (int i = 0 ; i < ZIP5_LENGTH ; i++) {
+			char c = trimmed.charAt(i);
+			if (c < '0' || c > '9') {
+				throw invalid(zipCode);
+			}
+		}
+		return trimmed.length() == ZIP5_LENGTH ? trimmed : trimmed.substring(0, ZIP5_LENGTH);
+	}
+
+	private static CityStateLookupException invalid(String zipCode) {
+		return new CityStateLookupException(new IllegalArgumentException("Invalid zip code: " + zipCode));
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.neopragma.legacy.round14;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a zip,city,state CSV file into the compact binary file read by
+ * OfflineCityStateLookup.
+ *
+ * File layout (all integers big-endian):
+ * <pre>
+ *   header     magic, version, stateCount, cityCount, cityBytesLength
+ *   zip table  100000 ints, one per zip code 00000-99999:
+ *              0 when unknown, otherwise (cityIndex + 1) &lt;&lt; 8 | stateIndex
+ *   states     stateCount entries of (unsigned byte length, ASCII bytes)
+ *   cities     cityCount + 1 int offsets into the city bytes, then the
+ *              UTF-8 bytes of every city name back to back
+ * </pre>
+ */
+public class ZipDatabaseBuilder {
+
+	static final int MAGIC = 0x5A495031;
+	static final int VERSION = 1;
+	static final int ZIP_CODE_COUNT = 100000;
+	static final int HEADER_BYTES = 5 * 4;
+	static final int MAX_STATES = 256;
+
+	private final int[] zipTable = new int[ZIP_CODE_COUNT];
+	private final List<String> states = new ArrayList<>();
+	private final Map<String, Integer> stateIndexes = new HashMap<>();
+	private final List<String> cities = new ArrayList<>();
+	private final Map<String, Integer> cityIndexes = new HashMap<>();
+
+	/**
+	 * Usage: ZipDatabaseBuilder zips.csv zips.db
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: ZipDatabaseBuilder <csv file> <database file>");
+			return;
+		}
+		ZipDatabaseBuilder builder = new ZipDatabaseBuilder();
+		try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+			builder.readCsv(reader);
+		}
+		builder.writeTo(Paths.get(args[1]));
+	}
+
+	/**
+	 * Reads lines of zip,city,state. Lines whose first field is not a zip
+	 * code, such as a header line, are skipped. Fields may be quoted.
+	 */
+	public ZipDatabaseBuilder readCsv(Reader csv) throws IOException {
+		BufferedReader reader = new BufferedReader(csv);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			List<String> fields = splitCsvLine(line);
+			if (fields.size() < 3 || !isZipCode(fields.get(0).trim())) {
+				continue;
+			}
+			addPlace(fields.get(0).trim(), fields.get(1).trim(), fields.get(2).trim());
+		}
+		return this;
+	}
+
+	public ZipDatabaseBuilder addPlace(String zipCode, String city, String state) {
+		int zip = Integer.parseInt(ZipCodes.normalize(zipCode));
+		zipTable[zip] = (cityIndex(city) + 1) << 8 | stateIndex(state);
+		return this;
+	}
+
+	public void writeTo(Path database) throws IOException {
+		byte[][] cityBytes = new byte[cities.size()][];
+		int cityBytesLength = 0;
+		for (int i = 0 ; i < cityBytes.length ; i++) {
+			cityBytes[i] = cities.get(i).getBytes(StandardCharsets.UTF_8);
+			cityBytesLength += cityBytes[i].length;
+		}
+		try (OutputStream file = Files.newOutputStream(database);
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(states.size());
+			out.writeInt(cities.size());
+			out.writeInt(cityBytesLength);
+			for (int entry : zipTable) {
+				out.writeInt(entry);
+			}
+			for (String state : states) {
+				byte[] bytes = state.getBytes(StandardCharsets.US_ASCII);
+				out.writeByte(bytes.length);
+				out.write(bytes);
+			}
+			int offset = 0;
+			for (byte[] bytes : cityBytes) {
+				out.writeInt(offset);
+				offset += bytes.length;
+			}
+			out.writeInt(offset);
+			for (byte[] bytes : cityBytes) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private int stateIndex(String state) {
+		Integer index = stateIndexes.get(state);
+		if (index == null) {
+			if (states.size() == MAX_STATES) {
+				throw new IllegalArgumentException("More than " + MAX_STATES + " distinct states");
+			}
+			index = states.size();
+			states.add(state);
+			stateIndexes.put(state, index);
+		}
+		return index;
+	}
+
+	private int cityIndex(String city) {
+		Integer index = cityIndexes.get(city);
+		if (index == null) {
+			index = cities.size();
+			cities.add(city);
+			cityIndexes.put(city, index);
+		}
+		return index;
+	}
+
+	private static boolean isZipCode(String value) {
+		if (value.length() != 5) {
+			return false;
+		}
+		for (int i = 0 ; i < value.length() ; i++) {
+			// Not Character.isDigit, which takes digits of other scripts
+			// that ZipCodes.normalize rejects.
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<String> splitCsvLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0 ; i < line.length() ; i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = !quoted;
+				}
+			} else if (c == ',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+}
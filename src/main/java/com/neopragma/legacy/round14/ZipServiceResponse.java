@@ -0,0 +1,87 @@
+package com.neopragma.legacy.round14;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the city and state out of a response from the zip code service.
+ * Shared by the blocking and the asynchronous lookups.
+ */
+class ZipServiceResponse {
+
+	private static final String PLACES = "places";
+	private static final String PLACE_NAME = "place name";
+	private static final String STATE_ABBREVIATION = "state abbreviation";
+
+	private ZipServiceResponse() { }
+
+	/**
+	 * Parses the response as a stream, straight off the entity, and stops
+	 * parsing as soon as the first place's name and state abbreviation are
+	 * known. The rest of the body is drained unparsed so the connection
+	 * can go back to the pool.
+	 *
+	 * @param response - response to GET /us/{zip}
+	 * @return CityState object containing the city and state
+	 * @throws HttpResponseException if the service did not answer 200 OK
+	 * @throws JsonParseException if the response has no place in it
+	 */
+	static CityState parse(HttpResponse response) throws IOException {
+		HttpEntity entity = response.getEntity();
+		int status = response.getStatusLine().getStatusCode();
+		if (status != HttpStatus.SC_OK) {
+			EntityUtils.consume(entity);
+			throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+		}
+		if (entity == null) {
+			return new CityState(Constants.EMPTY_STRING, Constants.EMPTY_STRING);
+		}
+		try {
+			JsonReader reader = new JsonReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (PLACES.equals(reader.nextName())) {
+					reader.beginArray();
+					if (reader.hasNext()) {
+						return readPlace(reader);
+					}
+					break;
+				}
+				reader.skipValue();
+			}
+			throw new JsonParseException("Response has no places");
+		} finally {
+			EntityUtils.consume(entity);
+		}
+	}
+
+	private static CityState readPlace(JsonReader reader) throws IOException {
+		String city = null;
+		String state = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (PLACE_NAME.equals(name)) {
+				city = reader.nextString();
+			} else if (STATE_ABBREVIATION.equals(name)) {
+				state = reader.nextString();
+			} else {
+				reader.skipValue();
+			}
+			if (city != null && state != null) {
+				return new CityState(city, state);
+			}
+		}
+		throw new JsonParseException("Place has no " + (city == null ? PLACE_NAME : STATE_ABBREVIATION));
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Compares the heap taken by addresses that each hold their own city and
+ * state Strings, as every lookup used to produce, with AddressImpl sharing
+ * pooled CityStates. The addresses are spread over 30,000 places, about
+ * as many as there are in the country. Each pooled run starts with an
+ * empty pool of its own, whose size is counted in the run.
+ *
+ * Run with enough heap for the largest count, e.g. -Xmx6g:
+ *     java -Xmx6g -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.AddressFootprintBenchmark [count...]
+ */
+public class AddressFootprintBenchmark {
+
+	private static final int PLACES = 30000;
+
+	public static void main(String[] args) {
+		int[] counts = args.length > 0 ? new int[args.length] : new int[] { 1000000, 10000000 };
+		for (int i = 0 ; i < args.length ; i++) {
+			counts[i] = Integer.parseInt(args[i]);
+		}
+		for (int count : counts) {
+			report("own strings", count, measure(count, false));
+			report("pooled", count, measure(count, true));
+		}
+	}
+
+	private static long measure(int count, boolean pooled) {
+		long before = usedHeap();
+		Address[] addresses = new Address[count];
+		long arrayBytes = usedHeap() - before;
+		CityStatePool pool = new CityStatePool();
+		for (int i = 0 ; i < count ; i++) {
+			int place = (int) ((i * 2654435761L) % PLACES);
+			String zipCode = String.format("%05d", place);
+			// Fresh copies, as a parsed service response would produce.
+			String city = new String("City " + place);
+			String state = new String(UsState.fromOrdinal(place % UsState.values().length).getCode());
+			addresses[i] = pooled
+					? new AddressImpl(pool, city, state, zipCode)
+					: new CopiedAddress(city, state, zipCode);
+		}
+		long used = usedHeap() - before - arrayBytes;
+		if (addresses[count - 1] == null || pool.size() > PLACES) {
+			throw new IllegalStateException();
+		}
+		return used;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0 ; i < 3 ; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void report(String label, int count, long bytes) {
+		System.out.printf("%-12s %,11d addresses %,8.1f MB %6.1f bytes/address%n",
+				label, count, bytes / 1048576.0, (double) bytes / count);
+	}
+
+	/**
+	 * The address as it was before pooling.
+	 */
+	private static class CopiedAddress implements Address {
+		private final String zipCode;
+		private final String city;
+		private final String state;
+
+		CopiedAddress(String city, String state, String zipCode) {
+			this.city = city;
+			this.state = state;
+			this.zipCode = zipCode;
+		}
+
+		@Override
+		public String getZipCode() {
+			return zipCode;
+		}
+
+		@Override
+		public String getCity() {
+			return city;
+		}
+
+		@Override
+		public String getState() {
+			return state;
+		}
+	}
+
+}
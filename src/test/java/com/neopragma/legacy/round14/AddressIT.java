@@ -1,12 +1,42 @@
 package com.neopragma.legacy.round14;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+/**
+ * Runs against a local ZipServiceStandIn, so the build does not depend on
+ * api.zippopotam.us. Run with -Dzip.service=live to check the real service.
+ */
 public class AddressIT {
-	
+
+	private ZipServiceStandIn standIn;
+	private CityStateLookupImpl cityStateLookup;
+
+	@Before
+	public void beforeEach() throws Exception {
+		if ("live".equals(System.getProperty("zip.service"))) {
+			cityStateLookup = new CityStateLookupImpl();
+		} else {
+			standIn = new ZipServiceStandIn()
+					.withPlace("75001", "Addison", "TX")
+					.withPlace("85658", "Marana", "AZ")
+					.start();
+			cityStateLookup = new CityStateLookupImpl(standIn.clientConfig());
+		}
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		cityStateLookup.close();
+		if (standIn != null) {
+			standIn.stop();
+		}
+	}
+
 	@Test
 	public void itFindsAddisonTexasBy5DigitZipCode() {
 		assertAddressFor("75001", "Addison", "TX");
@@ -19,13 +49,13 @@ public class AddressIT {
 
 	@Test(expected=CityStateLookupException.class)
 	public void itThrowsWhenZipCodeIsNotFound() {
-		new AddressImpl(new CityStateLookupImpl(), "99999");
+		new AddressImpl(cityStateLookup, "99999");
 	}
 
 	private void assertAddressFor(String zipCode, String city, String state) {
 		Address address = null;
 		try {
-			address = new AddressImpl(new CityStateLookupImpl(), zipCode);
+			address = new AddressImpl(cityStateLookup, zipCode);
 			assertEquals(city, address.getCity());
 			assertEquals(state, address.getState());
 			assertEquals(zipCode, address.getZipCode());
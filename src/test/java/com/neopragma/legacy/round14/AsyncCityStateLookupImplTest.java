@@ -0,0 +1,77 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncCityStateLookupImplTest {
+
+	private ZipServiceStandIn standIn;
+	private AsyncCityStateLookupImpl lookup;
+
+	@Before
+	public void beforeEach() throws Exception {
+		standIn = new ZipServiceStandIn()
+				.withPlace("75001", "Addison", "TX")
+				.withPlace("85658", "Marana", "AZ")
+				.start();
+		lookup = new AsyncCityStateLookupImpl(standIn.clientConfig().maxInFlightRequests(2));
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		lookup.close();
+		standIn.stop();
+	}
+
+	@Test
+	public void itFindsAddisonTexasBy5DigitZipCode() throws Exception {
+		CityState cityState = lookup.lookupAsync("75001").get();
+		assertEquals("Addison", cityState.getCity());
+		assertEquals("TX", cityState.getState());
+	}
+
+	@Test
+	public void itCompletesExceptionallyWhenZipCodeIsNotFound() throws Exception {
+		try {
+			lookup.lookupAsync("99999").get();
+			fail("Expected the lookup to fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof CityStateLookupException);
+		}
+	}
+
+	@Test
+	public void itQueuesLookupsBeyondTheInFlightLimit() throws Exception {
+		List<CompletableFuture<CityState>> results = new ArrayList<>();
+		for (int i = 0 ; i < 40 ; i++) {
+			results.add(lookup.lookupAsync(i % 2 == 0 ? "75001" : "856585578"));
+		}
+		CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get();
+		assertEquals("Marana", results.get(39).get().getCity());
+		assertEquals(40, standIn.requestCount());
+		assertEquals(0, lookup.getQueuedCount());
+	}
+
+	@Test
+	public void itServesSynchronousCallersThroughTheAdapter() {
+		Address address = new AddressImpl(new SynchronousCityStateLookup(lookup), "85658");
+		assertEquals("Marana", address.getCity());
+		assertEquals("AZ", address.getState());
+	}
+
+	@Test(expected=CityStateLookupException.class)
+	public void theAdapterThrowsCityStateLookupException() {
+		new SynchronousCityStateLookup(lookup).lookup("99999");
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchCityStateLookupTest {
+
+	private ExecutorService threads = Executors.newFixedThreadPool(8);
+	private CountingLookup delegate = new CountingLookup();
+
+	@After
+	public void afterEach() {
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void itLooksUpEachDistinctZipCodeOnce() {
+		BatchCityStateLookup batch = new BatchCityStateLookup(delegate, threads);
+		Map<String, CityState> found = batch.lookupAll(Arrays.asList(
+				"75001", "75001-1234", "85658", "750019999", "85658"));
+		assertEquals(2, found.size());
+		assertEquals("Addison", found.get("75001").getCity());
+		assertEquals("Marana", found.get("85658").getCity());
+		assertEquals(2, delegate.calls.get());
+	}
+
+	@Test
+	public void itReportsFailuresPerZipCodeWithoutFailingTheBatch() {
+		BatchCityStateLookup batch = new BatchCityStateLookup(delegate);
+		Map<String, CityStateLookupException> failures = new HashMap<>();
+		Map<String, CityState> found = batch.lookupAll(Arrays.asList("75001", "99999", "bad"), failures);
+		assertEquals(1, found.size());
+		assertEquals(2, failures.size());
+		assertTrue(failures.containsKey("99999"));
+		assertTrue(failures.containsKey("bad"));
+	}
+
+	@Test
+	public void concurrentCallersShareOneInFlightLookup() throws Exception {
+		delegate.release = new CountDownLatch(1);
+		BatchCityStateLookup batch = new BatchCityStateLookup(delegate);
+		Map<Integer, CityState> results = new ConcurrentHashMap<>();
+		Thread[] callers = new Thread[8];
+		for (int i = 0 ; i < callers.length ; i++) {
+			final int caller = i;
+			callers[i] = new Thread(() -> results.put(caller, batch.lookup("75001")));
+			callers[i].start();
+		}
+		waitUntilAllAreBlocked(callers);
+		delegate.release.countDown();
+		for (Thread caller : callers) {
+			caller.join(5000);
+		}
+		assertEquals(callers.length, results.size());
+		assertEquals("Addison", results.get(7).getCity());
+		assertEquals(1, delegate.calls.get());
+		assertEquals(0, batch.getInFlightCount());
+	}
+
+	@Test
+	public void concurrentCallersEachGetTheirOwnException() throws Exception {
+		delegate.release = new CountDownLatch(1);
+		BatchCityStateLookup batch = new BatchCityStateLookup(delegate);
+		Map<Integer, CityStateLookupException> failures = new ConcurrentHashMap<>();
+		Thread[] callers = new Thread[8];
+		for (int i = 0 ; i < callers.length ; i++) {
+			final int caller = i;
+			callers[i] = new Thread(() -> {
+				try {
+					batch.lookup("99999");
+				} catch (CityStateLookupException e) {
+					failures.put(caller, e);
+				}
+			});
+			callers[i].start();
+		}
+		waitUntilAllAreBlocked(callers);
+		delegate.release.countDown();
+		for (Thread caller : callers) {
+			caller.join(5000);
+		}
+		assertEquals(1, delegate.calls.get());
+		Set<CityStateLookupException> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+		distinct.addAll(failures.values());
+		assertEquals(callers.length, distinct.size());
+	}
+
+	@Test
+	public void itFailsTheZipCodeWhenTheDelegateThrowsAnError() {
+		BatchCityStateLookup batch = new BatchCityStateLookup(delegate, threads);
+		Map<String, CityStateLookupException> failures = new HashMap<>();
+		Map<String, CityState> found = batch.lookupAll(Arrays.asList("75001", CountingLookup.ERROR_ZIP), failures);
+		assertEquals(1, found.size());
+		assertTrue(failures.get(CountingLookup.ERROR_ZIP).getWrappedException() instanceof Error);
+	}
+
+	@Test
+	public void itLooksUpAgainOnceTheEarlierLookupHasFinished() {
+		BatchCityStateLookup batch = new BatchCityStateLookup(delegate);
+		batch.lookup("75001");
+		batch.lookup("75001");
+		assertEquals(2, delegate.calls.get());
+	}
+
+	private void waitUntilAllAreBlocked(Thread[] threads) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		for (Thread thread : threads) {
+			while (thread.getState() != Thread.State.WAITING
+					&& thread.getState() != Thread.State.TIMED_WAITING
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	private static class CountingLookup implements CityStateLookup {
+		static final String ERROR_ZIP = "00001";
+
+		final AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(0);
+
+		@Override
+		public CityState lookup(String zipCode) {
+			calls.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if ("75001".equals(zipCode)) {
+				return new CityState("Addison", "TX");
+			}
+			if ("85658".equals(zipCode)) {
+				return new CityState("Marana", "AZ");
+			}
+			if (ERROR_ZIP.equals(zipCode)) {
+				throw new Error("Cannot look up " + zipCode);
+			}
+			throw new CityStateLookupException(new Exception("Not found: " + zipCode));
+		}
+	}
+
+}
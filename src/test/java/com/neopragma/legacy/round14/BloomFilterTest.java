@@ -0,0 +1,49 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class BloomFilterTest {
+
+	private static final int ENTRIES = 10000;
+
+	@Test
+	public void itFindsEveryAddedValue() {
+		BloomFilter filter = new BloomFilter(ENTRIES);
+		for (int i = 0 ; i < ENTRIES ; i++) {
+			filter.add("Name " + i);
+		}
+		for (int i = 0 ; i < ENTRIES ; i++) {
+			assertTrue(filter.mightContain("Name " + i));
+		}
+	}
+
+	@Test
+	public void itRarelyReportsValuesNeverAdded() {
+		BloomFilter filter = new BloomFilter(ENTRIES);
+		for (int i = 0 ; i < ENTRIES ; i++) {
+			filter.add("Name " + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0 ; i < ENTRIES ; i++) {
+			falsePositives += filter.mightContain("Other " + i) ? 1 : 0;
+		}
+		assertTrue(falsePositives + " false positives", falsePositives < ENTRIES * 2 / 100);
+	}
+
+	@Test
+	public void itKeepsIntsAsWell() {
+		BloomFilter filter = new BloomFilter(ENTRIES);
+		for (int i = 0 ; i < ENTRIES ; i++) {
+			filter.add(i * 2);
+		}
+		int falsePositives = 0;
+		for (int i = 0 ; i < ENTRIES ; i++) {
+			assertTrue(filter.mightContain(i * 2));
+			falsePositives += filter.mightContain(i * 2 + 1) ? 1 : 0;
+		}
+		assertTrue(falsePositives + " false positives", falsePositives < ENTRIES * 2 / 100);
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.neopragma.legacy.round14;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Validates a column of Ssns, laid out as in an import file, with
+ * BulkSsnValidator and with a String and new SsnImpl per row. Half of the
+ * Ssns are dashed and one in twenty is invalid.
+ *
+ * Run with: java -Xmx2g -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.BulkSsnValidatorBenchmark [rows]
+ */
+public class BulkSsnValidatorBenchmark {
+
+	public static void main(String[] args) {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int[] offsets = new int[rows];
+		int[] lengths = new int[rows];
+		byte[] column = column(rows, offsets, lengths);
+		BulkSsnValidator validator = new BulkSsnValidator();
+		for (int round = 0 ; round < 3 ; round++) {
+			long start = System.nanoTime();
+			int valid = validator.validate(column, offsets, lengths).getValidCount();
+			report("bulk", rows, valid, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			valid = 0;
+			for (int row = 0 ; row < rows ; row++) {
+				try {
+					new SsnImpl(new String(column, offsets[row], lengths[row], StandardCharsets.ISO_8859_1));
+					valid++;
+				} catch (InvalidSsnException e) {
+				}
+			}
+			report("new SsnImpl", rows, valid, System.nanoTime() - start);
+		}
+	}
+
+	private static byte[] column(int rows, int[] offsets, int[] lengths) {
+		byte[] column = new byte[rows * 12];
+		int at = 0;
+		for (int row = 0 ; row < rows ; row++) {
+			int area = row % 20 == 19 ? 666 : 1 + row % 665;
+			String digits = String.format("%03d%02d%04d", area, 1 + row % 99, 1 + row % 9999);
+			String ssn = row % 2 == 0 ? digits
+					: digits.substring(0, 3) + "-" + digits.substring(3, 5) + "-" + digits.substring(5);
+			offsets[row] = at;
+			lengths[row] = ssn.length();
+			for (int i = 0 ; i < ssn.length() ; i++) {
+				column[at++] = (byte) ssn.charAt(i);
+			}
+			column[at++] = '\n';
+		}
+		return column;
+	}
+
+	private static void report(String label, int rows, int valid, long elapsedNanos) {
+		System.out.printf("%-12s %,d rows %8.1f ms %6.1f ns/row (%d valid)%n",
+				label, rows, elapsedNanos / 1e6, (double) elapsedNanos / rows, valid);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BulkSsnValidatorTest {
+
+	private BulkSsnValidator validator = new BulkSsnValidator();
+
+	@Test
+	public void itMarksValidRowsAndGivesReasonsForTheOthers() {
+		String[] ssns = { "123-45-6789", "123456789", "666-12-3456", "111220000", "078051120", "12-3456-789", "12345" };
+		BulkSsnValidator.Result result = validate(ssns, ByteBuffer::wrap);
+		assertEquals(2, result.getValidCount());
+		assertTrue(result.isValid(0));
+		assertEquals(123456789, result.getDigits(1));
+		assertFalse(result.isValid(2));
+		assertEquals(SsnParser.Reason.INVALID_AREA, result.getReason(2));
+		assertEquals(SsnParser.Reason.ZERO_SERIAL.ordinal() + 1, result.getReasonCode(3));
+		assertEquals("078051120 is a reserved Ssn that cannot be used", result.getMessage(4));
+		assertEquals("Ssn must be exactly nine digits", result.getMessage(5));
+		assertEquals(SsnParser.Reason.NOT_NINE_DIGITS, result.getReason(6));
+		assertNull(result.getMessage(0));
+	}
+
+	@Test
+	public void itAgreesWithSsnParserRowByRow() {
+		Random random = new Random(15);
+		String alphabet = "0123456789--/ :a";
+		String[] ssns = new String[5000];
+		for (int i = 0 ; i < ssns.length ; i++) {
+			StringBuilder ssn = new StringBuilder();
+			if (random.nextBoolean()) {
+				ssn.append(String.format("%09d", random.nextInt(1000000000)));
+				if (random.nextBoolean()) {
+					ssn.insert(5, '-').insert(3, '-');
+				}
+				if (random.nextInt(4) == 0) {
+					ssn.setCharAt(random.nextInt(ssn.length()), alphabet.charAt(random.nextInt(alphabet.length())));
+				}
+			} else {
+				for (int c = random.nextInt(13) ; c > 0 ; c--) {
+					ssn.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				}
+			}
+			ssns[i] = ssn.toString();
+		}
+		BulkSsnValidator.Result result = validate(ssns, bytes -> {
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+			direct.put(bytes);
+			return direct;
+		});
+		for (int row = 0 ; row < ssns.length ; row++) {
+			SsnParser.Reason expected = SsnParser.validate(SsnParser.digits(ssns[row]));
+			assertEquals(ssns[row], expected, result.getReason(row));
+			assertEquals(ssns[row], expected == null, result.isValid(row));
+		}
+	}
+
+	@Test
+	public void itRecognizesDigitsEightAtATime() {
+		assertTrue(BulkSsnValidator.allDigits(word("01234567")));
+		assertTrue(BulkSsnValidator.allDigits(word("99999999")));
+		assertFalse(BulkSsnValidator.allDigits(word("0123456:")));
+		assertFalse(BulkSsnValidator.allDigits(word("/1234567")));
+		assertFalse(BulkSsnValidator.allDigits(word("0123\u00b9567")));
+		assertEquals(1234567, BulkSsnValidator.eightDigits(word("01234567")));
+		assertEquals(99999999, BulkSsnValidator.eightDigits(word("99999999")));
+	}
+
+	private static long word(String eightChars) {
+		return ByteBuffer.wrap(eightChars.getBytes(StandardCharsets.ISO_8859_1)).getLong();
+	}
+
+	private BulkSsnValidator.Result validate(String[] ssns, java.util.function.Function<byte[], ByteBuffer> buffer) {
+		StringBuilder file = new StringBuilder();
+		int[] offsets = new int[ssns.length];
+		int[] lengths = new int[ssns.length];
+		for (int i = 0 ; i < ssns.length ; i++) {
+			file.append("row").append(i).append(',');
+			offsets[i] = file.length();
+			lengths[i] = ssns[i].length();
+			file.append(ssns[i]).append('\n');
+		}
+		return validator.validate(buffer.apply(file.toString().getBytes(StandardCharsets.ISO_8859_1)), offsets, lengths);
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.SocketTimeoutException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingCityStateLookupTest {
+
+	private static final long TTL = 1000;
+	private static final long NEGATIVE_TTL = 100;
+
+	@Mock
+	private CityStateLookup delegate;
+
+	private AtomicLong now = new AtomicLong();
+	private CachingCityStateLookup cache;
+	private CityState addison = new CityState("Addison", "TX");
+
+	@Before
+	public void beforeEach() {
+		cache = new CachingCityStateLookup(delegate, 2, TTL, NEGATIVE_TTL, now::get);
+		when(delegate.lookup("75001")).thenReturn(addison);
+	}
+
+	@Test
+	public void itAnswersRepeatedLookupsFromTheCache() {
+		assertSame(addison, cache.lookup("75001"));
+		assertSame(addison, cache.lookup("75001"));
+		verify(delegate, times(1)).lookup("75001");
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void itKeysOnTheNormalized5DigitZipCode() {
+		cache.lookup("75001");
+		cache.lookup("75001-1234");
+		cache.lookup("750011234");
+		verify(delegate, times(1)).lookup("75001");
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void itGoesBackToTheDelegateAfterTheTimeToLive() {
+		cache.lookup("75001");
+		now.addAndGet(TTL);
+		cache.lookup("75001");
+		verify(delegate, times(2)).lookup("75001");
+		assertEquals(1, cache.getExpirationCount());
+	}
+
+	@Test
+	public void itEvictsTheLeastRecentlyUsedZipCode() {
+		when(delegate.lookup("85658")).thenReturn(new CityState("Marana", "AZ"));
+		when(delegate.lookup("10203")).thenReturn(new CityState("Our Town", "NY"));
+		cache.lookup("75001");
+		cache.lookup("85658");
+		cache.lookup("75001");
+		cache.lookup("10203");
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+		cache.lookup("75001");
+		cache.lookup("85658");
+		verify(delegate, times(1)).lookup("75001");
+		verify(delegate, times(2)).lookup("85658");
+	}
+
+	@Test
+	public void itRemembersZipCodesNotFoundForTheNegativeTimeToLive() {
+		CityStateLookupException notFound = new CityStateLookupException(new NoSuchElementException());
+		when(delegate.lookup("99999")).thenThrow(notFound);
+		assertFailure(notFound);
+		assertFailure(notFound);
+		verify(delegate, times(1)).lookup("99999");
+		assertEquals(1, cache.getNegativeHitCount());
+		now.addAndGet(NEGATIVE_TTL);
+		assertFailure(notFound);
+		verify(delegate, times(2)).lookup("99999");
+	}
+
+	@Test
+	public void itThrowsANewExceptionForEachRememberedNotFound() {
+		CityStateLookupException notFound = new CityStateLookupException(new NoSuchElementException());
+		when(delegate.lookup("99999")).thenThrow(notFound);
+		assertFailure(notFound);
+		try {
+			cache.lookup("99999");
+			fail("Expected CityStateLookupException");
+		} catch (CityStateLookupException e) {
+			assertNotSame(notFound, e);
+			assertTrue(e.isNotFound());
+		}
+	}
+
+	@Test
+	public void itDoesNotRememberOtherFailures() {
+		CityStateLookupException timedOut = new CityStateLookupException(new SocketTimeoutException());
+		when(delegate.lookup("99999")).thenThrow(timedOut);
+		assertFailure(timedOut);
+		assertFailure(timedOut);
+		verify(delegate, times(2)).lookup("99999");
+		assertEquals(0, cache.getNegativeHitCount());
+	}
+
+	@Test(expected=CityStateLookupException.class)
+	public void itRejectsZipCodesThatAreNotNumeric() {
+		cache.lookup("7500A");
+	}
+
+	@Test
+	public void itReportsTheHitRatio() {
+		cache.lookup("75001");
+		cache.lookup("75001");
+		cache.lookup("75001");
+		cache.lookup("75001");
+		assertEquals(0.75, cache.getHitRatio(), 0.0001);
+	}
+
+	private void assertFailure(CityStateLookupException expected) {
+		try {
+			cache.lookup("99999");
+			fail("Expected CityStateLookupException");
+		} catch (CityStateLookupException e) {
+			assertSame(expected.getWrappedException(), e.getWrappedException());
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CityStateCacheSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private CityStateLookup delegate;
+
+	private Path file;
+	private CachingCityStateLookup cache;
+
+	@Before
+	public void beforeEach() {
+		file = folder.getRoot().toPath().resolve("zip-cache.snapshot");
+		cache = new CachingCityStateLookup(delegate);
+		when(delegate.lookup("75001")).thenReturn(new CityState("Addison", "TX"));
+		when(delegate.lookup("85658")).thenReturn(new CityState("Marana", "AZ"));
+		when(delegate.lookup("10203")).thenReturn(new CityState("Our Town", "NY"));
+	}
+
+	@Test
+	public void itSavesTheHottestEntriesFirstUpToTheCap() throws Exception {
+		lookUp("10203", 1);
+		lookUp("75001", 3);
+		lookUp("85658", 2);
+		assertEquals(2, new CityStateCacheSnapshot(file, 2).save(cache));
+		assertEquals(Arrays.asList("75001\tAddison\tTX", "85658\tMarana\tAZ"),
+				Files.readAllLines(file, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void itRestoresEntriesWithoutGoingToTheDelegate() throws Exception {
+		lookUp("75001", 1);
+		lookUp("85658", 1);
+		new CityStateCacheSnapshot(file, 100).save(cache);
+
+		CityStateLookup freshDelegate = mock(CityStateLookup.class);
+		CachingCityStateLookup restarted = new CachingCityStateLookup(freshDelegate);
+		int restored = new CityStateCacheSnapshot(file, 100)
+				.restoreInBackground(restarted).get(5, TimeUnit.SECONDS);
+		assertEquals(2, restored);
+		assertEquals("Marana", restarted.lookup("85658").getCity());
+		verify(freshDelegate, never()).lookup("85658");
+		assertEquals(0, restarted.getMissCount());
+	}
+
+	@Test
+	public void itRestoresNothingWhenThereIsNoSnapshot() throws Exception {
+		assertEquals(Integer.valueOf(0),
+				new CityStateCacheSnapshot(file, 100).restoreInBackground(cache).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void itSkipsMalformedLines() throws Exception {
+		Files.write(file, Arrays.asList("75001\tAddison\tTX", "garbage", "7500\tX\tY", "85658\tMarana\tAZ"),
+				StandardCharsets.UTF_8);
+		assertEquals(2, new CityStateCacheSnapshot(file, 100).load().size());
+	}
+
+	@Test
+	public void itLogsAShutdownSaveThatFailsInsteadOfThrowing() throws Exception {
+		lookUp("75001", 1);
+		Path missing = file.resolve("missing").resolve("snapshot");
+		Thread hook = new CityStateCacheSnapshot(missing, 100).saveOnShutdown(cache);
+		Runtime.getRuntime().removeShutdownHook(hook);
+		hook.run();
+		assertFalse(Files.exists(missing));
+	}
+
+	private void lookUp(String zipCode, int times) {
+		for (int i = 0 ; i < times ; i++) {
+			cache.lookup(zipCode);
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.neopragma.legacy.round14;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Compares the pooled CityStateLookupImpl with the former approach of
+ * creating a new HTTP client for every zip code. Runs against a local
+ * stand-in server so the numbers do not depend on the internet.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.CityStateLookupBenchmark [lookups]
+ */
+public class CityStateLookupBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		ZipServiceStandIn standIn = new ZipServiceStandIn()
+				.withPlace("75001", "Addison", "TX")
+				.start();
+		try {
+			CityStateLookup perCall = new PerCallClientLookup(
+					"http://" + standIn.clientConfig().getHost() + ":" + standIn.port());
+			CityStateLookupImpl pooled = new CityStateLookupImpl(standIn.clientConfig());
+			run(perCall, lookups / 10);
+			run(pooled, lookups / 10);
+			report("per-call client", run(perCall, lookups), lookups);
+			report("pooled client", run(pooled, lookups), lookups);
+			pooled.close();
+		} finally {
+			standIn.stop();
+		}
+	}
+
+	private static long run(CityStateLookup lookup, int lookups) {
+		long start = System.nanoTime();
+		for (int i = 0 ; i < lookups ; i++) {
+			lookup.lookup("75001");
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String label, long elapsedNanos, int lookups) {
+		System.out.printf("%-16s %6d lookups %8.1f ms %8.1f us/lookup%n",
+				label, lookups, elapsedNanos / 1e6, elapsedNanos / 1e3 / lookups);
+	}
+
+	/**
+	 * The lookup as it was before pooling: a new client per call that is
+	 * never closed.
+	 */
+	private static class PerCallClientLookup implements CityStateLookup {
+		private final String baseUri;
+
+		PerCallClientLookup(String baseUri) {
+			this.baseUri = baseUri;
+		}
+
+		@Override
+		public CityState lookup(String zipCode) {
+			try {
+				CloseableHttpClient httpclient = HttpClients.createDefault();
+				CloseableHttpResponse response = httpclient.execute(new HttpGet(baseUri + "/us/" + zipCode));
+				try {
+					JsonObject place = new JsonParser().parse(EntityUtils.toString(response.getEntity()))
+							.getAsJsonObject().getAsJsonArray("places").get(0).getAsJsonObject();
+					return new CityState(place.get("place name").getAsString(),
+							place.get("state abbreviation").getAsString());
+				} finally {
+					response.close();
+				}
+			} catch (Exception e) {
+				throw new CityStateLookupException(e);
+			}
+		}
+	}
+
+}
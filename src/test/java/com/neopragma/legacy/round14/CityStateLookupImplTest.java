@@ -0,0 +1,108 @@
+package com.neopragma.legacy.round14;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CityStateLookupImplTest {
+
+	private ZipServiceStandIn standIn;
+	private CityStateLookupImpl lookup;
+
+	@Before
+	public void beforeEach() throws Exception {
+		standIn = new ZipServiceStandIn()
+				.withPlace("75001", "Addison", "TX")
+				.withPlace("85658", "Marana", "AZ")
+				.start();
+		lookup = new CityStateLookupImpl(standIn.clientConfig()
+				.maxTotalConnections(2)
+				.maxConnectionsPerRoute(2));
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		lookup.close();
+		standIn.stop();
+	}
+
+	@Test
+	public void itFindsAddisonTexasBy5DigitZipCode() {
+		CityState cityState = lookup.lookup("75001");
+		assertEquals("Addison", cityState.getCity());
+		assertEquals("TX", cityState.getState());
+	}
+
+	@Test
+	public void itFindsMaranaArizonaBy9DigitZipCode() {
+		CityState cityState = lookup.lookup("856585578");
+		assertEquals("Marana", cityState.getCity());
+		assertEquals("AZ", cityState.getState());
+	}
+
+	@Test(expected=CityStateLookupException.class)
+	public void itThrowsWhenZipCodeIsNotFound() {
+		lookup.lookup("99999");
+	}
+
+	@Test
+	public void itReusesPooledConnectionsAcrossManyLookups() {
+		for (int i = 0 ; i < 50 ; i++) {
+			lookup.lookup(i % 2 == 0 ? "75001" : "85658");
+		}
+		assertEquals(50, standIn.requestCount());
+	}
+
+	@Test
+	public void itKeepsWorkingAfterNotFoundResponses() {
+		for (int i = 0 ; i < 5 ; i++) {
+			try {
+				lookup.lookup("99999");
+				fail("Expected CityStateLookupException");
+			} catch (CityStateLookupException expected) {
+				assertTrue(expected.getWrappedException() instanceof HttpResponseException);
+			}
+		}
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+	}
+
+	@Test
+	public void itReportsServiceErrors() {
+		standIn.errorRate(1.0);
+		try {
+			lookup.lookup("75001");
+			fail("Expected CityStateLookupException");
+		} catch (CityStateLookupException expected) {
+			assertEquals(503, ((HttpResponseException) expected.getWrappedException()).getStatusCode());
+		}
+	}
+
+	@Test
+	public void itReportsDroppedConnections() {
+		standIn.resetRate(1.0);
+		try {
+			lookup.lookup("75001");
+			fail("Expected CityStateLookupException");
+		} catch (CityStateLookupException expected) {
+			assertTrue(expected.getWrappedException() instanceof IOException);
+		}
+		standIn.resetRate(0.0);
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+	}
+
+	@Test
+	public void itWaitsOutInjectedLatency() {
+		standIn.latency(ZipServiceStandIn.Latency.fixed(100));
+		long start = System.currentTimeMillis();
+		lookup.lookup("75001");
+		assertTrue(System.currentTimeMillis() - start >= 100);
+	}
+
+}
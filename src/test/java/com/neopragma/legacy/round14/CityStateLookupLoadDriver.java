@@ -0,0 +1,132 @@
+package com.neopragma.legacy.round14;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives CityStateLookupImpl from many threads against a local
+ * ZipServiceStandIn and reports throughput and latency percentiles. The
+ * stand-in serves 1000 generated zip codes unless a zip,city,state CSV
+ * file is given, and injects the requested latency and faults.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.CityStateLookupLoadDriver
+ *     [threads] [lookupsPerThread] [medianLatencyMillis] [errorRate] [resetRate] [csv file]
+ */
+public class CityStateLookupLoadDriver {
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int lookupsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		double medianLatencyMillis = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+		double errorRate = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+		double resetRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+		ZipServiceStandIn standIn = new ZipServiceStandIn()
+				.latency(ZipServiceStandIn.Latency.logNormal(medianLatencyMillis, 0.5))
+				.errorRate(errorRate)
+				.resetRate(resetRate)
+				.seed(42)
+				.threads(threads);
+		if (args.length > 5) {
+			standIn.withPlaces(Paths.get(args[5]));
+		} else {
+			for (int zip = 10000 ; zip < 11000 ; zip++) {
+				standIn.withPlace(String.valueOf(zip), "City " + zip, "NY");
+			}
+		}
+		List<String> zipCodes = standIn.zipCodes();
+		if (zipCodes.isEmpty()) {
+			System.out.println("No zip codes to look up");
+			return;
+		}
+		standIn.start();
+		try (CityStateLookupImpl lookup = new CityStateLookupImpl(standIn.clientConfig()
+				.maxTotalConnections(threads)
+				.maxConnectionsPerRoute(threads))) {
+			run(lookup, zipCodes, threads, Math.max(1, lookupsPerThread / 10));
+			long requestsBefore = standIn.requestCount();
+			Result result = run(lookup, zipCodes, threads, lookupsPerThread);
+			result.report(threads, standIn.requestCount() - requestsBefore);
+		} finally {
+			standIn.stop();
+		}
+	}
+
+	private static Result run(CityStateLookup lookup, List<String> zipCodes,
+			int threads, int lookupsPerThread) throws InterruptedException {
+		long[][] latencies = new long[threads][lookupsPerThread];
+		AtomicLong failures = new AtomicLong();
+		CountDownLatch ready = new CountDownLatch(threads);
+		CountDownLatch go = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0 ; t < threads ; t++) {
+			long[] mine = latencies[t];
+			int offset = t * 7919;
+			new Thread(() -> {
+				ready.countDown();
+				try {
+					go.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0 ; i < lookupsPerThread ; i++) {
+					String zipCode = zipCodes.get((offset + i) % zipCodes.size());
+					long start = System.nanoTime();
+					try {
+						lookup.lookup(zipCode);
+					} catch (CityStateLookupException e) {
+						failures.incrementAndGet();
+					}
+					mine[i] = System.nanoTime() - start;
+				}
+				done.countDown();
+			}, "load-" + t).start();
+		}
+		ready.await();
+		long start = System.nanoTime();
+		go.countDown();
+		done.await();
+		return new Result(latencies, failures.get(), System.nanoTime() - start);
+	}
+
+	private static class Result {
+		private final long[] latencies;
+		private final long failures;
+		private final long elapsedNanos;
+
+		Result(long[][] perThread, long failures, long elapsedNanos) {
+			int count = 0;
+			for (long[] latencies : perThread) {
+				count += latencies.length;
+			}
+			latencies = new long[count];
+			int at = 0;
+			for (long[] latencies : perThread) {
+				System.arraycopy(latencies, 0, this.latencies, at, latencies.length);
+				at += latencies.length;
+			}
+			Arrays.sort(latencies);
+			this.failures = failures;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		void report(int threads, long requests) {
+			System.out.printf("%d threads, %d lookups (%d failed), %d requests in %.1f ms%n",
+					threads, latencies.length, failures, requests, elapsedNanos / 1e6);
+			System.out.printf("throughput %.0f lookups/s%n", latencies.length / (elapsedNanos / 1e9));
+			System.out.printf("latency us  p50 %.0f  p90 %.0f  p99 %.0f  p99.9 %.0f  max %.0f%n",
+					percentile(0.5), percentile(0.9), percentile(0.99), percentile(0.999),
+					latencies[latencies.length - 1] / 1e3);
+		}
+
+		private double percentile(double p) {
+			int index = (int) Math.ceil(p * latencies.length) - 1;
+			return latencies[Math.max(0, index)] / 1e3;
+		}
+	}
+
+}
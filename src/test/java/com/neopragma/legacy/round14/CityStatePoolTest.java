@@ -0,0 +1,63 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CityStatePoolTest {
+
+	private CityStatePool pool = new CityStatePool();
+
+	@Test
+	public void itSharesOneCityStatePerPlace() {
+		CityState first = pool.canonical(new String("Houston"), new String("TX"));
+		CityState second = pool.canonical(new CityState(new String("Houston"), new String("TX")));
+		assertSame(first, second);
+		assertEquals(1, pool.size());
+	}
+
+	@Test
+	public void itUsesTheUsStateCodeForUspsAbbreviations() {
+		assertSame(UsState.TX.getCode(), pool.canonical("Houston", new String("TX")).getState());
+		assertSame(UsState.TX, pool.canonical("Austin", "TX").getUsState());
+	}
+
+	@Test
+	public void itSharesCityNamesAcrossStates() {
+		CityState texas = pool.canonical(new String("Springfield"), "TX");
+		CityState illinois = pool.canonical(new String("Springfield"), "IL");
+		assertNotSame(texas, illinois);
+		assertSame(texas.getCity(), illinois.getCity());
+		assertEquals(1, pool.cityCount());
+	}
+
+	@Test
+	public void itKeepsStatesThatAreNotUspsAbbreviations() {
+		CityState cityState = pool.canonical("Somewhere", "Texas");
+		assertEquals("Texas", cityState.getState());
+		assertNull(cityState.getUsState());
+	}
+
+	@Test
+	public void itStopsAddingPlacesWhenFull() {
+		CityStatePool small = new CityStatePool(2);
+		CityState addison = small.canonical("Addison", "TX");
+		small.canonical("Allen", "TX");
+		CityState marana = new CityState("Marana", "AZ");
+		assertSame(marana, small.canonical(marana));
+		assertEquals(2, small.size());
+		assertSame(addison, small.canonical(new String("Addison"), "TX"));
+	}
+
+	@Test
+	public void addressesInTheSamePlaceShareTheirCityState() {
+		Address first = new AddressImpl(new String("Addison"), new String("TX"), "75001");
+		Address second = new AddressImpl(new String("Addison"), new String("TX"), "75001");
+		assertSame(first.getCity(), second.getCity());
+		assertSame(first.getState(), second.getState());
+	}
+
+}
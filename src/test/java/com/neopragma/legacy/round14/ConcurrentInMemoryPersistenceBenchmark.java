@@ -0,0 +1,97 @@
+package com.neopragma.legacy.round14;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a mixed workload of 90% finds by id and 10% saves against a
+ * ConcurrentInMemoryPersistence from 1 thread up to twice the number of
+ * cores, alongside a synchronized HashMap for comparison. Throughput
+ * should grow with the thread count up to the number of cores.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.ConcurrentInMemoryPersistenceBenchmark [applicants] [seconds]
+ */
+public class ConcurrentInMemoryPersistenceBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+		int applicants = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		long millis = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 2000;
+		JobApplicant[] saved = new JobApplicant[applicants];
+		for (int i = 0 ; i < applicants ; i++) {
+			saved[i] = new JobApplicantImpl(i, new AddressImpl("Addison", "TX", "75001"),
+					PackedSsn.of(100000000 + i / 9999 * 10000 + i % 9999 + 1),
+					new EnglishName("Mary", "Quinn", "Applicant" + i));
+		}
+		ConcurrentInMemoryPersistence persistence = new ConcurrentInMemoryPersistence();
+		Map<Integer, JobApplicant> locked = Collections.synchronizedMap(new HashMap<>());
+		for (JobApplicant applicant : saved) {
+			persistence.save(applicant);
+			locked.put(applicant.getId(), applicant);
+		}
+		Operation inMemory = random -> {
+			int id = random.nextInt(applicants);
+			if (random.nextInt(10) == 0) {
+				persistence.save(saved[id]);
+			} else {
+				persistence.findById(id);
+			}
+		};
+		Operation synchronizedHashMap = random -> {
+			int id = random.nextInt(applicants);
+			if (random.nextInt(10) == 0) {
+				locked.put(id, saved[id]);
+			} else {
+				locked.get(id);
+			}
+		};
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println(cores + " cores");
+		run(cores, millis, inMemory);
+		run(cores, millis, synchronizedHashMap);
+		for (int threads = 1 ; threads <= Math.max(4, cores * 2) ; threads *= 2) {
+			double striped = run(threads, millis, inMemory);
+			double synchronizedMap = run(threads, millis, synchronizedHashMap);
+			System.out.printf("%2d threads  in-memory %12.0f ops/s  synchronized HashMap %12.0f ops/s%n",
+					threads, striped, synchronizedMap);
+		}
+	}
+
+	private static double run(int threads, long millis, Operation operation) throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder operations = new LongAdder();
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0 ; t < threads ; t++) {
+			workers.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long count = 0;
+				while (running.get()) {
+					operation.run(random);
+					count++;
+				}
+				operations.add(count);
+			}));
+		}
+		long start = System.nanoTime();
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		Thread.sleep(millis);
+		running.set(false);
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return operations.sum() * 1e9 / (System.nanoTime() - start);
+	}
+
+	private interface Operation {
+		void run(ThreadLocalRandom random);
+	}
+
+}
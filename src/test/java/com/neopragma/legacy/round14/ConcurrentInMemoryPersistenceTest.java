@@ -0,0 +1,223 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.neopragma.legacy.round14.TestApplicants.applicant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentInMemoryPersistenceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ConcurrentInMemoryPersistence persistence = new ConcurrentInMemoryPersistence();
+
+	@Test
+	public void itFindsASavedApplicantById() {
+		JobApplicant applicant = applicant(7, "Mary", "Smith");
+		persistence.save(applicant);
+		assertSame(applicant, persistence.findById(7));
+		assertSame(applicant, persistence.findById(Integer.valueOf(7)));
+		assertNull(persistence.findById(8));
+		assertNull(persistence.findById((Integer) null));
+	}
+
+	@Test
+	public void itAcceptsAnyIntAsAnId() {
+		int[] ids = { 0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE };
+		for (int id : ids) {
+			persistence.save(applicant(id, "Mary", String.valueOf(id)));
+		}
+		for (int id : ids) {
+			assertEquals(Integer.valueOf(id), persistence.findById(id).getId());
+		}
+		assertEquals(ids.length, persistence.size());
+	}
+
+	@Test
+	public void itReplacesAnApplicantSavedAgain() {
+		persistence.save(applicant(7, "Mary", "Smith"));
+		persistence.save(applicant(7, "Mary", "Jones"));
+		assertEquals("Mary Q. Jones", persistence.findById(7).getName().displayName());
+		assertNull(persistence.findByName("Mary Q. Smith"));
+		assertEquals(1, persistence.size());
+	}
+
+	@Test
+	public void itFindsAnApplicantByDisplayName() {
+		persistence.save(applicant(1, "Mary", "Smith"));
+		persistence.save(applicant(2, "John", "Smith"));
+		assertEquals(Integer.valueOf(2), persistence.findByName("John Q. Smith").getId());
+		assertNull(persistence.findByName("Ann Q. Smith"));
+	}
+
+	@Test
+	public void itForgetsDeletedApplicants() {
+		persistence.save(applicant(1, "Mary", "Smith"));
+		persistence.delete(1);
+		persistence.delete(2);
+		assertNull(persistence.findById(1));
+		assertNull(persistence.findByName("Mary Q. Smith"));
+		assertEquals(0, persistence.size());
+	}
+
+	@Test
+	public void itEnumeratesTheApplicantsItHolds() {
+		for (int id = 1 ; id <= 100 ; id++) {
+			persistence.save(applicant(id, "Mary", String.valueOf(id)));
+		}
+		persistence.delete(50);
+		List<Integer> ids = new ArrayList<>();
+		persistence.forEachApplicant(applicant -> ids.add(applicant.getId()));
+		assertEquals(99, ids.size());
+		assertTrue(!ids.contains(50) && ids.contains(1) && ids.contains(100));
+	}
+
+	@Test
+	public void itGrowsAndShrinksItsTables() {
+		for (int id = 0 ; id < 10000 ; id++) {
+			persistence.save(applicant(id, "Mary", String.valueOf(id)));
+		}
+		for (int id = 0 ; id < 10000 ; id += 2) {
+			persistence.delete(id);
+		}
+		for (int round = 0 ; round < 3 ; round++) {
+			for (int id = 0 ; id < 10000 ; id += 2) {
+				persistence.save(applicant(id, "John", String.valueOf(id)));
+				persistence.delete(id);
+			}
+		}
+		assertEquals(5000, persistence.size());
+		for (int id = 0 ; id < 10000 ; id++) {
+			assertEquals(id % 2 == 1, persistence.findById(id) != null);
+		}
+	}
+
+	@Test
+	public void itRestoresASnapshot() throws Exception {
+		for (int id = 1 ; id <= 100 ; id++) {
+			persistence.save(applicant(id, "Mary", String.valueOf(id)));
+		}
+		persistence.delete(50);
+		Path file = folder.getRoot().toPath().resolve("applicants.snapshot");
+		assertEquals(99, persistence.snapshot(file));
+		persistence.save(applicant(101, "After", "Snapshot"));
+
+		ConcurrentInMemoryPersistence restored = new ConcurrentInMemoryPersistence();
+		assertEquals(99, restored.restore(file));
+		assertEquals(99, restored.size());
+		assertNull(restored.findById(50));
+		assertNull(restored.findById(101));
+		assertEquals("Mary Q. 7", restored.findById(7).getName().displayName());
+		assertEquals(Integer.valueOf(8), restored.findByName("Mary Q. 8").getId());
+	}
+
+	@Test
+	public void itSnapshotsHoweverManyStripesItHas() throws Exception {
+		persistence = new ConcurrentInMemoryPersistence(1 << 16);
+		persistence.save(applicant(1, "Mary", "Smith"));
+		Path file = folder.getRoot().toPath().resolve("applicants.snapshot");
+		assertEquals(1, persistence.snapshot(file));
+		persistence.save(applicant(2, "John", "Smith"));
+		assertEquals(2, persistence.size());
+	}
+
+	@Test(expected=java.io.IOException.class)
+	public void itRejectsAnIncompleteSnapshot() throws Exception {
+		persistence.save(applicant(1, "Mary", "Smith"));
+		persistence.save(applicant(2, "John", "Smith"));
+		Path file = folder.getRoot().toPath().resolve("applicants.snapshot");
+		persistence.snapshot(file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 12));
+		new ConcurrentInMemoryPersistence().restore(file);
+	}
+
+	/**
+	 * The writer saves the first id of each pair before the second, both
+	 * with the same round number, so in any one instant the first is never
+	 * behind the second.
+	 */
+	@Test
+	public void itSnapshotsOneInstantWhileWritersCarryOn() throws Exception {
+		int pairs = 200;
+		for (int id = 0 ; id < pairs * 2 ; id++) {
+			persistence.save(applicant(id, "Round", "0"));
+		}
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread writer = new Thread(() -> {
+			for (int round = 1 ; running.get() ; round++) {
+				for (int id = 0 ; id < pairs * 2 ; id++) {
+					persistence.save(applicant(id, "Round", String.valueOf(round)));
+				}
+			}
+		});
+		writer.start();
+		Path file = folder.getRoot().toPath().resolve("applicants.snapshot");
+		try {
+			for (int snapshot = 0 ; snapshot < 20 ; snapshot++) {
+				persistence.snapshot(file);
+				ConcurrentInMemoryPersistence restored = new ConcurrentInMemoryPersistence();
+				restored.restore(file);
+				int previous = Integer.MAX_VALUE;
+				for (int id = 0 ; id < pairs * 2 ; id++) {
+					int round = Integer.parseInt(restored.findById(id).getName().sortableName().split(" ")[0]);
+					assertTrue("id " + id + " is ahead of the one saved before it", round <= previous);
+					previous = round;
+				}
+			}
+		} finally {
+			running.set(false);
+			writer.join();
+		}
+	}
+
+	@Test
+	public void itServesReadersWhileWritersChangeTheTables() throws Exception {
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0 ; t < 4 ; t++) {
+			int first = t * 10000;
+			threads.add(new Thread(() -> {
+				try {
+					for (int id = first ; id < first + 10000 ; id++) {
+						persistence.save(applicant(id, "Mary", String.valueOf(id)));
+						assertEquals(Integer.valueOf(id), persistence.findById(id).getId());
+						assertEquals(Integer.valueOf(first), persistence.findById(first).getId());
+						if ((id - first) % 3 == 2) {
+							persistence.delete(id);
+							assertNull(persistence.findById(id));
+						}
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(new ArrayList<Throwable>(), failures);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void itRejectsApplicantsWithoutAnId() {
+		persistence.save(new JobApplicantImpl(null, new NullAddress(), new NullSsn(), new NullName()));
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.neopragma.legacy.round14;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InstrumentedCityStateLookupTest {
+
+	@Mock
+	private CityStateLookup delegate;
+
+	private InstrumentedCityStateLookup lookup;
+	private LookupMetrics metrics;
+
+	@Before
+	public void beforeEach() {
+		when(delegate.lookup("75001")).thenReturn(new CityState("Addison", "TX"));
+		when(delegate.lookup("99999")).thenThrow(
+				new CityStateLookupException(new HttpResponseException(404, "Not Found")));
+		when(delegate.lookup("00000")).thenThrow(
+				new CityStateLookupException(new IOException("Connection reset")));
+		lookup = new InstrumentedCityStateLookup(delegate);
+		metrics = lookup.getMetrics();
+	}
+
+	@Test
+	public void itCountsEachOutcome() {
+		lookup.lookup("75001");
+		lookup.lookup("75001");
+		lookUpFailing("99999");
+		lookUpFailing("00000");
+		assertEquals(2, metrics.getSuccessCount());
+		assertEquals(1, metrics.getNotFoundCount());
+		assertEquals(1, metrics.getFailureCount());
+		assertEquals(4, metrics.getLatencies().getCount());
+		assertEquals(0, metrics.getInFlightCount());
+	}
+
+	@Test
+	public void itReportsTheHitRatioOfATrackedCache() {
+		CachingCityStateLookup cache = new CachingCityStateLookup(lookup);
+		metrics.trackCache(cache);
+		assertTrue(Double.isNaN(new LookupMetrics().getCacheHitRatio()));
+		cache.lookup("75001");
+		cache.lookup("75001");
+		assertEquals(0.5, metrics.getCacheHitRatio(), 0.0);
+		assertEquals(1, metrics.getSuccessCount());
+		assertTrue(metrics.format().contains("cache hit ratio"));
+	}
+
+	@Test
+	public void itIsVisibleThroughJmx() throws Exception {
+		lookup.lookup("75001");
+		ObjectName name = metrics.register("test");
+		try {
+			assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "SuccessCount"));
+		} finally {
+			LookupMetrics.unregister(name);
+		}
+	}
+
+	@Test
+	public void itFormatsTheMetricsOnOneLine() {
+		lookup.lookup("75001");
+		lookUpFailing("99999");
+		String line = metrics.format();
+		assertTrue(line, line.startsWith("zip lookups: 1 ok, 0 failed, 1 not found, 0 in flight; latency ms p50 "));
+	}
+
+	private void lookUpFailing(String zipCode) {
+		try {
+			lookup.lookup(zipCode);
+			fail("Expected CityStateLookupException");
+		} catch (CityStateLookupException expected) {
+		}
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JobApplicantCodecTest {
+
+	@Test
+	public void itDecodesWhatItEncodes() throws Exception {
+		JobApplicant applicant = new JobApplicantImpl(42, new AddressImpl("Marana", "AZ", "85658"),
+				new SsnImpl("123-45-6789"), new SpanishName("Juan", null, "Garcia", "Lopez"));
+		byte[] record = JobApplicantCodec.encode(applicant);
+		JobApplicant decoded = JobApplicantCodec.decode(record);
+
+		assertEquals(JobApplicantCodec.SAVED, JobApplicantCodec.kind(record));
+		assertEquals(42, JobApplicantCodec.id(record));
+		assertEquals(applicant.getName().displayName(), JobApplicantCodec.displayName(record));
+		assertEquals(Integer.valueOf(42), decoded.getId());
+		assertEquals(applicant.getName().displayName(), decoded.getName().displayName());
+		assertEquals(applicant.getName().sortableName(), decoded.getName().sortableName());
+		assertEquals("123-45-6789", decoded.getSsn().formatSsn());
+		assertEquals("Marana", decoded.getAddress().getCity());
+		assertEquals("AZ", decoded.getAddress().getState());
+		assertEquals("85658", decoded.getAddress().getZipCode());
+	}
+
+	@Test
+	public void itDecodesMissingPartsAsNullObjects() throws Exception {
+		JobApplicant decoded = JobApplicantCodec.decode(
+				JobApplicantCodec.encode(new JobApplicantImpl(1, null, null, null)));
+		assertTrue(decoded.getAddress() instanceof NullAddress);
+		assertTrue(decoded.getSsn() instanceof NullSsn);
+		assertEquals(Constants.EMPTY_STRING, decoded.getName().displayName());
+	}
+
+	@Test
+	public void itEncodesTheIdOfADeletedApplicant() {
+		byte[] record = JobApplicantCodec.encodeDeleted(-123456789);
+		assertEquals(JobApplicantCodec.DELETED, JobApplicantCodec.kind(record));
+		assertEquals(-123456789, JobApplicantCodec.id(record));
+	}
+
+}
@@ -5,6 +5,15 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -24,4 +33,127 @@ public class JobApplicantSystemTest {
         system.add(jobApplicant);
         verify(persistence).save(jobApplicant);
     }
+
+    @Test
+    public void itRejectsApplicantsWhoseSsnWasAlreadySubmitted() {
+        JobApplicantSystem system = new JobApplicantSystem();
+        system.setPersistence(persistence);
+        system.checkDuplicateSsns(new SsnIndex(), true);
+        system.add(applicant("123-45-6789"));
+        try {
+            system.add(applicant("123456789"));
+            fail("Expected DuplicateSsnException");
+        } catch (DuplicateSsnException expected) {
+            assertEquals("123-45-6789 has already been submitted", expected.getMessage());
+        }
+        verify(persistence, times(1)).save(any(JobApplicant.class));
+        assertEquals(1, system.getDuplicateSsnCount());
+    }
+
+    @Test
+    public void itCanSaveAndCountDuplicatesInstead() {
+        JobApplicantSystem system = new JobApplicantSystem();
+        system.setPersistence(persistence);
+        system.checkDuplicateSsns(new SsnIndex(), false);
+        system.add(applicant("123456789"));
+        system.add(applicant("123456789"));
+        verify(persistence, times(2)).save(any(JobApplicant.class));
+        assertEquals(1, system.getDuplicateSsnCount());
+    }
+
+    @Test
+    public void itForgetsTheSsnWhenSavingFails() {
+        JobApplicantSystem system = new JobApplicantSystem();
+        system.setPersistence(persistence);
+        SsnIndex index = new SsnIndex();
+        system.checkDuplicateSsns(index, true);
+        doThrow(new IllegalStateException()).when(persistence).save(any(JobApplicant.class));
+        try {
+            system.add(applicant("123456789"));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void itAddsAtOnceWhenPersistenceIsNotWriteBehind() throws Exception {
+        JobApplicantSystem system = new JobApplicantSystem();
+        system.setPersistence(persistence);
+        JobApplicant jobApplicant = applicant("123456789");
+        assertTrue(system.addAsync(jobApplicant).isDone());
+        verify(persistence).save(jobApplicant);
+    }
+
+    @Test
+    public void itForgetsTheSsnWhenAWriteBehindSaveFails() throws Exception {
+        DurablePersistence store = mock(DurablePersistence.class);
+        doThrow(new IllegalStateException()).when(store).save(any(JobApplicant.class));
+        JobApplicantSystem system = new JobApplicantSystem();
+        try (WriteBehindPersistence writeBehind = new WriteBehindPersistence(store)) {
+            system.setPersistence(writeBehind);
+            SsnIndex index = new SsnIndex();
+            system.checkDuplicateSsns(index, true);
+            try {
+                system.addAsync(applicant(1, "123456789")).get();
+                fail("Expected ExecutionException");
+            } catch (ExecutionException expected) {
+            }
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    public void itForgetsTheSsnWhenAWriteBehindSaveIsRefused() throws Exception {
+        JobApplicantSystem system = new JobApplicantSystem();
+        try (WriteBehindPersistence writeBehind = new WriteBehindPersistence(mock(DurablePersistence.class))) {
+            system.setPersistence(writeBehind);
+            SsnIndex index = new SsnIndex();
+            system.checkDuplicateSsns(index, true);
+            try {
+                system.addAsync(new JobApplicantImpl(null, new AddressImpl("Our Town", "NY", "10203"),
+                        new SsnImpl("123456789"), new EnglishName("Adams", "John", "Quincy")));
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+            }
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    public void itRebuildsTheSsnIndexFromThePersistence() {
+        ConcurrentInMemoryPersistence stored = new ConcurrentInMemoryPersistence();
+        stored.save(applicant(1, "123-45-6789"));
+        JobApplicantSystem system = new JobApplicantSystem();
+        system.setPersistence(stored);
+        system.checkDuplicateSsns(new SsnIndex(), true);
+        try {
+            system.add(applicant(2, "123456789"));
+            fail("Expected DuplicateSsnException");
+        } catch (DuplicateSsnException expected) {
+        }
+        assertEquals(1, stored.size());
+    }
+
+    @Test
+    public void itForgetsTheSsnOfADeletedApplicant() {
+        ConcurrentInMemoryPersistence stored = new ConcurrentInMemoryPersistence();
+        JobApplicantSystem system = new JobApplicantSystem();
+        system.setPersistence(stored);
+        system.checkDuplicateSsns(new SsnIndex(), true);
+        system.add(applicant(1, "123-45-6789"));
+        system.delete(1);
+        system.add(applicant(2, "123-45-6789"));
+        assertEquals(1, stored.size());
+    }
+
+    private JobApplicant applicant(int id, String ssn) {
+        return new JobApplicantImpl(id, new AddressImpl("Our Town", "NY", "10203"),
+                new SsnImpl(ssn), new EnglishName("Adams", "John", "Quincy"));
+    }
+
+    private JobApplicant applicant(String ssn) {
+        return new JobApplicantImpl(new AddressImpl("Our Town", "NY", "10203"),
+                new SsnImpl(ssn), new EnglishName("Adams", "John", "Quincy"));
+    }
 }
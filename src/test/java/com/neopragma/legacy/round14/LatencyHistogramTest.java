@@ -0,0 +1,60 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+	private LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void itReportsZeroWhenEmpty() {
+		assertEquals(0, histogram.getPercentileNanos(0.99));
+		assertEquals(0, histogram.getMaxNanos());
+	}
+
+	@Test
+	public void itIsExactForSmallValues() {
+		for (long nanos = 1 ; nanos <= 50 ; nanos++) {
+			histogram.record(nanos);
+		}
+		assertEquals(25, histogram.getPercentileNanos(0.5));
+		assertEquals(50, histogram.getPercentileNanos(1.0));
+	}
+
+	@Test
+	public void itStaysWithinThreePercentForLargeValues() {
+		for (long micros = 1 ; micros <= 10000 ; micros++) {
+			histogram.record(micros * 1000);
+		}
+		assertWithinThreePercent(5000000, histogram.getPercentileNanos(0.5));
+		assertWithinThreePercent(9900000, histogram.getPercentileNanos(0.99));
+		assertWithinThreePercent(9990000, histogram.getPercentileNanos(0.999));
+		assertEquals(10000000, histogram.getMaxNanos());
+		assertEquals(10000, histogram.getCount());
+	}
+
+	@Test
+	public void itMapsEveryValueToABucketThatHoldsIt() {
+		for (long value : new long[] { 0, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE }) {
+			int bucket = LatencyHistogram.bucketOf(value);
+			assertTrue(value <= LatencyHistogram.highestValueIn(bucket));
+			assertTrue(bucket == 0 || value > LatencyHistogram.highestValueIn(bucket - 1));
+		}
+	}
+
+	@Test
+	public void itForgetsEverythingOnReset() {
+		histogram.record(1000);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentileNanos(0.5));
+	}
+
+	private void assertWithinThreePercent(long expected, long actual) {
+		assertTrue(expected + " vs " + actual, Math.abs(actual - expected) <= expected * 0.03);
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Measures saves, finds by id, deletes and finds by name against a
+ * LogStructuredPersistence in a temporary directory, or in the directory
+ * given, then compacts it.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.LogStructuredPersistenceBenchmark [applicants] [directory]
+ */
+public class LogStructuredPersistenceBenchmark {
+
+	private static final String[] FIRST_NAMES = { "Mary", "John", "Ana", "Wei", "Fatima", "Olu", "Ivan", "Priya" };
+
+	public static void main(String[] args) throws IOException {
+		int applicants = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		Path directory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("applicants");
+		JobApplicant[] saved = new JobApplicant[applicants];
+		for (int i = 0 ; i < applicants ; i++) {
+			saved[i] = new JobApplicantImpl(i, new AddressImpl("Addison", "TX", "75001"),
+					PackedSsn.of(100000000 + i / 9999 * 10000 + i % 9999 + 1),
+					new EnglishName(FIRST_NAMES[i % FIRST_NAMES.length], "Quinn", "Applicant" + i));
+		}
+		Random random = new Random(42);
+		try (LogStructuredPersistence persistence = new LogStructuredPersistence(directory)) {
+			measure("save", applicants, i -> persistence.save(saved[i]));
+			measure("save again", applicants, i -> persistence.save(saved[random.nextInt(applicants)]));
+			persistence.sync();
+			measure("findById", applicants, i -> persistence.findById(random.nextInt(applicants)));
+			measure("delete", applicants / 4, i -> persistence.delete(random.nextInt(applicants)));
+			measure("findByName", 1000, i -> persistence.findByName(
+					saved[random.nextInt(applicants)].getName().displayName()));
+			long before = persistence.getDiskBytes();
+			long start = System.nanoTime();
+			persistence.compact();
+			System.out.printf("compact        %d segments, %d -> %d bytes in %d ms%n", persistence.getSegmentCount(),
+					before, persistence.getDiskBytes(), (System.nanoTime() - start) / 1000000);
+			measure("findById", applicants, i -> persistence.findById(random.nextInt(applicants)));
+		} finally {
+			if (args.length < 2) {
+				try (Stream<Path> files = Files.list(directory)) {
+					for (Path file : (Iterable<Path>) files::iterator) {
+						Files.delete(file);
+					}
+				}
+				Files.delete(directory);
+			}
+		}
+	}
+
+	private static void measure(String label, int operations, IntConsumer operation) {
+		long start = System.nanoTime();
+		for (int i = 0 ; i < operations ; i++) {
+			operation.accept(i);
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-14s %8.2f us/op %10.0f ops/s%n",
+				label, elapsed / 1e3 / operations, operations * 1e9 / elapsed);
+	}
+
+}
@@ -0,0 +1,292 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.neopragma.legacy.round14.TestApplicants.applicant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogStructuredPersistenceTest {
+
+	private static final long SMALL_SEGMENT_BYTES = 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private LogStructuredPersistence persistence;
+
+	@Before
+	public void beforeEach() throws Exception {
+		directory = folder.getRoot().toPath().resolve("applicants");
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		if (persistence != null) {
+			persistence.close();
+		}
+	}
+
+	@Test
+	public void itFindsASavedApplicantById() {
+		persistence.save(applicant(7, "Mary", "Smith"));
+		JobApplicant found = persistence.findById(7);
+		assertEquals(Integer.valueOf(7), found.getId());
+		assertEquals("Mary Q. Smith", found.getName().displayName());
+		assertEquals("Smith Quinn Mary", found.getName().sortableName());
+		assertEquals("123-45-6789", found.getSsn().formatSsn());
+		assertEquals("Addison", found.getAddress().getCity());
+		assertEquals("TX", found.getAddress().getState());
+		assertEquals("75001", found.getAddress().getZipCode());
+	}
+
+	@Test
+	public void itReplacesAnApplicantSavedAgain() {
+		persistence.save(applicant(7, "Mary", "Smith"));
+		persistence.save(applicant(7, "Mary", "Jones"));
+		assertEquals("Mary Q. Jones", persistence.findById(7).getName().displayName());
+		assertEquals(1, persistence.size());
+	}
+
+	@Test
+	public void itFindsTheLatestApplicantWithADisplayName() {
+		persistence.save(applicant(1, "Mary", "Smith"));
+		persistence.save(applicant(2, "John", "Smith"));
+		persistence.save(applicant(3, "Mary", "Smith"));
+		assertEquals(Integer.valueOf(3), persistence.findByName("Mary Q. Smith").getId());
+		assertEquals(Integer.valueOf(2), persistence.findByName("John Q. Smith").getId());
+		assertNull(persistence.findByName("Ann Q. Smith"));
+	}
+
+	@Test
+	public void itForgetsDeletedApplicants() {
+		persistence.save(applicant(1, "Mary", "Smith"));
+		persistence.delete(1);
+		persistence.delete(2);
+		assertNull(persistence.findById(1));
+		assertNull(persistence.findByName("Mary Q. Smith"));
+		assertEquals(0, persistence.size());
+	}
+
+	@Test
+	public void itKeepsApplicantsAcrossReopening() throws Exception {
+		saveMany(50, "Before");
+		persistence.delete(10);
+		persistence.save(applicant(20, "Changed", "Name"));
+		persistence.close();
+
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+		assertEquals(49, persistence.size());
+		assertNull(persistence.findById(10));
+		assertEquals("Changed Q. Name", persistence.findById(20).getName().displayName());
+		assertEquals(Integer.valueOf(30), persistence.findByName("Before Q. 30").getId());
+		assertEquals(0, persistence.getTruncatedBytes());
+	}
+
+	@Test
+	public void itStartsANewSegmentWhenOneIsFull() {
+		saveMany(100, "Applicant");
+		assertTrue(persistence.getSegmentCount() > 1);
+		assertEquals(Integer.valueOf(1), persistence.findByName("Applicant Q. 1").getId());
+	}
+
+	@Test
+	public void itCutsOffATornRecordWhenOpened() throws Exception {
+		persistence.save(applicant(1, "Mary", "Smith"));
+		persistence.save(applicant(2, "John", "Smith"));
+		persistence.close();
+		Path segment = segmentFiles().get(0);
+		try (RandomAccessFile raw = new RandomAccessFile(segment.toFile(), "rw")) {
+			raw.setLength(raw.length() - 3);
+		}
+
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+		assertTrue(persistence.getTruncatedBytes() > 0);
+		assertEquals(1, persistence.size());
+		persistence.save(applicant(2, "John", "Smith"));
+		assertEquals("John Q. Smith", persistence.findById(2).getName().displayName());
+	}
+
+	@Test
+	public void itReclaimsReplacedRecordsWhenCompacting() throws Exception {
+		for (int round = 0 ; round < 5 ; round++) {
+			saveMany(40, "Round" + round);
+		}
+		long before = persistence.getDiskBytes();
+		persistence.compact();
+		assertTrue(persistence.getDiskBytes() < before);
+		assertEquals(before - persistence.getDiskBytes(), persistence.getCompactedBytes());
+		assertFound(40, "Round4");
+		persistence.close();
+
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+		assertFound(40, "Round4");
+		assertEquals(0, persistence.getTruncatedBytes());
+	}
+
+	@Test
+	public void itKeepsDeletedApplicantsDeletedAfterCompacting() throws Exception {
+		saveMany(20, "Kept");
+		persistence.save(applicant(100, "Deleted", "Later"));
+		saveMany(20, "Kept");
+		persistence.delete(100);
+		saveMany(20, "Kept");
+		persistence.compact();
+		persistence.close();
+
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+		assertNull(persistence.findById(100));
+		assertNull(persistence.findByName("Deleted Q. Later"));
+		assertFound(20, "Kept");
+	}
+
+	@Test
+	public void itDoesNotRewriteASegmentOfTombstonesAgain() throws Exception {
+		// Never replaced, so the oldest segment outlives compaction.
+		for (int id = 200 ; id < 205 ; id++) {
+			persistence.save(applicant(id, "Old", String.valueOf(id)));
+		}
+		for (int id = 100 ; id < 120 ; id++) {
+			persistence.save(applicant(id, "Deleted", String.valueOf(id)));
+		}
+		saveMany(20, "Kept");
+		for (int id = 100 ; id < 120 ; id++) {
+			persistence.delete(id);
+		}
+		saveMany(20, "Kept");
+		persistence.compact();
+		List<Object> compacted = fileKeys();
+		long compactedBytes = persistence.getCompactedBytes();
+		persistence.compact();
+		assertEquals(compacted, fileKeys());
+		assertEquals(compactedBytes, persistence.getCompactedBytes());
+		persistence.close();
+
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+		assertNull(persistence.findById(100));
+		assertEquals("Old Q. 200", persistence.findById(200).getName().displayName());
+		assertEquals(25, persistence.size());
+	}
+
+	@Test
+	public void itRefusesToOpenWhenASegmentBeforeTheLastIsCorrupted() throws Exception {
+		saveMany(100, "Applicant");
+		persistence.close();
+		Path first = segmentFiles().get(0);
+		try (RandomAccessFile raw = new RandomAccessFile(first.toFile(), "rw")) {
+			raw.seek(raw.length() - 1);
+			int last = raw.read();
+			raw.seek(raw.length() - 1);
+			raw.write(last ^ 0xFF);
+		}
+		try {
+			persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 0);
+			fail("Expected IOException");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage().startsWith("Corrupted record at "));
+		}
+		persistence = null;
+	}
+
+	@Test
+	public void itCompactsInTheBackground() throws Exception {
+		persistence.close();
+		persistence = new LogStructuredPersistence(directory, SMALL_SEGMENT_BYTES, 1024 * 1024);
+		for (int round = 0 ; round < 5 ; round++) {
+			saveMany(40, "Round" + round);
+		}
+		for (int wait = 0 ; wait < 100 && persistence.getCompactedBytes() == 0 ; wait++) {
+			Thread.sleep(50);
+		}
+		assertTrue(persistence.getCompactedBytes() > 0);
+		assertFound(40, "Round4");
+	}
+
+	@Test
+	public void itServesReadsWhileCompacting() throws Exception {
+		saveMany(40, "Applicant");
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		Thread reader = new Thread(() -> {
+			while (running.get()) {
+				try {
+					for (int id = 1 ; id <= 40 ; id++) {
+						assertEquals("Applicant Q. " + id, persistence.findById(id).getName().displayName());
+					}
+					assertEquals(Integer.valueOf(7), persistence.findByName("Applicant Q. 7").getId());
+				} catch (Throwable e) {
+					failures.add(e);
+					return;
+				}
+			}
+		});
+		reader.start();
+		for (int round = 0 ; round < 20 ; round++) {
+			saveMany(40, "Applicant");
+			persistence.compact();
+		}
+		running.set(false);
+		reader.join();
+		assertEquals(new ArrayList<Throwable>(), failures);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void itRejectsApplicantsWithoutAnId() {
+		persistence.save(new JobApplicantImpl(null, new NullAddress(), new NullSsn(), new NullName()));
+	}
+
+	@Test(expected=PersistenceException.class)
+	public void itRejectsSavesOnceClosed() throws Exception {
+		persistence.close();
+		persistence.save(applicant(1, "Mary", "Smith"));
+	}
+
+	private void saveMany(int count, String firstName) {
+		for (int id = 1 ; id <= count ; id++) {
+			persistence.save(applicant(id, firstName, String.valueOf(id)));
+		}
+	}
+
+	private void assertFound(int count, String firstName) {
+		assertEquals(count, persistence.size());
+		for (int id = 1 ; id <= count ; id++) {
+			assertEquals(firstName + " Q. " + id, persistence.findById(id).getName().displayName());
+		}
+		assertEquals(Integer.valueOf(count), persistence.findByName(firstName + " Q. " + count).getId());
+	}
+
+	private List<Object> fileKeys() throws Exception {
+		List<Object> keys = new ArrayList<>();
+		for (Path segment : segmentFiles()) {
+			keys.add(Files.readAttributes(segment, BasicFileAttributes.class).fileKey());
+		}
+		return keys;
+	}
+
+	private List<Path> segmentFiles() throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.sorted().collect(Collectors.toList());
+		}
+	}
+
+}
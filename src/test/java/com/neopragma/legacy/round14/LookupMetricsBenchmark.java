@@ -0,0 +1,49 @@
+package com.neopragma.legacy.round14;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures what InstrumentedCityStateLookup adds to each lookup, using a
+ * delegate that answers at once, from one thread and from several.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.LookupMetricsBenchmark [lookups] [threads]
+ */
+public class LookupMetricsBenchmark {
+
+	private static final CityState ADDISON = new CityState("Addison", "TX");
+
+	public static void main(String[] args) throws Exception {
+		int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		CityStateLookup bare = zipCode -> ADDISON;
+		InstrumentedCityStateLookup instrumented = new InstrumentedCityStateLookup(bare);
+		for (int round = 0 ; round < 3 ; round++) {
+			report("bare", 1, run(bare, lookups, 1), lookups);
+			report("instrumented", 1, run(instrumented, lookups, 1), lookups);
+			report("instrumented", threads, run(instrumented, lookups, threads), lookups);
+		}
+		System.out.println(instrumented.getMetrics().format());
+	}
+
+	private static long run(CityStateLookup lookup, int lookups, int threads) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(threads);
+		long start = System.nanoTime();
+		for (int t = 0 ; t < threads ; t++) {
+			new Thread(() -> {
+				for (int i = 0 ; i < lookups / threads ; i++) {
+					lookup.lookup("75001");
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String label, int threads, long elapsedNanos, int lookups) {
+		System.out.printf("%-13s %d thread(s) %8.1f ms %6.1f ns/lookup%n",
+				label, threads, elapsedNanos / 1e6, (double) elapsedNanos / lookups);
+	}
+
+}
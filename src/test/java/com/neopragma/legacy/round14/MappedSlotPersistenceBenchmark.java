@@ -0,0 +1,67 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Saves the same applicants into a MappedSlotPersistence and a
+ * LogStructuredPersistence, then compares random finds by id, the
+ * workload the slot store is meant for, and the bytes each allocates.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.MappedSlotPersistenceBenchmark [applicants]
+ */
+public class MappedSlotPersistenceBenchmark {
+
+	private static final String[] FIRST_NAMES = { "Mary", "John", "Ana", "Wei", "Fatima", "Olu", "Ivan", "Priya" };
+	private static final String[] CITIES = { "Addison", "Marana", "Houston", "Boise" };
+
+	public static void main(String[] args) throws IOException {
+		int applicants = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		JobApplicant[] saved = new JobApplicant[applicants];
+		for (int i = 0 ; i < applicants ; i++) {
+			saved[i] = new JobApplicantImpl(i, new AddressImpl(CITIES[i % CITIES.length], "TX", "75001"),
+					PackedSsn.of(100000000 + i / 9999 * 10000 + i % 9999 + 1),
+					new EnglishName(FIRST_NAMES[i % FIRST_NAMES.length], "Quinn", "Applicant" + i));
+		}
+		Path directory = Files.createTempDirectory("applicants");
+		try (MappedSlotPersistence slots = new MappedSlotPersistence(directory.resolve("slots"));
+				LogStructuredPersistence log = new LogStructuredPersistence(directory.resolve("log"))) {
+			measure("slots save", applicants, i -> slots.save(saved[i]));
+			measure("log save", applicants, i -> log.save(saved[i]));
+			for (int round = 0 ; round < 3 ; round++) {
+				Random random = new Random(round);
+				measure("slots findById", applicants, i -> slots.findById(random.nextInt(applicants)));
+				measure("log findById", applicants, i -> log.findById(random.nextInt(applicants)));
+			}
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	private static void measure(String label, int operations, IntConsumer operation) {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0 ; i < operations ; i++) {
+			operation.accept(i);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		System.out.printf("%-16s %8.2f us/op %10.0f ops/s %6d bytes/op%n",
+				label, elapsed / 1e3 / operations, operations * 1e9 / elapsed, allocated / operations);
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.neopragma.legacy.round14.TestApplicants.applicant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedSlotPersistenceTest {
+
+	private static final int SLOTS_PER_CHUNK = 16;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private MappedSlotPersistence persistence;
+
+	@Before
+	public void beforeEach() throws Exception {
+		directory = folder.getRoot().toPath().resolve("applicants");
+		persistence = new MappedSlotPersistence(directory, SLOTS_PER_CHUNK);
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		persistence.close();
+	}
+
+	@Test
+	public void itFindsASavedApplicantById() {
+		persistence.save(applicant(7, "Mary", "Smith", "75001"));
+		JobApplicant found = persistence.findById(7);
+		assertEquals(Integer.valueOf(7), found.getId());
+		assertEquals("Mary Q. Smith", found.getName().displayName());
+		assertEquals("Smith Quinn Mary", found.getName().sortableName());
+		assertEquals("123-45-6789", found.getSsn().formatSsn());
+		assertEquals("Addison", found.getAddress().getCity());
+		assertEquals("TX", found.getAddress().getState());
+		assertEquals("75001", found.getAddress().getZipCode());
+	}
+
+	@Test
+	public void itEnumeratesOnlyTheSlotsInUse() {
+		for (int id = 1 ; id <= 40 ; id++) {
+			persistence.save(applicant(id, "Mary", String.valueOf(id), "75001"));
+		}
+		persistence.delete(7);
+		List<Integer> ids = new ArrayList<>();
+		persistence.forEachApplicant(applicant -> ids.add(applicant.getId()));
+		assertEquals(39, ids.size());
+		assertFalse(ids.contains(7));
+	}
+
+	@Test
+	public void itKeepsEveryFormOfZipCode() {
+		String[] zipCodes = { "00501", "75001-0042", "7500", "K1A 0B1" };
+		for (int id = 0 ; id < zipCodes.length ; id++) {
+			persistence.save(applicant(id, "Mary", "Smith", zipCodes[id]));
+		}
+		for (int id = 0 ; id < zipCodes.length ; id++) {
+			assertEquals(zipCodes[id], persistence.findById(id).getAddress().getZipCode());
+		}
+	}
+
+	@Test
+	public void itReadsMissingPartsAsNullObjects() {
+		persistence.save(new JobApplicantImpl(1, null, null, null));
+		JobApplicant found = persistence.findById(1);
+		assertTrue(found.getAddress() instanceof NullAddress);
+		assertTrue(found.getSsn() instanceof NullSsn);
+		assertEquals(Constants.EMPTY_STRING, found.getName().displayName());
+	}
+
+	@Test
+	public void itReplacesAnApplicantSavedAgainInItsSlot() {
+		persistence.save(applicant(7, "Mary", "Smith", "75001"));
+		persistence.save(applicant(7, "Mary", "Jones", "75001"));
+		assertEquals("Mary Q. Jones", persistence.findById(7).getName().displayName());
+		assertEquals(1, persistence.getSlotCount());
+	}
+
+	@Test
+	public void itStoresEachDistinctStringOnce() {
+		saveMany(10, "Mary");
+		// Mary Q. n, n Quinn Mary, Addison and TX
+		assertEquals(10 + 10 + 2, persistence.getDictionarySize());
+	}
+
+	@Test
+	public void itReusesTheSlotsOfDeletedApplicants() {
+		saveMany(10, "Mary");
+		persistence.delete(3);
+		persistence.delete(4);
+		persistence.delete(99);
+		assertNull(persistence.findById(3));
+		persistence.save(applicant(11, "John", "Smith", "75001"));
+		persistence.save(applicant(12, "John", "Jones", "75001"));
+		assertEquals(10, persistence.getSlotCount());
+		assertEquals(10, persistence.size());
+	}
+
+	@Test
+	public void itGrowsAChunkAtATime() {
+		saveMany(SLOTS_PER_CHUNK * 2 + 1, "Mary");
+		assertEquals(3L * SLOTS_PER_CHUNK * MappedSlotPersistence.SLOT_BYTES, persistence.getFileBytes());
+		assertEquals("Mary Q. 1", persistence.findById(1).getName().displayName());
+		assertEquals("Mary Q. 33", persistence.findById(33).getName().displayName());
+	}
+
+	@Test
+	public void itFindsAnApplicantByDisplayName() {
+		saveMany(40, "Mary");
+		assertEquals(Integer.valueOf(25), persistence.findByName("Mary Q. 25").getId());
+		persistence.delete(25);
+		assertNull(persistence.findByName("Mary Q. 25"));
+		assertNull(persistence.findByName("Nobody"));
+	}
+
+	@Test
+	public void itKeepsApplicantsAcrossReopening() throws Exception {
+		saveMany(40, "Mary");
+		persistence.delete(10);
+		persistence.save(applicant(20, "Changed", "Name", "75001-1234"));
+		persistence.close();
+
+		persistence = new MappedSlotPersistence(directory, SLOTS_PER_CHUNK);
+		assertEquals(39, persistence.size());
+		assertNull(persistence.findById(10));
+		assertEquals("Changed Q. Name", persistence.findById(20).getName().displayName());
+		assertEquals("75001-1234", persistence.findById(20).getAddress().getZipCode());
+		persistence.save(applicant(41, "John", "Smith", "75001"));
+		assertEquals(40, persistence.getSlotCount());
+	}
+
+	@Test
+	public void itReopensWithAnotherChunkSize() throws Exception {
+		saveMany(40, "Mary");
+		persistence.close();
+
+		persistence = new MappedSlotPersistence(directory, SLOTS_PER_CHUNK * 3);
+		assertEquals(40, persistence.size());
+		for (int id = 1 ; id <= 40 ; id++) {
+			assertEquals("Mary Q. " + id, persistence.findById(id).getName().displayName());
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void itRejectsChunksWithoutSlots() throws Exception {
+		new MappedSlotPersistence(directory, 0);
+	}
+
+	@Test
+	public void itDropsSlotsWhoseStringsWereLost() throws Exception {
+		persistence.save(applicant(1, "Mary", "Smith", "75001"));
+		persistence.save(applicant(2, "John", "Jones", "75001"));
+		persistence.close();
+		Path dictionary = directory.resolve("dictionary.dat");
+		try (RandomAccessFile raw = new RandomAccessFile(dictionary.toFile(), "rw")) {
+			raw.setLength(raw.length() - 3);
+		}
+
+		persistence = new MappedSlotPersistence(directory, SLOTS_PER_CHUNK);
+		assertEquals("Mary Q. Smith", persistence.findById(1).getName().displayName());
+		assertNull(persistence.findById(2));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void itRejectsApplicantsWithoutAnId() {
+		persistence.save(new JobApplicantImpl(null, new NullAddress(), new NullSsn(), new NullName()));
+	}
+
+	@Test(expected=PersistenceException.class)
+	public void itRejectsFindsOnceClosed() throws Exception {
+		persistence.close();
+		persistence.findById(1);
+	}
+
+	private void saveMany(int count, String firstName) {
+		for (int id = 1 ; id <= count ; id++) {
+			persistence.save(applicant(id, firstName, String.valueOf(id), "75001"));
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.neopragma.legacy.round14;
+
+import java.lang.reflect.Constructor;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.function.Supplier;
+
+/**
+ * Compares names created per call the way NameFactory used to, reading
+ * the bundle and reflecting on the class each time, with NameFactory's
+ * cached constructor per Locale and with the bound MethodHandle used for
+ * classes that are not registered.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.NameFactoryBenchmark [names]
+ */
+public class NameFactoryBenchmark {
+
+	private static final Locale LOCALE = new Locale("en_US");
+
+	public static void main(String[] args) {
+		int names = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		NameConstructor bound = NameFactory.constructorFor(NameFactoryTest.PlainName.class.getName());
+		for (int round = 0 ; round < 3 ; round++) {
+			measure("reflection", names, () -> reflectively(LOCALE, "First", "Middle", "Last"));
+			measure("cached", names, () -> NameFactory.newInstance(LOCALE, "First", "Middle", "Last"));
+			measure("method handle", names, () -> bound.newName("First"));
+			measure("direct", names, () -> new EnglishName("First", "Middle", "Last"));
+		}
+	}
+
+	private static void measure(String label, int names, Supplier<Name> create) {
+		int check = 0;
+		long start = System.nanoTime();
+		for (int i = 0 ; i < names ; i++) {
+			check += create.get().hashCode() & 1;
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("%-14s %8.1f ns/name %10.0f names/s (%d)%n",
+				label, (double) elapsed / names, names * 1e9 / elapsed, check);
+	}
+
+	/**
+	 * NameFactory.newInstance as it was before constructors were cached.
+	 */
+	private static Name reflectively(Locale locale, String...nameParts) {
+		ResourceBundle rb = ResourceBundle.getBundle("locale", locale);
+		String nameClassName = rb.getString("name.class");
+		try {
+			Class<?> nameClass = Class.forName(nameClassName);
+			Constructor<?> constructor = nameClass.getDeclaredConstructor(String[].class);
+			return (Name) constructor.newInstance((Object) nameParts);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Locale;
+
+public class NameFactoryTest {
+
+	private final Locale english = new Locale("en_US");
+	private final Locale spanish = new Locale("es");
+
+	@After
+	public void restoreRegisteredConstructors() {
+		NameFactory.register(EnglishName.class.getName(), EnglishName::new);
+		NameFactory.reload();
+	}
+
+	@Test
+	public void itCreatesTheNameClassOfTheLocale() {
+		assertTrue(NameFactory.newInstance(english, "First", "Middle", "Last") instanceof EnglishName);
+		assertTrue(NameFactory.newInstance(spanish, "Primer", null, "Apellido", "Segundo") instanceof SpanishName);
+	}
+
+	@Test
+	public void itResolvesEachLocaleOnce() {
+		assertSame(NameFactory.forLocale(english), NameFactory.forLocale(english));
+	}
+
+	@Test
+	public void itResolvesTheLocaleAgainAfterReload() {
+		NameConstructor before = NameFactory.forLocale(english);
+		NameFactory.register(EnglishName.class.getName(), parts -> new NullName());
+		NameFactory.reload();
+		assertNotSame(before, NameFactory.forLocale(english));
+		assertTrue(NameFactory.newInstance(english, "First", "Middle", "Last") instanceof NullName);
+	}
+
+	@Test
+	public void itBindsClassesNamedInABundleThatAreNotRegistered() {
+		Name name = NameFactory.constructorFor(PlainName.class.getName()).newName("Only");
+		assertEquals("Only", name.displayName());
+	}
+
+	@Test(expected=InvalidNameException.class)
+	public void itPassesOnTheExceptionOfABoundConstructor() {
+		NameFactory.constructorFor(PlainName.class.getName()).newName();
+	}
+
+	@Test(expected=RuntimeException.class)
+	public void itRejectsClassesThatAreNotNames() {
+		NameFactory.constructorFor(String.class.getName());
+	}
+
+	@Test(expected=RuntimeException.class)
+	public void itRejectsUnknownClasses() {
+		NameFactory.constructorFor("com.neopragma.legacy.round14.NoSuchName");
+	}
+
+	public static class PlainName implements Name {
+		private final String name;
+
+		public PlainName(String...nameParts) {
+			if (nameParts.length != 1) {
+				throw new InvalidNameException("one part expected");
+			}
+			name = nameParts[0];
+		}
+
+		@Override
+		public String displayName() {
+			return name;
+		}
+
+		@Override
+		public String sortableName() {
+			return name;
+		}
+	}
+
+}
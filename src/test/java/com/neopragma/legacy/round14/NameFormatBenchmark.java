@@ -0,0 +1,68 @@
+package com.neopragma.legacy.round14;
+
+import java.lang.management.ManagementFactory;
+import java.text.MessageFormat;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares the former MessageFormat.format calls for an English display
+ * and sortable name with NamePattern on new name instances, and with the
+ * names kept, as in a report that formats the same names repeatedly.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.NameFormatBenchmark [names]
+ */
+public class NameFormatBenchmark {
+
+	private static final EnglishName[] NAMES = new EnglishName[1024];
+
+	static {
+		for (int i = 0 ; i < NAMES.length ; i++) {
+			NAMES[i] = new EnglishName("First" + i, i % 3 == 0 ? "" : "Middle" + i, "Last" + i);
+		}
+	}
+
+	public static void main(String[] args) {
+		int names = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		for (int round = 0 ; round < 3 ; round++) {
+			measure("MessageFormat", names, NameFormatBenchmark::messageFormat);
+			measure("NamePattern", names, i -> {
+				EnglishName name = new EnglishName("First" + (i & 1023), (i & 1023) % 3 == 0 ? "" : "Middle", "Last");
+				return name.displayName().length() + name.sortableName().length();
+			});
+			measure("cached", names, i -> NAMES[i & 1023].displayName().length()
+					+ NAMES[i & 1023].sortableName().length());
+		}
+	}
+
+	private static void measure(String label, int names, ToIntFunction<Integer> format) {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		int check = 0;
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0 ; i < names ; i++) {
+			check += format.applyAsInt(i);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		System.out.printf("%-14s %8.1f ns/name %6d bytes/name (%d)%n",
+				label, (double) elapsed / names, allocated / names, check);
+	}
+
+	/**
+	 * Display and sortable name as they were formatted before NamePattern.
+	 */
+	private static int messageFormat(int i) {
+		String first = "First" + (i & 1023);
+		String middle = (i & 1023) % 3 == 0 ? "" : "Middle";
+		String last = "Last";
+		String display = MessageFormat.format("{0} {1}{2}", first,
+				middle.isEmpty() ? "" : middle.substring(0, 1) + ". ", last);
+		String sortable = MessageFormat.format("{2} {1}{0}", first,
+				middle.isEmpty() ? "" : middle + " ", last);
+		return display.length() + sortable.length();
+	}
+
+}
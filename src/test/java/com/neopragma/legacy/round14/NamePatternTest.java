@@ -0,0 +1,86 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import java.text.MessageFormat;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class NamePatternTest {
+
+	private static final String[] PATTERNS = { "{0} {1}{2}", "{2} {1}{0}", "{0} {1}{2} {3}", "{2} {3}{0} {1}", "Dear {0},", "" };
+
+	@Test
+	public void itFormatsLikeMessageFormat() {
+		Random random = new Random(19);
+		for (int i = 0 ; i < 20000 ; i++) {
+			String pattern = PATTERNS[random.nextInt(PATTERNS.length)];
+			String[] values = { randomText(random), randomText(random), randomText(random), randomText(random) };
+			assertEquals(MessageFormat.format(pattern, (Object[]) values), NamePattern.compile(pattern).format(values));
+		}
+	}
+
+	@Test
+	public void itKeepsPlaceholdersWithoutValues() {
+		assertEquals(MessageFormat.format("{0} {3}", "a"), NamePattern.compile("{0} {3}").format("a"));
+	}
+
+	@Test
+	public void itRejectsWhatItDoesNotSupport() {
+		for (String pattern : new String[] { "it''s {0}", "{0,number}", "{0", "{}", "0}" }) {
+			try {
+				NamePattern.compile(pattern);
+				fail("Expected IllegalArgumentException for " + pattern);
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void namesAreFormattedOnceAndKept() {
+		EnglishName name = new EnglishName("John", "Quincy", "Adams");
+		assertSame(name.displayName(), name.displayName());
+		assertSame(name.sortableName(), name.sortableName());
+	}
+
+	@Test
+	public void namesMatchTheMessageFormatOutput() {
+		Random random = new Random(91);
+		for (int i = 0 ; i < 5000 ; i++) {
+			String first = "F" + randomText(random);
+			String middle = random.nextBoolean() ? "" : random.nextBoolean() ? null : "M" + randomText(random);
+			String last = "L" + randomText(random);
+			String second = random.nextBoolean() ? "" : "S" + randomText(random);
+			String middleSort = middle == null || middle.isEmpty() ? "" : middle + " ";
+			EnglishName english = new EnglishName(first, middle == null ? null : middle.isEmpty() ? Constants.EMPTY_STRING : middle, last);
+			assertEquals(MessageFormat.format("{0} {1}{2}", first, initial(middle), last), english.displayName());
+			assertEquals(MessageFormat.format("{2} {1}{0}", first, middleSort, last), english.sortableName());
+			SpanishName spanish = new SpanishName(first, middle == null ? null : middle.isEmpty() ? Constants.EMPTY_STRING : middle,
+					last, second.isEmpty() ? Constants.EMPTY_STRING : second);
+			assertEquals(MessageFormat.format("{0} {1}{2} {3}", first, initial(middle), last, initial(second)).trim(),
+					spanish.displayName());
+			assertEquals(MessageFormat.format("{2} {3}{0} {1}", first, middleSort, last,
+					second.isEmpty() ? "" : second + " ").trim(), spanish.sortableName());
+		}
+	}
+
+	private static String initial(String value) {
+		return value == null || value.isEmpty() ? "" : value.substring(0, 1) + ". ";
+	}
+
+	private static String randomText(Random random) {
+		String alphabet = "abcXYZ \u00f1\u00e9'{}0-.\u00e7\u4e2d";
+		if (random.nextInt(20) == 0) {
+			return null;
+		}
+		StringBuilder text = new StringBuilder();
+		for (int i = random.nextInt(8) ; i > 0 ; i--) {
+			text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OfflineCityStateLookupTest {
+
+	private static final String CSV =
+			"zip,city,state\n" +
+			"75001,Addison,TX\n" +
+			"85658,Marana,AZ\n" +
+			"00501,Holtsville,NY\n" +
+			"99950,Ketchikan,AK\n" +
+			"75002,Allen,TX\n" +
+			"\"10203\",\"Our Town\",\"NY\"\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private OfflineCityStateLookup lookup;
+
+	@Before
+	public void beforeEach() throws Exception {
+		Path database = folder.newFile("zips.db").toPath();
+		new ZipDatabaseBuilder().readCsv(new StringReader(CSV)).writeTo(database);
+		lookup = new OfflineCityStateLookup(database);
+	}
+
+	@Test
+	public void itFindsAddisonTexasBy5DigitZipCode() {
+		assertCityState("75001", "Addison", "TX");
+	}
+
+	@Test
+	public void itFindsMaranaArizonaBy9DigitZipCode() {
+		assertCityState("856585578", "Marana", "AZ");
+	}
+
+	@Test
+	public void itFindsTheLowestAndHighestZipCodes() {
+		assertCityState("00501", "Holtsville", "NY");
+		assertCityState("99950", "Ketchikan", "AK");
+	}
+
+	@Test
+	public void itReadsQuotedFields() {
+		assertCityState("10203", "Our Town", "NY");
+	}
+
+	@Test(expected=CityStateLookupException.class)
+	public void itThrowsWhenZipCodeIsNotFound() {
+		lookup.lookup("99999");
+	}
+
+	@Test
+	public void itPlugsIntoAddress() {
+		Address address = new AddressImpl(lookup, "75002");
+		assertEquals("Allen", address.getCity());
+		assertEquals("TX", address.getState());
+		assertEquals("75002", address.getZipCode());
+	}
+
+	@Test
+	public void itSkipsRowsWhoseZipCodeHasDigitsOfOtherScripts() throws Exception {
+		Path database = folder.newFile("other-digits.db").toPath();
+		new ZipDatabaseBuilder().readCsv(new StringReader(
+				"\u0667\u0665\u0660\u0660\u0661,Addison,TX\n75002,Allen,TX\n")).writeTo(database);
+		assertEquals("Allen", new OfflineCityStateLookup(database).lookup("75002").getCity());
+	}
+
+	@Test(expected=IOException.class)
+	public void itRejectsFilesThatAreNotZipCodeDatabases() throws Exception {
+		Path other = folder.newFile("other.db").toPath();
+		Files.write(other, "not a database at all".getBytes("UTF-8"));
+		new OfflineCityStateLookup(other);
+	}
+
+	@Test
+	public void itRejectsATruncatedDatabase() throws Exception {
+		Path database = folder.getRoot().toPath().resolve("zips.db");
+		byte[] whole = Files.readAllBytes(database);
+		for (int length : new int[] { ZipDatabaseBuilder.HEADER_BYTES + 400, whole.length - 1 }) {
+			Path truncated = folder.getRoot().toPath().resolve("truncated-" + length + ".db");
+			Files.write(truncated, Arrays.copyOf(whole, length));
+			try {
+				new OfflineCityStateLookup(truncated);
+				fail("Expected IOException for " + length + " bytes");
+			} catch (IOException expected) {
+			}
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void itRejectsAZipCodeOfACityThereIsNot() throws Exception {
+		Path database = folder.getRoot().toPath().resolve("zips.db");
+		byte[] bytes = Files.readAllBytes(database);
+		ByteBuffer.wrap(bytes).putInt(ZipDatabaseBuilder.HEADER_BYTES + 75001 * 4, 1000 << 8);
+		Path damaged = folder.newFile("damaged.db").toPath();
+		Files.write(damaged, bytes);
+		new OfflineCityStateLookup(damaged);
+	}
+
+	private void assertCityState(String zipCode, String city, String state) {
+		CityState cityState = lookup.lookup(zipCode);
+		assertEquals(city, cityState.getCity());
+		assertEquals(state, cityState.getState());
+	}
+
+}
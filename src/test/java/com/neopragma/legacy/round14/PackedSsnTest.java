@@ -0,0 +1,76 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PackedSsnTest {
+
+	@Test
+	public void itFormatsWithDashesAndLeadingZeros() {
+		assertEquals("123-45-6789", new PackedSsn("123456789").formatSsn());
+		assertEquals("012-34-5678", new PackedSsn("012-34-5678").formatSsn());
+	}
+
+	@Test
+	public void itFormatsIntoACallersBuffer() {
+		char[] buffer = "SSN: ...........!".toCharArray();
+		new PackedSsn("123456789").formatInto(buffer, 5);
+		assertEquals("SSN: 123-45-6789!", new String(buffer));
+	}
+
+	@Test
+	public void itIsEqualWhateverTheInputForm() {
+		PackedSsn dashed = new PackedSsn("123-45-6789");
+		PackedSsn plain = new PackedSsn("123456789");
+		assertEquals(dashed, plain);
+		assertEquals(dashed.hashCode(), plain.hashCode());
+		assertNotEquals(dashed, new PackedSsn("123456788"));
+		Set<PackedSsn> unique = new HashSet<>(Arrays.asList(dashed, plain));
+		assertEquals(1, unique.size());
+	}
+
+	@Test
+	public void itSortsNumerically() {
+		PackedSsn[] ssns = { new PackedSsn("223456789"), new PackedSsn("012345678"), new PackedSsn("123456789") };
+		Arrays.sort(ssns);
+		assertEquals("012-34-5678", ssns[0].formatSsn());
+		assertEquals("223-45-6789", ssns[2].formatSsn());
+	}
+
+	@Test
+	public void itRoundTripsThroughAnInt() {
+		PackedSsn ssn = new PackedSsn("078-05-1121");
+		assertEquals(78051121, ssn.toInt());
+		assertEquals(ssn, PackedSsn.of(ssn.toInt()));
+	}
+
+	@Test
+	public void itAppliesTheSameRulesAsSsnImpl() {
+		assertRejected("666223333", "Ssn cannot start with 000, 666, or 9");
+		assertRejected("078051120", "078051120 is a reserved Ssn that cannot be used");
+		try {
+			PackedSsn.of(1000000000);
+			fail("Expected InvalidSsnException");
+		} catch (InvalidSsnException expected) {
+			assertTrue(expected.getMessage().startsWith("Ssn must be exactly nine digits"));
+		}
+	}
+
+	private void assertRejected(String ssn, String message) {
+		try {
+			new PackedSsn(ssn);
+			fail("Expected InvalidSsnException");
+		} catch (InvalidSsnException expected) {
+			assertEquals(message, expected.getMessage());
+		}
+	}
+
+}
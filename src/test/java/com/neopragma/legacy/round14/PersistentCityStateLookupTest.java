@@ -0,0 +1,149 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PersistentCityStateLookupTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	private CityStateLookup delegate;
+
+	private Path file;
+	private PersistentCityStateLookup lookup;
+
+	@Before
+	public void beforeEach() throws Exception {
+		file = folder.getRoot().toPath().resolve("zip-codes.log");
+		when(delegate.lookup("75001")).thenReturn(new CityState("Addison", "TX"));
+		when(delegate.lookup("85658")).thenReturn(new CityState("Marana", "AZ"));
+		lookup = new PersistentCityStateLookup(delegate, file);
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		lookup.close();
+	}
+
+	@Test
+	public void itLooksUpEachZipCodeOnlyOnce() {
+		lookup.lookup("75001");
+		lookup.lookup("75001-1234");
+		verify(delegate, times(1)).lookup("75001");
+	}
+
+	@Test
+	public void itRemembersZipCodesAcrossRestarts() throws Exception {
+		lookup.lookup("75001");
+		lookup.lookup("85658");
+		lookup.close();
+
+		CityStateLookup offline = mock(CityStateLookup.class);
+		lookup = new PersistentCityStateLookup(offline, file);
+		assertEquals("Marana", lookup.lookup("85658").getCity());
+		assertEquals(2, lookup.size());
+		verify(offline, never()).lookup(anyString());
+	}
+
+	@Test
+	public void itTruncatesATornRecordAtTheEnd() throws Exception {
+		lookup.lookup("75001");
+		lookup.lookup("85658");
+		lookup.close();
+		long intact = Files.size(file);
+		try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+			raw.setLength(intact - 3);
+		}
+
+		lookup = new PersistentCityStateLookup(delegate, file);
+		assertEquals(1, lookup.size());
+		assertTrue(lookup.getTruncatedBytes() > 0);
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+		assertEquals("Marana", lookup.lookup("85658").getCity());
+	}
+
+	@Test
+	public void itTruncatesACorruptedRecordAtTheEnd() throws Exception {
+		lookup.lookup("75001");
+		lookup.lookup("85658");
+		lookup.close();
+		try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+			raw.seek(raw.length() - 1);
+			raw.write('X');
+		}
+
+		lookup = new PersistentCityStateLookup(delegate, file);
+		assertEquals(1, lookup.size());
+	}
+
+	@Test
+	public void itCompactsSupersededRecords() throws Exception {
+		lookup.close();
+		CityStateLookup service = zipCode -> new CityState("City " + zipCode, "TX");
+		lookup = new PersistentCityStateLookup(service, file, 1);
+		lookup.lookup("75001");
+		lookup.lookup("75002");
+		lookup.close();
+		long compacted = Files.size(file);
+
+		// Simulates two processes that appended the same zip codes.
+		byte[] twice = Files.readAllBytes(file);
+		Files.write(file, twice, StandardOpenOption.APPEND);
+		lookup = new PersistentCityStateLookup(service, file, 1);
+		assertEquals(compacted, Files.size(file));
+		assertEquals(2, lookup.size());
+		lookup.lookup("75003");
+		lookup.close();
+		lookup = new PersistentCityStateLookup(service, file, 1);
+		assertEquals(3, lookup.size());
+	}
+
+	@Test
+	public void itKeepsWorkingWhenCompactionFails() throws Exception {
+		lookup.lookup("75001");
+		Path blocker = Files.createDirectory(file.resolveSibling(file.getFileName() + ".compact"));
+		Files.createFile(blocker.resolve("in-the-way"));
+		try {
+			lookup.compact();
+			fail("Expected IOException");
+		} catch (IOException expected) {
+		}
+		assertEquals("Marana", lookup.lookup("85658").getCity());
+		lookup.close();
+		lookup = new PersistentCityStateLookup(delegate, file);
+		assertEquals(2, lookup.size());
+	}
+
+	@Test
+	public void itAnswersWhenTheResultCannotBeWritten() throws Exception {
+		lookup.close();
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+		assertEquals(1, lookup.getAppendFailureCount());
+	}
+
+}
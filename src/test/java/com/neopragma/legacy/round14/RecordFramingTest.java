@@ -0,0 +1,94 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RecordFramingTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileChannel channel;
+
+	@Before
+	public void beforeEach() throws Exception {
+		channel = FileChannel.open(folder.getRoot().toPath().resolve("records.log"),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		channel.close();
+	}
+
+	@Test
+	public void itScansTheRecordsItFramed() throws Exception {
+		append("Addison");
+		append("Marana");
+		List<String> payloads = new ArrayList<>();
+		long end = RecordFraming.scan(channel, channel.size(), 1024, true, (offset, payload) -> {
+			payloads.add(new String(payload, StandardCharsets.UTF_8));
+			return true;
+		});
+		assertEquals(2, payloads.size());
+		assertEquals("Marana", payloads.get(1));
+		assertEquals(channel.size(), end);
+	}
+
+	@Test
+	public void itStopsAtATornRecord() throws Exception {
+		append("Addison");
+		long intact = channel.size();
+		ByteBuffer torn = RecordFraming.frame("Marana".getBytes(StandardCharsets.UTF_8));
+		torn.limit(torn.limit() - 1);
+		channel.write(torn, intact);
+		assertEquals(intact, RecordFraming.scan(channel, channel.size(), 1024, true, (offset, payload) -> true));
+	}
+
+	@Test
+	public void itStopsAtARecordWhoseChecksumDoesNotMatch() throws Exception {
+		append("Addison");
+		long intact = channel.size();
+		append("Marana");
+		channel.write(ByteBuffer.wrap(new byte[] { 'X' }), intact + RecordFraming.HEADER_BYTES);
+		assertEquals(intact, RecordFraming.scan(channel, channel.size(), 1024, true, (offset, payload) -> true));
+	}
+
+	@Test
+	public void itStopsWhereTheVisitorFindsNoRecord() throws Exception {
+		append("Addison");
+		long intact = channel.size();
+		append("Marana");
+		assertEquals(intact, RecordFraming.scan(channel, channel.size(), 1024, true,
+				(offset, payload) -> offset == 0));
+	}
+
+	@Test
+	public void itScansRecordsLargerThanItsBuffer() throws Exception {
+		byte[] large = new byte[200 * 1024];
+		channel.write(RecordFraming.frame(large), 0);
+		assertEquals(channel.size(), RecordFraming.scan(channel, channel.size(), large.length, true,
+				(offset, payload) -> payload.length == large.length));
+	}
+
+	private void append(String payload) throws Exception {
+		ByteBuffer record = RecordFraming.frame(payload.getBytes(StandardCharsets.UTF_8));
+		long position = channel.size();
+		while (record.hasRemaining()) {
+			channel.write(record, position + record.position());
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.neopragma.legacy.round14;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResilientCityStateLookupTest {
+
+	private ExecutorService workers = Executors.newCachedThreadPool();
+	private FaultyLookup delegate = new FaultyLookup();
+	private AtomicLong now = new AtomicLong();
+
+	@After
+	public void afterEach() {
+		workers.shutdownNow();
+	}
+
+	@Test
+	public void itRetriesTransientFailures() {
+		delegate.failNext(2);
+		ResilientCityStateLookup lookup = resilient(policy().maxAttempts(3));
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+		assertEquals(3, delegate.calls.get());
+		assertEquals(2, lookup.getRetryCount());
+	}
+
+	@Test
+	public void itGivesUpAfterMaxAttempts() {
+		delegate.failNext(5);
+		ResilientCityStateLookup lookup = resilient(policy().maxAttempts(3));
+		assertLookupFails(lookup, IOException.class);
+		assertEquals(3, delegate.calls.get());
+	}
+
+	@Test
+	public void itDoesNotRetryZipCodesThatAreNotFound() {
+		ResilientCityStateLookup lookup = resilient(policy().maxAttempts(3));
+		assertLookupFails(lookup, "99999", HttpResponseException.class);
+		assertEquals(1, delegate.calls.get());
+		assertEquals(CircuitBreaker.State.CLOSED, lookup.getCircuitBreakerState());
+	}
+
+	@Test
+	public void itStopsWaitingAtTheDeadline() {
+		delegate.delayMillis.add(2000L);
+		ResilientCityStateLookup lookup = resilient(policy().deadlineMillis(100).maxAttempts(1));
+		long start = System.currentTimeMillis();
+		assertLookupFails(lookup, TimeoutException.class);
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertEquals(1, lookup.getTimeoutCount());
+	}
+
+	@Test
+	public void itFailsFastWhileTheCircuitBreakerIsOpen() {
+		delegate.failNext(2);
+		ResilientCityStateLookup lookup = resilient(policy().maxAttempts(1).failureThreshold(2).openMillis(1000));
+		assertLookupFails(lookup, IOException.class);
+		assertLookupFails(lookup, IOException.class);
+		assertEquals(CircuitBreaker.State.OPEN, lookup.getCircuitBreakerState());
+		assertLookupFails(lookup, IllegalStateException.class);
+		assertEquals(2, delegate.calls.get());
+		assertEquals(1, lookup.getRejectionCount());
+	}
+
+	@Test
+	public void itClosesTheCircuitBreakerAfterASuccessfulTrial() {
+		delegate.failNext(2);
+		ResilientCityStateLookup lookup = resilient(policy().maxAttempts(1).failureThreshold(2).openMillis(1000));
+		assertLookupFails(lookup, IOException.class);
+		assertLookupFails(lookup, IOException.class);
+		now.addAndGet(1000);
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+		assertEquals(CircuitBreaker.State.CLOSED, lookup.getCircuitBreakerState());
+	}
+
+	@Test
+	public void itLetsAnotherTrialThroughAfterAZipCodeNotFound() {
+		delegate.failNext(2);
+		ResilientCityStateLookup lookup = resilient(policy().maxAttempts(1).failureThreshold(2).openMillis(1000));
+		assertLookupFails(lookup, IOException.class);
+		assertLookupFails(lookup, IOException.class);
+		now.addAndGet(1000);
+		assertLookupFails(lookup, "99999", HttpResponseException.class);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, lookup.getCircuitBreakerState());
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+		assertEquals(CircuitBreaker.State.CLOSED, lookup.getCircuitBreakerState());
+	}
+
+	@Test
+	public void itFailsAttemptsWhenEveryWorkerIsBusy() {
+		delegate.delayMillis.add(2000L);
+		ResilientCityStateLookup lookup = new ResilientCityStateLookup(delegate,
+				policy().maxWorkers(1).maxAttempts(1).deadlineMillis(100));
+		try {
+			assertLookupFails(lookup, TimeoutException.class);
+			assertLookupFails(lookup, RejectedExecutionException.class);
+			assertEquals(1, lookup.getSaturationCount());
+		} finally {
+			lookup.close();
+		}
+	}
+
+	@Test
+	public void itHedgesAttemptsSlowerThanThePercentile() {
+		ResilientCityStateLookup lookup = resilient(policy()
+				.hedgeAbovePercentile(0.9).hedgeMinimumSamples(5).maxAttempts(1).deadlineMillis(5000));
+		for (int i = 0 ; i < 5 ; i++) {
+			lookup.lookup("75001");
+		}
+		delegate.delayMillis.add(3000L);
+		long start = System.currentTimeMillis();
+		assertEquals("Addison", lookup.lookup("75001").getCity());
+		assertTrue(System.currentTimeMillis() - start < 1000);
+		assertEquals(1, lookup.getHedgeCount());
+		assertEquals(7, delegate.calls.get());
+	}
+
+	private ResiliencePolicy policy() {
+		return new ResiliencePolicy().initialBackoffMillis(1).maxBackoffMillis(5);
+	}
+
+	private ResilientCityStateLookup resilient(ResiliencePolicy policy) {
+		CircuitBreaker breaker = new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenMillis(), now::get);
+		return new ResilientCityStateLookup(delegate, policy, breaker, workers, false);
+	}
+
+	private void assertLookupFails(ResilientCityStateLookup lookup, Class<?> cause) {
+		assertLookupFails(lookup, "75001", cause);
+	}
+
+	private void assertLookupFails(ResilientCityStateLookup lookup, String zipCode, Class<?> cause) {
+		try {
+			lookup.lookup(zipCode);
+			fail("Expected CityStateLookupException");
+		} catch (CityStateLookupException e) {
+			assertEquals(cause, e.getWrappedException().getClass());
+		}
+	}
+
+	/**
+	 * Answers 75001 and treats every other zip code as not found, after
+	 * injecting the queued failures and delays.
+	 */
+	private static class FaultyLookup implements CityStateLookup {
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		final ConcurrentLinkedQueue<Long> delayMillis = new ConcurrentLinkedQueue<>();
+
+		void failNext(int count) {
+			failures.set(count);
+		}
+
+		@Override
+		public CityState lookup(String zipCode) {
+			calls.incrementAndGet();
+			Long delay = delayMillis.poll();
+			if (delay != null) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failures.getAndDecrement() > 0) {
+				throw new CityStateLookupException(new IOException("Connection reset"));
+			}
+			if (!"75001".equals(zipCode)) {
+				throw new CityStateLookupException(new HttpResponseException(404, "Not Found"));
+			}
+			return new CityState("Addison", "TX");
+		}
+	}
+
+}
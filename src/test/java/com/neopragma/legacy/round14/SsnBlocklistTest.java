@@ -0,0 +1,104 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SsnBlocklistTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void afterEach() {
+		SsnBlocklist.install(SsnBlocklist.of());
+	}
+
+	@Test
+	public void itAlwaysBlocksTheReservedNumbers() {
+		SsnBlocklist blocklist = SsnBlocklist.of(123456789);
+		assertTrue(blocklist.contains(219099999));
+		assertTrue(blocklist.contains(78051120));
+		assertTrue(blocklist.contains(123456789));
+		assertFalse(blocklist.contains(123456788));
+		assertEquals(3, blocklist.size());
+	}
+
+	@Test
+	public void itLoadsAFileSkippingCommentsAndBlankLines() throws Exception {
+		Path file = write("# test numbers", "", "123-45-6789", " 234567890 ", "123456789");
+		SsnBlocklist blocklist = SsnBlocklist.load(file);
+		assertTrue(blocklist.contains(123456789));
+		assertTrue(blocklist.contains(234567890));
+		assertEquals(4, blocklist.size());
+	}
+
+	@Test
+	public void itKeepsTheCurrentBlocklistWhenTheFileIsBad() throws Exception {
+		SsnBlocklist.reload(write("123456789"));
+		SsnBlocklist installed = SsnBlocklist.current();
+		try {
+			SsnBlocklist.reload(write("234567890", "not an ssn"));
+			fail("Expected IOException");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage().contains("line 2"));
+		}
+		assertSame(installed, SsnBlocklist.current());
+	}
+
+	@Test
+	public void validationUsesTheInstalledBlocklist() throws Exception {
+		new SsnImpl("123-45-6789");
+		SsnBlocklist.reload(write("123-45-6789"));
+		try {
+			new SsnImpl("123-45-6789");
+			fail("Expected InvalidSsnException");
+		} catch (InvalidSsnException expected) {
+			assertEquals("123456789 is a reserved Ssn that cannot be used", expected.getMessage());
+		}
+	}
+
+	@Test
+	public void itAgreesWithAHashSetForManyNumbers() {
+		Random random = new Random(16);
+		int[] ssns = new int[100000];
+		Set<Integer> expected = new HashSet<>(Arrays.asList(219099999, 78051120));
+		for (int i = 0 ; i < ssns.length ; i++) {
+			ssns[i] = 1 + random.nextInt(999999999);
+			expected.add(ssns[i]);
+		}
+		SsnBlocklist blocklist = SsnBlocklist.of(ssns);
+		assertEquals(expected.size(), blocklist.size());
+		for (int ssn : ssns) {
+			assertTrue(blocklist.contains(ssn));
+		}
+		for (int i = 0 ; i < 100000 ; i++) {
+			int ssn = 1 + random.nextInt(999999999);
+			assertEquals(expected.contains(ssn), blocklist.contains(ssn));
+		}
+		assertTrue(blocklist.memoryBytes() < 12L * ssns.length);
+	}
+
+	private Path write(String... lines) throws IOException {
+		Path file = folder.newFile().toPath();
+		Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.neopragma.legacy.round14;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntPredicate;
+
+/**
+ * Adds Ssns from several threads to an SsnIndex and to a concurrent set
+ * of Integers, and reports adds per second and heap used.
+ *
+ * Run with: java -Xmx2g -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.SsnIndexBenchmark [ssns] [threads]
+ */
+public class SsnIndexBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int ssns = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		for (int round = 0 ; round < 2 ; round++) {
+			long before = usedHeap();
+			SsnIndex index = new SsnIndex();
+			long elapsed = run(index::addIfAbsent, ssns, threads);
+			report("SsnIndex", ssns, elapsed, usedHeap() - before, index.size());
+
+			before = usedHeap();
+			Set<Integer> set = ConcurrentHashMap.newKeySet();
+			elapsed = run(set::add, ssns, threads);
+			report("ConcurrentHashMap", ssns, elapsed, usedHeap() - before, set.size());
+		}
+	}
+
+	private static long run(IntPredicate addIfAbsent, int ssns, int threads) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(threads);
+		long start = System.nanoTime();
+		for (int t = 0 ; t < threads ; t++) {
+			int first = t;
+			new Thread(() -> {
+				for (int i = first ; i < ssns ; i += threads) {
+					addIfAbsent.test(1000000 + (int) ((i * 2654435761L) % 898000000));
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		return System.nanoTime() - start;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0 ; i < 3 ; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void report(String label, int ssns, long elapsedNanos, long bytes, long size) {
+		System.out.printf("%-18s %,d adds %,12.0f adds/s %8.1f MB (%d distinct)%n",
+				label, ssns, ssns / (elapsedNanos / 1e9), bytes / 1048576.0, size);
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SsnIndexTest {
+
+	private SsnIndex index = new SsnIndex();
+
+	@Test
+	public void itAddsEachSsnOnce() {
+		assertTrue(index.addIfAbsent(123456789));
+		assertFalse(index.addIfAbsent(123456789));
+		assertTrue(index.contains(123456789));
+		assertFalse(index.contains(123456788));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	public void itBehavesLikeAHashSetThroughAddsAndRemoves() {
+		Random random = new Random(17);
+		Set<Integer> expected = new HashSet<>();
+		SsnIndex small = new SsnIndex(2);
+		for (int i = 0 ; i < 200000 ; i++) {
+			int ssn = random.nextInt(50000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(ssn), small.remove(ssn));
+			} else {
+				assertEquals(expected.add(ssn), small.addIfAbsent(ssn));
+			}
+		}
+		assertEquals(expected.size(), small.size());
+		for (int ssn = 0 ; ssn < 50000 ; ssn++) {
+			assertEquals(expected.contains(ssn), small.contains(ssn));
+		}
+	}
+
+	@Test
+	public void onlyOneThreadWinsEachSsn() throws Exception {
+		int threads = 8;
+		int ssns = 20000;
+		AtomicInteger wins = new AtomicInteger();
+		CountDownLatch go = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0 ; t < threads ; t++) {
+			new Thread(() -> {
+				try {
+					go.await();
+					for (int ssn = 1 ; ssn <= ssns ; ssn++) {
+						if (index.addIfAbsent(ssn)) {
+							wins.incrementAndGet();
+						}
+					}
+				} catch (InterruptedException ignored) {
+				}
+				done.countDown();
+			}).start();
+		}
+		go.countDown();
+		done.await();
+		assertEquals(ssns, wins.get());
+		assertEquals(ssns, index.size());
+	}
+
+	@Test
+	public void itRebuildsFromStoredApplicants() {
+		index.addIfAbsent(111111111);
+		int added = index.rebuildFrom(Arrays.asList(
+				applicant(new SsnImpl("123-45-6789")),
+				applicant(new PackedSsn("234567890")),
+				applicant(new SsnImpl("123456789")),
+				applicant(new NullSsn())));
+		assertEquals(2, added);
+		assertEquals(2, index.size());
+		assertFalse(index.contains(111111111));
+		assertTrue(index.contains(234567890));
+	}
+
+	@Test
+	public void itReportsAFewBytesPerSsn() {
+		for (int ssn = 1 ; ssn <= 1000000 ; ssn++) {
+			index.addIfAbsent(ssn * 7);
+		}
+		assertTrue(index.memoryBytes() <= 16L * 1000000);
+	}
+
+	private static JobApplicant applicant(Ssn ssn) {
+		return new JobApplicantImpl(new NullAddress(), ssn, new NullName());
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.neopragma.legacy.round14;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares SsnImpl's single-pass parse with the former regular
+ * expression and substring checks. Reports time and bytes allocated per
+ * Ssn, half of them dashed; every tenth one is invalid.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.SsnParserBenchmark [ssns]
+ */
+public class SsnParserBenchmark {
+
+	private static final String[] SSNS = new String[1024];
+
+	static {
+		for (int i = 0 ; i < SSNS.length ; i++) {
+			String digits = String.format("%03d%02d%04d", 1 + i % 665, 1 + i % 99, 1 + i);
+			if (i % 10 == 9) {
+				digits = "000" + digits.substring(3);
+			}
+			SSNS[i] = i % 2 == 0 ? digits
+					: digits.substring(0, 3) + "-" + digits.substring(3, 5) + "-" + digits.substring(5);
+		}
+	}
+
+	public static void main(String[] args) {
+		int ssns = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		for (int round = 0 ; round < 3 ; round++) {
+			measure("regex", ssns, SsnParserBenchmark::regexValidate);
+			measure("SsnParser", ssns, SsnParserBenchmark::parserValidate);
+			measure("new SsnImpl", ssns, SsnParserBenchmark::newSsnImpl);
+		}
+	}
+
+	private static void measure(String label, int ssns, ToIntFunction<String> validate) {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		int valid = 0;
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0 ; i < ssns ; i++) {
+			valid += validate.applyAsInt(SSNS[i & (SSNS.length - 1)]);
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		System.out.printf("%-12s %8.1f ns/ssn %8d bytes/ssn (%d valid)%n",
+				label, (double) elapsed / ssns, allocated / ssns, valid);
+	}
+
+	private static int parserValidate(String ssn) {
+		return SsnParser.validate(SsnParser.digits(ssn)) == null ? 1 : 0;
+	}
+
+	private static int newSsnImpl(String ssn) {
+		try {
+			new SsnImpl(ssn);
+			return 1;
+		} catch (InvalidSsnException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * The checks as SsnImpl made them before SsnParser.
+	 */
+	private static int regexValidate(String ssn) {
+		String digits = ssn.matches("(\\d{3}-\\d{2}-\\d{4}|\\d{9})") ? ssn.replaceAll("-", "") : "";
+		if (!digits.matches("\\d{9}")) {
+			return 0;
+		}
+		if ("000".equals(digits.substring(0, 3)) || "666".equals(digits.substring(0, 3))
+				|| "9".equals(digits.substring(0, 1))) {
+			return 0;
+		}
+		if ("0000".equals(digits.substring(5))) {
+			return 0;
+		}
+		String[] specialCases = new String[] { "219099999", "078051120" };
+		for (int i = 0 ; i < specialCases.length ; i++) {
+			if (digits.equals(specialCases[i])) {
+				return 0;
+			}
+		}
+		return 1;
+	}
+
+}
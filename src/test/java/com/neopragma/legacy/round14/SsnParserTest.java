@@ -0,0 +1,105 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SsnParserTest {
+
+	@Test
+	public void itReadsBothForms() {
+		assertEquals(123456789, SsnParser.digits("123456789"));
+		assertEquals(123456789, SsnParser.digits("123-45-6789"));
+		assertEquals(78051120, SsnParser.digits("078-05-1120"));
+	}
+
+	@Test
+	public void itRejectsOtherForms() {
+		for (String ssn : new String[] { "", "12345678", "1234567890", "12-3456-789", "123-456789",
+				"123 45 6789", "12345678x", "\uff1123456789", "123-45-678-" }) {
+			assertEquals(ssn, SsnParser.MALFORMED, SsnParser.digits(ssn));
+		}
+	}
+
+	@Test
+	public void itChecksTheRulesInOrder() {
+		assertEquals(SsnParser.Reason.NOT_NINE_DIGITS, SsnParser.validate(SsnParser.MALFORMED));
+		assertEquals(SsnParser.Reason.INVALID_AREA, SsnParser.validate(SsnParser.digits("000220000")));
+		assertEquals(SsnParser.Reason.ZERO_SERIAL, SsnParser.validate(SsnParser.digits("111220000")));
+		assertEquals(SsnParser.Reason.RESERVED, SsnParser.validate(SsnParser.digits("219099999")));
+		assertNull(SsnParser.validate(SsnParser.digits("665-00-0001")));
+	}
+
+	@Test
+	public void itKeepsLeadingZeros() {
+		assertEquals("078051120", SsnParser.toDigitString(78051120));
+		assertEquals("078-05-1120", SsnParser.format(78051120));
+		assertEquals("078051120 is a reserved Ssn that cannot be used",
+				SsnParser.Reason.RESERVED.message(78051120));
+	}
+
+	@Test
+	public void itAgreesWithTheRegularExpressionRules() {
+		Random random = new Random(13);
+		for (int i = 0 ; i < 50000 ; i++) {
+			String ssn = randomSsn(random);
+			assertEquals(ssn, regexRules(ssn), parserRules(ssn));
+		}
+	}
+
+	private static String parserRules(String ssn) {
+		try {
+			return SsnParser.toDigitString(SsnParser.parse(ssn));
+		} catch (InvalidSsnException e) {
+			return e.getMessage();
+		}
+	}
+
+	/**
+	 * The rules as SsnImpl applied them before SsnParser.
+	 */
+	private static String regexRules(String ssn) {
+		String digits = ssn.matches("(\\d{3}-\\d{2}-\\d{4}|\\d{9})") ? ssn.replaceAll("-", "") : "";
+		if (!digits.matches("\\d{9}")) {
+			return "Ssn must be exactly nine digits";
+		}
+		if ("000".equals(digits.substring(0, 3)) || "666".equals(digits.substring(0, 3))
+				|| "9".equals(digits.substring(0, 1))) {
+			return "Ssn cannot start with 000, 666, or 9";
+		}
+		if ("0000".equals(digits.substring(5))) {
+			return "Ssn serial number cannot be 0000";
+		}
+		if (digits.equals("219099999") || digits.equals("078051120")) {
+			return digits + " is a reserved Ssn that cannot be used";
+		}
+		return digits;
+	}
+
+	private static String randomSsn(Random random) {
+		String[] interesting = { "000", "666", "900", "219", "078", "0000", "9999", "-", "--", "a", " " };
+		StringBuilder ssn = new StringBuilder();
+		int parts = 1 + random.nextInt(6);
+		for (int p = 0 ; p < parts ; p++) {
+			if (random.nextInt(4) == 0) {
+				ssn.append(interesting[random.nextInt(interesting.length)]);
+			} else {
+				for (int d = random.nextInt(5) ; d >= 0 ; d--) {
+					ssn.append((char) ('0' + random.nextInt(10)));
+				}
+			}
+		}
+		if (random.nextBoolean() && ssn.length() >= 9) {
+			return ssn.substring(0, 9);
+		}
+		if (random.nextBoolean()) {
+			String digits = String.format("%09d", random.nextInt(1000000000));
+			return digits.substring(0, 3) + "-" + digits.substring(3, 5) + "-" + digits.substring(5);
+		}
+		return ssn.toString();
+	}
+
+}
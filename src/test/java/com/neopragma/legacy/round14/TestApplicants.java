@@ -0,0 +1,24 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Job applicants for the Persistence tests, alike but for what a test
+ * tells apart.
+ */
+class TestApplicants {
+
+	private TestApplicants() { }
+
+	static JobApplicant applicant(int id, String firstName) {
+		return applicant(id, firstName, "Smith");
+	}
+
+	static JobApplicant applicant(int id, String firstName, String lastName) {
+		return applicant(id, firstName, lastName, "75001");
+	}
+
+	static JobApplicant applicant(int id, String firstName, String lastName, String zipCode) {
+		return new JobApplicantImpl(id, new AddressImpl("Addison", "TX", zipCode),
+				new PackedSsn("123-45-6789"), new EnglishName(firstName, "Quinn", lastName));
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.neopragma.legacy.round14;
+
+/**
+ * Validates Ssns of which 5% are invalid in three ways: the throwing
+ * constructor, validate() turning rejections into stackless exceptions,
+ * and validate() alone.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.ValidationBenchmark [ssns]
+ */
+public class ValidationBenchmark {
+
+	private static final String[] SSNS = new String[1000];
+
+	static {
+		for (int i = 0 ; i < SSNS.length ; i++) {
+			int area = i % 20 == 19 ? 666 : 1 + i % 665;
+			SSNS[i] = String.format("%03d-%02d-%04d", area, 1 + i % 99, 1 + i);
+		}
+	}
+
+	public static void main(String[] args) {
+		int ssns = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		for (int round = 0 ; round < 3 ; round++) {
+			long start = System.nanoTime();
+			int valid = 0;
+			for (int i = 0 ; i < ssns ; i++) {
+				try {
+					new SsnImpl(SSNS[i % SSNS.length]);
+					valid++;
+				} catch (InvalidSsnException e) {
+				}
+			}
+			report("constructor", ssns, valid, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			valid = 0;
+			for (int i = 0 ; i < ssns ; i++) {
+				try {
+					SsnImpl.validate(SSNS[i % SSNS.length]).orElseThrow(InvalidSsnException::stackless);
+					valid++;
+				} catch (InvalidSsnException e) {
+				}
+			}
+			report("stackless", ssns, valid, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			valid = 0;
+			for (int i = 0 ; i < ssns ; i++) {
+				if (SsnImpl.validate(SSNS[i % SSNS.length]).isValid()) {
+					valid++;
+				}
+			}
+			report("validate", ssns, valid, System.nanoTime() - start);
+		}
+	}
+
+	private static void report(String label, int ssns, int valid, long elapsedNanos) {
+		System.out.printf("%-12s %8.1f ms %6.1f ns/ssn (%d valid)%n",
+				label, elapsedNanos / 1e6, (double) elapsedNanos / ssns, valid);
+	}
+
+}
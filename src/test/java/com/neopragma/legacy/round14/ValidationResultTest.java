@@ -0,0 +1,78 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValidationResultTest {
+
+	@Test
+	public void itReturnsAValidSsn() {
+		ValidationResult<SsnImpl> result = SsnImpl.validate("123-45-6789");
+		assertTrue(result.isValid());
+		assertEquals("123-45-6789", result.getValue().formatSsn());
+		assertNull(result.getReason());
+	}
+
+	@Test
+	public void itReturnsTheReasonAndMessageInsteadOfThrowing() {
+		ValidationResult<SsnImpl> result = SsnImpl.validate("078-05-1120");
+		assertFalse(result.isValid());
+		assertNull(result.getValue());
+		assertEquals(SsnParser.Reason.RESERVED, result.getReason());
+		assertEquals("078051120 is a reserved Ssn that cannot be used", result.getMessage());
+		assertEquals(SsnParser.Reason.INVALID_AREA, PackedSsn.validate("666-12-3456").getReason());
+	}
+
+	@Test
+	public void itRejectsAMissingSsnWithoutThrowing() {
+		assertEquals(SsnParser.Reason.NOT_NINE_DIGITS, SsnImpl.validate(null).getReason());
+		assertEquals(SsnParser.Reason.NOT_NINE_DIGITS, PackedSsn.validate(null).getReason());
+	}
+
+	@Test
+	public void itChecksNamesWithoutThrowing() {
+		assertEquals("John Q. Adams", EnglishName.validate("John", "Quincy", "Adams").getValue().displayName());
+		assertEquals(NameRules.Reason.MISSING_LAST_NAME, EnglishName.validate("John", "Quincy", null).getReason());
+		assertEquals(NameRules.Reason.WRONG_NUMBER_OF_PARTS, SpanishName.validate("Juan", "Carlos").getReason());
+		assertEquals(NameRules.Reason.MISSING_FIRST_NAME, SpanishName.validate("", "", "Garcia", "").getReason());
+	}
+
+	@Test
+	public void itThrowsStacklessExceptionsOnRequest() {
+		try {
+			SsnImpl.validate("000-12-3456").orElseThrow(InvalidSsnException::stackless);
+			fail("Expected InvalidSsnException");
+		} catch (InvalidSsnException expected) {
+			assertEquals("Ssn cannot start with 000, 666, or 9", expected.getMessage());
+			assertEquals(0, expected.getStackTrace().length);
+		}
+		try {
+			EnglishName.validate("John").orElseThrow(InvalidNameException::stackless);
+			fail("Expected InvalidNameException");
+		} catch (IllegalArgumentException expected) {
+			assertEquals(0, expected.getStackTrace().length);
+		}
+	}
+
+	@Test
+	public void theConstructorsStillThrowWithStackTraces() {
+		try {
+			new SsnImpl("12345");
+			fail("Expected InvalidSsnException");
+		} catch (InvalidSsnException expected) {
+			assertTrue(expected.getStackTrace().length > 0);
+		}
+		try {
+			new EnglishName("John", "Quincy", null);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException expected) {
+			assertEquals("Last name is required", expected.getMessage());
+		}
+	}
+
+}
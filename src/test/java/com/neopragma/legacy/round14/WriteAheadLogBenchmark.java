@@ -0,0 +1,54 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Saves applicants to a WriteAheadLogPersistence with several checkpoint
+ * intervals, reopens it and reports how long recovery takes and how
+ * many log records it replays. close() only forces the log, so recovery
+ * does the same work as after a crash. The first run, without
+ * checkpoints, also warms up the JIT.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.WriteAheadLogBenchmark [applicants]
+ */
+public class WriteAheadLogBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int applicants = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		JobApplicant[] saved = new JobApplicant[applicants];
+		for (int i = 0 ; i < applicants ; i++) {
+			saved[i] = new JobApplicantImpl(i, new AddressImpl("Addison", "TX", "75001"),
+					PackedSsn.of(100000000 + i / 9999 * 10000 + i % 9999 + 1),
+					new EnglishName("Mary", "Quinn", "Applicant" + i));
+		}
+		for (int interval : new int[] { applicants + 1, applicants + 1, 100000, 10000 }) {
+			Path directory = Files.createTempDirectory("applicants");
+			try {
+				WriteAheadLogPersistence persistence = new WriteAheadLogPersistence(directory, interval);
+				long start = System.nanoTime();
+				for (JobApplicant applicant : saved) {
+					persistence.save(applicant);
+				}
+				long elapsed = System.nanoTime() - start;
+				persistence.close();
+				WriteAheadLogPersistence recovered = new WriteAheadLogPersistence(directory, interval);
+				System.out.printf("interval %7d: save %6.2f us/op, recovery %5d ms, replayed %7d records%n",
+						interval, elapsed / 1e3 / applicants, recovered.getRecoveryMillis(),
+						recovered.getReplayedRecordCount());
+				recovered.close();
+			} finally {
+				try (Stream<Path> files = Files.list(directory)) {
+					for (Path file : (Iterable<Path>) files::iterator) {
+						Files.delete(file);
+					}
+				}
+				Files.delete(directory);
+			}
+		}
+	}
+
+}
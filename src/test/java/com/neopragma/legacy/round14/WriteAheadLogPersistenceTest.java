@@ -0,0 +1,226 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.neopragma.legacy.round14.TestApplicants.applicant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WriteAheadLogPersistenceTest {
+
+	private static final int CHECKPOINT_INTERVAL = 100;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private WriteAheadLogPersistence persistence;
+
+	@Before
+	public void beforeEach() throws Exception {
+		directory = folder.getRoot().toPath().resolve("applicants");
+		persistence = new WriteAheadLogPersistence(directory, CHECKPOINT_INTERVAL);
+	}
+
+	@After
+	public void afterEach() throws Exception {
+		persistence.close();
+	}
+
+	@Test
+	public void itFindsSavedApplicants() {
+		persistence.save(applicant(7, "Mary"));
+		persistence.save(applicant(8, "John"));
+		assertEquals("Mary Q. Smith", persistence.findById(7).getName().displayName());
+		assertEquals(Integer.valueOf(8), persistence.findByName("John Q. Smith").getId());
+		assertEquals(2, persistence.size());
+	}
+
+	@Test
+	public void itKeepsSavesAndDeletesAcrossReopening() throws Exception {
+		saveMany(10, "Mary");
+		persistence.save(applicant(3, "John"));
+		persistence.delete(4);
+		reopen();
+		assertEquals(9, persistence.size());
+		assertEquals("John Q. Smith", persistence.findById(3).getName().displayName());
+		assertNull(persistence.findById(4));
+		assertEquals(12, persistence.getReplayedRecordCount());
+	}
+
+	@Test
+	public void itRecoversWithoutBeingClosed() throws Exception {
+		saveMany(10, "Mary");
+		crash();
+		assertEquals(10, persistence.size());
+		assertEquals(0, persistence.getTruncatedBytes());
+	}
+
+	@Test
+	public void itCutsOffATornRecordWhenRecovering() throws Exception {
+		saveMany(10, "Mary");
+		Path log = lastLog();
+		try (RandomAccessFile raw = new RandomAccessFile(log.toFile(), "rw")) {
+			raw.setLength(raw.length() - 3);
+		}
+		crash();
+		assertEquals(9, persistence.size());
+		assertNull(persistence.findById(10));
+		assertTrue(persistence.getTruncatedBytes() > 0);
+		persistence.save(applicant(10, "John"));
+		reopen();
+		assertEquals("John Q. Smith", persistence.findById(10).getName().displayName());
+		assertEquals(0, persistence.getTruncatedBytes());
+	}
+
+	@Test
+	public void itCutsOffARecordWithABadChecksumWhenRecovering() throws Exception {
+		saveMany(10, "Mary");
+		Path log = lastLog();
+		try (RandomAccessFile raw = new RandomAccessFile(log.toFile(), "rw")) {
+			raw.seek(raw.length() - 1);
+			int last = raw.read();
+			raw.seek(raw.length() - 1);
+			raw.write(last ^ 0xFF);
+		}
+		crash();
+		assertEquals(9, persistence.size());
+		assertTrue(persistence.getTruncatedBytes() > 0);
+	}
+
+	@Test
+	public void itReplaysOnlyTheLogSinceTheLastCheckpoint() throws Exception {
+		saveMany(1000, "Mary");
+		reopen();
+		assertEquals(1000, persistence.size());
+		assertTrue(persistence.getReplayedRecordCount() <= 2 * CHECKPOINT_INTERVAL);
+		assertTrue(persistence.getRecoveryMillis() >= 0);
+		assertEquals("Mary Q. 1000", persistence.findById(1000).getName().displayName());
+	}
+
+	@Test
+	public void itDeletesLogsOnceTheyAreCheckpointed() throws Exception {
+		saveMany(50, "Mary");
+		persistence.checkpoint();
+		assertEquals(1, persistence.getCheckpointCount());
+		assertEquals(0, persistence.getUncheckpointedRecordCount());
+		assertEquals(1, files("wal-").size());
+		assertEquals(1, files("checkpoint-").size());
+		reopen();
+		assertEquals(50, persistence.size());
+		assertEquals(0, persistence.getReplayedRecordCount());
+	}
+
+	@Test
+	public void itIgnoresACheckpointLeftUnfinishedByACrash() throws Exception {
+		saveMany(50, "Mary");
+		persistence.close();
+		// As though the process died after starting the next log, while
+		// writing the checkpoint.
+		Files.createFile(directory.resolve("wal-0000000002.log"));
+		Files.write(directory.resolve("checkpoint-0000000002.dat.partial"), new byte[] { 1, 2, 3 });
+		persistence = new WriteAheadLogPersistence(directory, CHECKPOINT_INTERVAL);
+		assertEquals(50, persistence.size());
+		assertTrue(files("checkpoint-").isEmpty());
+		persistence.save(applicant(51, "John"));
+		reopen();
+		assertEquals(51, persistence.size());
+	}
+
+	@Test
+	public void itKeepsEveryAcknowledgedSaveWhenTheProcessIsKilled() throws Exception {
+		persistence.close();
+		Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+		Process writer = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+				SaveUntilKilled.class.getName(), directory.toString(), String.valueOf(CHECKPOINT_INTERVAL))
+				.redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		int acknowledged = 0;
+		try (BufferedReader out = new BufferedReader(new InputStreamReader(writer.getInputStream(), "UTF-8"))) {
+			for (String line = out.readLine() ; line != null && acknowledged < 2000 ; line = out.readLine()) {
+				acknowledged = Integer.parseInt(line);
+			}
+		} finally {
+			writer.destroyForcibly();
+		}
+		assertTrue(writer.waitFor(30, TimeUnit.SECONDS));
+		assertEquals(2000, acknowledged);
+
+		persistence = new WriteAheadLogPersistence(directory, CHECKPOINT_INTERVAL);
+		assertTrue(persistence.size() >= acknowledged);
+		for (int id = 1 ; id <= acknowledged ; id++) {
+			assertEquals("Mary Q. " + id, persistence.findById(id).getName().displayName());
+		}
+		assertTrue(persistence.getReplayedRecordCount() <= 2 * CHECKPOINT_INTERVAL + 1);
+	}
+
+	@Test(expected=PersistenceException.class)
+	public void itRejectsSavesOnceClosed() throws Exception {
+		persistence.close();
+		persistence.save(applicant(1, "Mary"));
+	}
+
+	/**
+	 * Saves applicants until killed, printing each id once its save has
+	 * returned.
+	 */
+	public static class SaveUntilKilled {
+		public static void main(String[] args) throws Exception {
+			WriteAheadLogPersistence persistence = new WriteAheadLogPersistence(Paths.get(args[0]),
+					Integer.parseInt(args[1]));
+			for (int id = 1 ; ; id++) {
+				persistence.save(applicant(id, "Mary", String.valueOf(id)));
+				System.out.println(id);
+				System.out.flush();
+			}
+		}
+	}
+
+	/**
+	 * Leaves the open persistence as a killed process would and recovers
+	 * from its files. Only for tests that save fewer applicants than the
+	 * checkpoint interval, so that no checkpoint is being written.
+	 */
+	private void crash() throws Exception {
+		persistence = new WriteAheadLogPersistence(directory, CHECKPOINT_INTERVAL);
+	}
+
+	private void reopen() throws Exception {
+		persistence.close();
+		persistence = new WriteAheadLogPersistence(directory, CHECKPOINT_INTERVAL);
+	}
+
+	private void saveMany(int count, String firstName) {
+		for (int id = 1 ; id <= count ; id++) {
+			persistence.save(applicant(id, firstName, String.valueOf(id)));
+		}
+	}
+
+	private Path lastLog() throws Exception {
+		List<Path> logs = files("wal-");
+		return logs.get(logs.size() - 1);
+	}
+
+	private List<Path> files(String prefix) throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+					.sorted().collect(Collectors.toList());
+		}
+	}
+
+}
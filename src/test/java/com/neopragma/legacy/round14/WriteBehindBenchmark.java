@@ -0,0 +1,80 @@
+package com.neopragma.legacy.round14;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Compares saving each applicant and syncing it before the next with
+ * handing saves to a WriteBehindPersistence from several threads, which
+ * syncs once per batch, both over a LogStructuredPersistence.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.WriteBehindBenchmark [applicants] [threads]
+ */
+public class WriteBehindBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int applicants = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		JobApplicant[] saved = new JobApplicant[applicants];
+		for (int i = 0 ; i < applicants ; i++) {
+			saved[i] = new JobApplicantImpl(i, new AddressImpl("Addison", "TX", "75001"),
+					PackedSsn.of(100000000 + i / 9999 * 10000 + i % 9999 + 1),
+					new EnglishName("Mary", "Quinn", "Applicant" + i));
+		}
+
+		Path directory = Files.createTempDirectory("applicants");
+		try (LogStructuredPersistence persistence = new LogStructuredPersistence(directory)) {
+			long start = System.nanoTime();
+			for (JobApplicant applicant : saved) {
+				persistence.save(applicant);
+				persistence.sync();
+			}
+			report("save and sync", applicants, System.nanoTime() - start);
+		} finally {
+			delete(directory);
+		}
+
+		directory = Files.createTempDirectory("applicants");
+		try (WriteBehindPersistence persistence = new WriteBehindPersistence(new LogStructuredPersistence(directory))) {
+			long start = System.nanoTime();
+			CompletableFuture<?>[] intake = new CompletableFuture<?>[threads];
+			for (int t = 0 ; t < threads ; t++) {
+				int first = t;
+				intake[t] = CompletableFuture.runAsync(() -> {
+					for (int i = first ; i < applicants ; i += threads) {
+						persistence.save(saved[i]);
+					}
+				});
+			}
+			CompletableFuture.allOf(intake).join();
+			long queued = System.nanoTime() - start;
+			persistence.flush();
+			long synced = System.nanoTime() - start;
+			report("write-behind queued", applicants, queued);
+			report("write-behind synced", applicants, synced);
+			System.out.printf("%d batches, average %.1f, largest %d%n", persistence.getBatchCount(),
+					persistence.getAverageBatchSize(), persistence.getLargestBatchSize());
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private static void report(String label, int operations, long elapsed) {
+		System.out.printf("%-20s %8.2f us/op %10.0f ops/s%n",
+				label, elapsed / 1e3 / operations, operations * 1e9 / elapsed);
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+}
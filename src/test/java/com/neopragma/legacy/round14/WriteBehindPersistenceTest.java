@@ -0,0 +1,336 @@
+package com.neopragma.legacy.round14;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.neopragma.legacy.round14.TestApplicants.applicant;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WriteBehindPersistenceTest {
+
+	private final GatedPersistence store = new GatedPersistence();
+	private WriteBehindPersistence persistence;
+
+	@After
+	public void afterEach() throws Exception {
+		store.releaseSaves();
+		persistence.close();
+	}
+
+	@Test
+	public void itCompletesTheFutureOnceTheSaveIsSynced() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		persistence.saveAsync(applicant(1, "Mary")).get(5, TimeUnit.SECONDS);
+		assertEquals("Mary Q. Smith", store.findById(1).getName().displayName());
+		assertTrue(store.syncs.get() >= 1);
+	}
+
+	@Test
+	public void itSyncsOncePerBatch() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		store.holdSaves();
+		CompletableFuture<Void> first = persistence.saveAsync(applicant(0, "First"));
+		store.writerWaiting.await(5, TimeUnit.SECONDS);
+		CompletableFuture<?>[] rest = new CompletableFuture<?>[50];
+		for (int id = 1 ; id <= rest.length ; id++) {
+			rest[id - 1] = persistence.saveAsync(applicant(id, "Mary"));
+		}
+		assertEquals(rest.length, persistence.getQueueDepth());
+		store.releaseSaves();
+		CompletableFuture.allOf(rest).get(5, TimeUnit.SECONDS);
+		assertTrue(first.isDone());
+		assertEquals(2, store.syncs.get());
+		assertEquals(2, persistence.getBatchCount());
+		assertEquals(rest.length, persistence.getLargestBatchSize());
+		assertEquals(rest.length + 1, persistence.getWriteCount());
+	}
+
+	@Test
+	public void itFindsQueuedWritesBeforeTheyAreWritten() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		persistence.saveAsync(applicant(1, "Mary")).get(5, TimeUnit.SECONDS);
+		persistence.saveAsync(applicant(2, "John")).get(5, TimeUnit.SECONDS);
+		store.holdSaves();
+		persistence.save(applicant(3, "Ann"));
+		persistence.save(applicant(1, "Maria"));
+		persistence.delete(2);
+
+		assertEquals("Ann Q. Smith", persistence.findById(3).getName().displayName());
+		assertEquals("Maria Q. Smith", persistence.findById(1).getName().displayName());
+		assertNull(persistence.findById(2));
+		assertEquals(Integer.valueOf(3), persistence.findByName("Ann Q. Smith").getId());
+		assertNull(persistence.findByName("Mary Q. Smith"));
+		assertNull(persistence.findByName("John Q. Smith"));
+	}
+
+	@Test
+	public void itRefusesWritesWhenTheQueueIsFull() throws Exception {
+		persistence = new WriteBehindPersistence(store, 2, 10, WriteBehindPersistence.WhenFull.REJECT);
+		store.holdSaves();
+		persistence.save(applicant(0, "Taken"));
+		store.writerWaiting.await(5, TimeUnit.SECONDS);
+		persistence.save(applicant(1, "Queued"));
+		persistence.save(applicant(2, "Queued"));
+		try {
+			persistence.save(applicant(3, "Refused"));
+			fail("Expected PersistenceException");
+		} catch (PersistenceException expected) {
+		}
+		CompletableFuture<Void> refused = persistence.saveAsync(applicant(3, "Refused"));
+		assertTrue(refused.isCompletedExceptionally());
+		assertEquals(2, persistence.getRejectedCount());
+		assertNull(persistence.findById(3));
+	}
+
+	@Test
+	public void itKeepsTheQueuedWriteOfAnIdWhenAnotherIsRefused() throws Exception {
+		persistence = new WriteBehindPersistence(store, 1, 10, WriteBehindPersistence.WhenFull.REJECT);
+		store.holdSaves();
+		persistence.save(applicant(0, "Taken"));
+		store.writerWaiting.await(5, TimeUnit.SECONDS);
+		persistence.save(applicant(1, "Queued"));
+		try {
+			persistence.save(applicant(1, "Refused"));
+			fail("Expected PersistenceException");
+		} catch (PersistenceException expected) {
+		}
+		assertEquals("Queued Q. Smith", persistence.findById(1).getName().displayName());
+	}
+
+	@Test
+	public void itMakesWritersWaitWhenTheQueueIsFull() throws Exception {
+		persistence = new WriteBehindPersistence(store, 1, 10, WriteBehindPersistence.WhenFull.BLOCK);
+		store.holdSaves();
+		persistence.save(applicant(0, "Taken"));
+		store.writerWaiting.await(5, TimeUnit.SECONDS);
+		persistence.save(applicant(1, "Queued"));
+		CountDownLatch saved = new CountDownLatch(1);
+		Thread waiting = new Thread(() -> {
+			persistence.save(applicant(2, "Waiting"));
+			saved.countDown();
+		});
+		waiting.start();
+		assertFalse(saved.await(200, TimeUnit.MILLISECONDS));
+		store.releaseSaves();
+		assertTrue(saved.await(5, TimeUnit.SECONDS));
+		persistence.flush();
+		assertEquals("Waiting Q. Smith", store.findById(2).getName().displayName());
+	}
+
+	@Test
+	public void itStoresTheWriteOfAnIdThatFindsSawLast() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		Thread[] writers = new Thread[8];
+		for (int i = 0 ; i < writers.length ; i++) {
+			String firstName = "Writer" + i;
+			writers[i] = new Thread(() -> {
+				for (int n = 0 ; n < 2000 ; n++) {
+					persistence.save(applicant(1, firstName));
+				}
+			});
+			writers[i].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		String seen = persistence.findById(1).getName().displayName();
+		persistence.flush();
+		assertEquals(seen, store.findById(1).getName().displayName());
+	}
+
+	@Test
+	public void itWritesEverythingQueuedBeforeFlushReturns() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		for (int id = 0 ; id < 1000 ; id++) {
+			persistence.save(applicant(id, "Mary"));
+		}
+		persistence.flush();
+		assertEquals(1000, store.size());
+		assertEquals(0, persistence.getQueueDepth());
+		assertTrue(persistence.getAverageBatchSize() >= 1);
+	}
+
+	@Test
+	public void itWritesEverythingQueuedAndClosesTheStoreOnClose() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		for (int id = 0 ; id < 100 ; id++) {
+			persistence.save(applicant(id, "Mary"));
+		}
+		persistence.close();
+		assertEquals(100, store.size());
+		assertTrue(store.closed);
+		try {
+			persistence.save(applicant(100, "Late"));
+			fail("Expected PersistenceException");
+		} catch (PersistenceException expected) {
+		}
+	}
+
+	@Test
+	public void itFailsOnlyTheWriteTheStoreRejects() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		store.holdSaves();
+		persistence.save(applicant(0, "First"));
+		store.writerWaiting.await(5, TimeUnit.SECONDS);
+		CompletableFuture<Void> good = persistence.saveAsync(applicant(1, "Mary"));
+		CompletableFuture<Void> bad = persistence.saveAsync(applicant(GatedPersistence.FAILING_ID, "Bad"));
+		store.releaseSaves();
+		good.get(5, TimeUnit.SECONDS);
+		try {
+			bad.get(5, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause() instanceof PersistenceException);
+		}
+		assertEquals(1, persistence.getFailedCount());
+		assertNull(persistence.findById(GatedPersistence.FAILING_ID));
+	}
+
+	@Test
+	public void itFailsTheFlushAfterAFireAndForgetWriteIsLost() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		persistence.save(applicant(GatedPersistence.FAILING_ID, "Bad"));
+		try {
+			persistence.flush();
+			fail("Expected PersistenceException");
+		} catch (PersistenceException expected) {
+			assertTrue(expected.getMessage().contains("[" + GatedPersistence.FAILING_ID + "]"));
+		}
+		persistence.save(applicant(1, "Mary"));
+		persistence.flush();
+	}
+
+	@Test
+	public void itFailsTheCloseAfterAFireAndForgetWriteIsLost() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		persistence.delete(1);
+		persistence.save(applicant(GatedPersistence.FAILING_ID, "Bad"));
+		try {
+			persistence.close();
+			fail("Expected PersistenceException");
+		} catch (PersistenceException expected) {
+		}
+		assertTrue(store.closed);
+	}
+
+	@Test
+	public void itKeepsWritingAfterTheStoreThrowsAnError() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		try {
+			persistence.saveAsync(applicant(GatedPersistence.ERROR_ID, "Bad")).get(5, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause().getCause() instanceof Error);
+		}
+		persistence.saveAsync(applicant(1, "Mary")).get(5, TimeUnit.SECONDS);
+		assertEquals("Mary Q. Smith", store.findById(1).getName().displayName());
+	}
+
+	@Test
+	public void itFailsTheBatchWhenTheSyncFails() throws Exception {
+		persistence = new WriteBehindPersistence(store);
+		store.failSyncs = true;
+		try {
+			persistence.saveAsync(applicant(1, "Mary")).get(5, TimeUnit.SECONDS);
+			fail("Expected ExecutionException");
+		} catch (ExecutionException expected) {
+		}
+		try {
+			persistence.flush();
+			fail("Expected IOException");
+		} catch (IOException expected) {
+		}
+		store.failSyncs = false;
+	}
+
+	/**
+	 * In-memory store whose saves wait while they are held, so tests can let
+	 * writes pile up in the queue.
+	 */
+	private static class GatedPersistence implements DurablePersistence {
+		static final int FAILING_ID = -1;
+		static final int ERROR_ID = -2;
+
+		final ConcurrentInMemoryPersistence applicants = new ConcurrentInMemoryPersistence();
+		final Semaphore gate = new Semaphore(Integer.MAX_VALUE);
+		final CountDownLatch writerWaiting = new CountDownLatch(1);
+		final AtomicInteger syncs = new AtomicInteger();
+		volatile boolean failSyncs;
+		volatile boolean closed;
+
+		void holdSaves() {
+			gate.drainPermits();
+		}
+
+		void releaseSaves() {
+			gate.release(Integer.MAX_VALUE - gate.availablePermits());
+		}
+
+		long size() {
+			return applicants.size();
+		}
+
+		@Override
+		public void save(JobApplicant data) {
+			if (!gate.tryAcquire()) {
+				writerWaiting.countDown();
+				gate.acquireUninterruptibly();
+			}
+			gate.release();
+			if (data.getId() == FAILING_ID) {
+				throw new IllegalStateException("Cannot save " + data.getId());
+			}
+			if (data.getId() == ERROR_ID) {
+				throw new Error("Cannot save " + data.getId());
+			}
+			applicants.save(data);
+		}
+
+		@Override
+		public JobApplicant findById(Integer id) {
+			return applicants.findById(id);
+		}
+
+		@Override
+		public JobApplicant findByName(String name) {
+			return applicants.findByName(name);
+		}
+
+		@Override
+		public void delete(Integer id) {
+			applicants.delete(id);
+		}
+
+		@Override
+		public void forEachApplicant(Consumer<? super JobApplicant> action) {
+			applicants.forEachApplicant(action);
+		}
+
+		@Override
+		public void sync() throws IOException {
+			syncs.incrementAndGet();
+			if (failSyncs) {
+				throw new IOException("Sync failed");
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.neopragma.legacy.round14;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.http.HttpResponse;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the streaming parse in ZipServiceResponse with the former
+ * approach of reading the whole body into a StringBuffer and building a
+ * Gson tree. Reports CPU time and bytes allocated per response.
+ *
+ * Run with: java -cp target/classes:target/test-classes:(dependencies)
+ *     com.neopragma.legacy.round14.ZipServiceResponseBenchmark [responses]
+ */
+public class ZipServiceResponseBenchmark {
+
+	private static final String BODY = ZipServiceStandIn.json("75001", new CityState("Addison", "TX"));
+
+	public static void main(String[] args) throws Exception {
+		int responses = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		for (int round = 0 ; round < 3 ; round++) {
+			measure("tree parse", responses, ZipServiceResponseBenchmark::treeParse);
+			measure("streaming parse", responses, ZipServiceResponse::parse);
+		}
+	}
+
+	private static void measure(String label, int responses, Parser parser) throws Exception {
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		int check = 0;
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0 ; i < responses ; i++) {
+			check += parser.parse(ZipServiceResponseTest.response(200, BODY)).getState().length();
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		System.out.printf("%-16s %8.1f ns/response %8d bytes/response (%d)%n",
+				label, (double) elapsed / responses, allocated / responses, check);
+	}
+
+	/**
+	 * The parse as it was before streaming.
+	 */
+	private static CityState treeParse(HttpResponse response) throws Exception {
+		BufferedReader rd = new BufferedReader(
+				new InputStreamReader(response.getEntity().getContent()));
+		StringBuffer result = new StringBuffer();
+		String line = "";
+		while ((line = rd.readLine()) != null) {
+			result.append(line);
+		}
+		JsonElement jelement = new JsonParser().parse(result.toString());
+		JsonObject jobject = jelement.getAsJsonObject();
+		JsonArray jarray = jobject.getAsJsonArray("places");
+		jobject = jarray.get(0).getAsJsonObject();
+		return new CityState(jobject.get("place name").getAsString(),
+				jobject.get("state abbreviation").getAsString());
+	}
+
+	private interface Parser {
+		CityState parse(HttpResponse response) throws Exception;
+	}
+
+}
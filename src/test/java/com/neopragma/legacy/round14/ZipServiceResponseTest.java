@@ -0,0 +1,64 @@
+package com.neopragma.legacy.round14;
+
+import com.google.gson.JsonParseException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class ZipServiceResponseTest {
+
+	@Test
+	public void itReadsCityAndStateOfTheFirstPlace() throws Exception {
+		CityState cityState = ZipServiceResponse.parse(response(200,
+				ZipServiceStandIn.json("75001", new CityState("Addison", "TX"))));
+		assertEquals("Addison", cityState.getCity());
+		assertEquals("TX", cityState.getState());
+	}
+
+	@Test
+	public void itDoesNotDependOnFieldOrder() throws Exception {
+		CityState cityState = ZipServiceResponse.parse(response(200,
+				"{\"places\": [{\"state abbreviation\": \"AZ\", \"latitude\": \"32.4\", " +
+				"\"place name\": \"Marana\"}, {\"place name\": \"Other\"}], \"post code\": \"85658\"}"));
+		assertEquals("Marana", cityState.getCity());
+		assertEquals("AZ", cityState.getState());
+	}
+
+	@Test
+	public void itDecodesUtf8() throws Exception {
+		CityState cityState = ZipServiceResponse.parse(response(200,
+				ZipServiceStandIn.json("81212", new CityState("Ca\u00f1on City", "CO"))));
+		assertEquals("Ca\u00f1on City", cityState.getCity());
+	}
+
+	@Test
+	public void itReadsEscapedCharacters() throws Exception {
+		CityState cityState = ZipServiceResponse.parse(response(200,
+				ZipServiceStandIn.json("12345", new CityState("Say \"Hi\" \\ Town", "NY"))));
+		assertEquals("Say \"Hi\" \\ Town", cityState.getCity());
+	}
+
+	@Test(expected=JsonParseException.class)
+	public void itRejectsResponsesWithoutPlaces() throws Exception {
+		ZipServiceResponse.parse(response(200, "{\"post code\": \"99999\", \"places\": []}"));
+	}
+
+	@Test(expected=HttpResponseException.class)
+	public void itRejectsResponsesOtherThanOk() throws Exception {
+		ZipServiceResponse.parse(response(404, "{}"));
+	}
+
+	static HttpResponse response(int status, String body) {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "");
+		response.setEntity(new ByteArrayEntity(body.getBytes(StandardCharsets.UTF_8)));
+		return response;
+	}
+
+}
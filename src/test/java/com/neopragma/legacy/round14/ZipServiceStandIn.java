@@ -0,0 +1,280 @@
+package com.neopragma.legacy.round14;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for api.zippopotam.us. It answers /us/{zip} with the
+ * same JSON shape as the real service so lookups can be checked and
+ * measured without going to the internet.
+ *
+ * Faults can be injected to see how clients behave when the service is
+ * slow or unhealthy: a latency distribution applied to every request, a
+ * rate of 503 responses and a rate of connections dropped without any
+ * response.
+ */
+public class ZipServiceStandIn {
+
+	private static final String PATH_PREFIX = "/us/";
+
+	private final Map<String, CityState> places = new ConcurrentHashMap<>();
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong errorCount = new AtomicLong();
+	private final AtomicLong resetCount = new AtomicLong();
+	private volatile Random random = new Random();
+	private volatile Latency latency = Latency.fixed(0);
+	private volatile double errorRate;
+	private volatile double resetRate;
+	private int threads = 8;
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public ZipServiceStandIn withPlace(String zipCode, String city, String state) {
+		places.put(zipCode, new CityState(city, state));
+		return this;
+	}
+
+	/**
+	 * Serves every zip,city,state line of a CSV file, in the format read by
+	 * ZipDatabaseBuilder. Fields may be quoted, but not contain commas.
+	 */
+	public ZipServiceStandIn withPlaces(Path csv) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(",");
+				if (fields.length >= 3) {
+					String zipCode = unquote(fields[0]);
+					if (zipCode.matches("[0-9]{5}")) {
+						withPlace(zipCode, unquote(fields[1]), unquote(fields[2]));
+					}
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @return the zip codes served, in order
+	 */
+	public List<String> zipCodes() {
+		List<String> zipCodes = new ArrayList<>(places.keySet());
+		Collections.sort(zipCodes);
+		return zipCodes;
+	}
+
+	/**
+	 * @param latency - delay applied before answering each request
+	 */
+	public ZipServiceStandIn latency(Latency latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/**
+	 * @param errorRate - fraction of requests answered with 503 Service Unavailable
+	 */
+	public ZipServiceStandIn errorRate(double errorRate) {
+		this.errorRate = errorRate;
+		return this;
+	}
+
+	/**
+	 * @param resetRate - fraction of requests whose connection is closed
+	 *                  without sending a response
+	 */
+	public ZipServiceStandIn resetRate(double resetRate) {
+		this.resetRate = resetRate;
+		return this;
+	}
+
+	/**
+	 * @param seed - makes the injected latencies and faults repeatable
+	 */
+	public ZipServiceStandIn seed(long seed) {
+		this.random = new Random(seed);
+		return this;
+	}
+
+	/**
+	 * @param threads - requests handled at once; raise it when injecting
+	 *                  latency under concurrent load
+	 */
+	public ZipServiceStandIn threads(int threads) {
+		this.threads = threads;
+		return this;
+	}
+
+	public ZipServiceStandIn start() throws IOException {
+		// Without this the JDK server's separate header and body writes hit
+		// Nagle's algorithm on kept-alive connections and stall for ~40 ms.
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext(PATH_PREFIX, this::handle);
+		executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.start();
+		return this;
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	public LookupClientConfig clientConfig() {
+		return new LookupClientConfig()
+				.host(server.getAddress().getHostString())
+				.port(port());
+	}
+
+	public long requestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return number of injected 503 responses
+	 */
+	public long errorCount() {
+		return errorCount.get();
+	}
+
+	/**
+	 * @return number of injected connection resets
+	 */
+	public long resetCount() {
+		return resetCount.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		long delay = latency.nextMillis(random);
+		if (delay > 0) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		double fault = random.nextDouble();
+		if (fault < resetRate) {
+			resetCount.incrementAndGet();
+			// The server closes the connection when a handler throws before
+			// sending the response headers.
+			throw new IOException("Injected connection reset");
+		}
+		if (fault < resetRate + errorRate) {
+			errorCount.incrementAndGet();
+			respond(exchange, 503, "{}");
+			return;
+		}
+		String zipCode = exchange.getRequestURI().getPath().substring(PATH_PREFIX.length());
+		CityState place = places.get(zipCode);
+		if (place == null) {
+			respond(exchange, 404, "{}");
+		} else {
+			respond(exchange, 200, json(zipCode, place));
+		}
+	}
+
+	static String json(String zipCode, CityState place) {
+		return "{\"post code\": " + quote(zipCode) + ", \"country\": \"United States\", "
+				+ "\"country abbreviation\": \"US\", \"places\": [{\"place name\": "
+				+ quote(place.getCity()) + ", \"longitude\": \"-96.8367\", \"state\": \"State\", "
+				+ "\"state abbreviation\": " + quote(place.getState()) + ", \"latitude\": \"32.9617\"}]}";
+	}
+
+	/**
+	 * @return value as a JSON string literal
+	 */
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0 ; i < value.length() ; i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	private static String unquote(String field) {
+		String trimmed = field.trim();
+		if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+			return trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"");
+		}
+		return trimmed;
+	}
+
+	static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	/**
+	 * Distribution of the delay the stand-in adds to each request.
+	 */
+	public interface Latency {
+
+		long nextMillis(Random random);
+
+		static Latency fixed(long millis) {
+			return random -> millis;
+		}
+
+		static Latency uniform(long minMillis, long maxMillis) {
+			return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+		}
+
+		/**
+		 * Long-tailed delays, as seen from real network services.
+		 *
+		 * @param medianMillis - half of the requests are faster than this
+		 * @param sigma - spread; 0.5 puts p99 at about 3.2 times the median
+		 */
+		static Latency logNormal(double medianMillis, double sigma) {
+			return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+		}
+
+		/**
+		 * @return this distribution, except that the given fraction of
+		 *         requests takes tailMillis instead
+		 */
+		default Latency withTail(double probability, long tailMillis) {
+			return random -> random.nextDouble() < probability ? tailMillis : nextMillis(random);
+		}
+
+	}
+
+}